@@ -0,0 +1,69 @@
+package com.oms.benchmark;
+
+import com.oms.model.Order;
+import com.oms.service.BatchOrderResult;
+import com.oms.service.OrderRequest;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Processing a batch of created orders with processOrders against one processOrder call per order.
+ * Scores are per order; run with -prof gc to compare allocation per order as well.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class BatchPipelineBenchmark {
+    private static final int BATCH_SIZE = 500;
+
+    @Param({"1", "5"})
+    public int itemCount;
+
+    private Fixtures fixtures;
+    private int sequence;
+    private List<String> orderIds;
+
+    // Fresh stack per iteration so open reservations and stored orders don't pile up across iterations
+    @Setup(Level.Iteration)
+    public void setUp() {
+        fixtures = new Fixtures();
+        sequence = 0;
+    }
+
+    // Creating the orders isn't part of either measurement
+    @Setup(Level.Invocation)
+    public void createOrders() {
+        List<OrderRequest> requests = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            int seed = sequence++;
+            requests.add(new OrderRequest(Fixtures.customerId(seed % Fixtures.CUSTOMER_COUNT),
+                    Fixtures.items(itemCount, seed), "Benchmark Address"));
+        }
+        orderIds = new ArrayList<>(BATCH_SIZE);
+        for (BatchOrderResult result : fixtures.orderService.createOrders(requests)) {
+            orderIds.add(result.getOrderId());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<BatchOrderResult> processOrders() {
+        return fixtures.orderService.processOrders(orderIds);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public Order processOrder() {
+        Order last = null;
+        for (String orderId : orderIds) {
+            last = fixtures.orderService.processOrder(orderId);
+        }
+        return last;
+    }
+}
@@ -0,0 +1,58 @@
+package com.oms.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the suite and writes JSON results. With no arguments every benchmark runs once,
+ * and ReservationBenchmark is repeated at 1, 2, 4 ... up to the available cores.
+ * Results go to jmh-result.json and jmh-reservation-threads-N.json.
+ * Any arguments are passed straight to JMH, e.g. "PricingBenchmark -prof gc".
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        if (args.length > 0) {
+            CommandLineOptions cli = new CommandLineOptions(args);
+            new Runner(new OptionsBuilder()
+                    .parent(cli)
+                    .resultFormat(cli.getResultFormat().orElse(ResultFormatType.JSON))
+                    .build()).run();
+            return;
+        }
+
+        Options suite = new OptionsBuilder()
+                .include(PricingBenchmark.class.getSimpleName())
+                .include(OrderPipelineBenchmark.class.getSimpleName())
+                .include(RepositoryBenchmark.class.getSimpleName())
+                .include(CodecBenchmark.class.getSimpleName())
+                .include(MetricsBenchmark.class.getSimpleName())
+                .include(OrderIdBenchmark.class.getSimpleName())
+                .resultFormat(ResultFormatType.JSON)
+                .result("jmh-result.json")
+                .build();
+        new Runner(suite).run();
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; ; threads *= 2) {
+            int t = Math.min(threads, cores);
+            new Runner(new OptionsBuilder()
+                    .include(ReservationBenchmark.class.getSimpleName())
+                    .threads(t)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result("jmh-reservation-threads-" + t + ".json")
+                    .build()).run();
+            if (t == cores) {
+                break;
+            }
+        }
+    }
+}
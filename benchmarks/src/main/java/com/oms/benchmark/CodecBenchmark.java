@@ -0,0 +1,58 @@
+package com.oms.benchmark;
+
+import com.oms.codec.ModelCodec;
+import com.oms.codec.ProductIdDictionary;
+import com.oms.model.Order;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ModelCodec encode and decode of one priced order at increasing order sizes, into a reused heap buffer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CodecBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int itemCount;
+
+    private ModelCodec codec;
+    private Order order;
+    private ByteBuffer writeBuffer;
+    private ByteBuffer encoded;
+
+    @Setup
+    public void setUp() {
+        codec = new ModelCodec(new ProductIdDictionary());
+        order = Fixtures.pricedOrder("O1", "C1", itemCount, 0);
+        writeBuffer = ByteBuffer.allocate(codec.sizeOf(order));
+        encoded = ByteBuffer.allocate(codec.sizeOf(order));
+        codec.write(order, encoded);
+        encoded.flip();
+    }
+
+    @Benchmark
+    public ByteBuffer encode() {
+        writeBuffer.clear();
+        codec.write(order, writeBuffer);
+        return writeBuffer;
+    }
+
+    @Benchmark
+    public int sizeAndEncode() {
+        ByteBuffer buffer = ByteBuffer.allocate(codec.sizeOf(order));
+        codec.write(order, buffer);
+        return buffer.position();
+    }
+
+    @Benchmark
+    public Order decode() {
+        return codec.readOrder(encoded.duplicate());
+    }
+}
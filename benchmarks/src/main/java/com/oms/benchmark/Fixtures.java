@@ -0,0 +1,86 @@
+package com.oms.benchmark;
+
+import com.oms.event.OrderEventBus;
+import com.oms.metrics.OrderMetrics;
+import com.oms.model.Customer;
+import com.oms.model.CustomerType;
+import com.oms.model.Item;
+import com.oms.model.Order;
+import com.oms.model.Product;
+import com.oms.repository.CustomerRepository;
+import com.oms.repository.OrderRepository;
+import com.oms.repository.ProductRepository;
+import com.oms.service.InventoryManager;
+import com.oms.service.OrderIdGenerator;
+import com.oms.service.OrderManagementService;
+import com.oms.service.OrderStateMachine;
+import com.oms.service.PricingEngine;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wires a complete service stack with a product catalog and customers sized for benchmarking.
+ */
+final class Fixtures {
+    static final int PRODUCT_COUNT = 100;
+    static final int CUSTOMER_COUNT = 100;
+
+    final OrderRepository orderRepository = new OrderRepository();
+    final CustomerRepository customerRepository = new CustomerRepository();
+    final ProductRepository productRepository = new ProductRepository();
+    final PricingEngine pricingEngine = new PricingEngine();
+    final InventoryManager inventoryManager;
+    final OrderManagementService orderService;
+
+    Fixtures() {
+        this(null, OrderMetrics.disabled());
+    }
+
+    // eventBus may be null for a stack that publishes no events
+    Fixtures(OrderEventBus eventBus, OrderMetrics metrics) {
+        inventoryManager = new InventoryManager(productRepository, null, metrics);
+        orderService = new OrderManagementService(orderRepository, customerRepository, productRepository,
+                pricingEngine, inventoryManager, eventBus, OrderStateMachine.standard().build(), metrics,
+                new OrderIdGenerator(0));
+        CustomerType[] types = CustomerType.values();
+        for (int c = 0; c < CUSTOMER_COUNT; c++) {
+            customerRepository.save(new Customer(customerId(c), types[c % types.length],
+                    new BigDecimal("1000000000000")));
+        }
+        for (int p = 0; p < PRODUCT_COUNT; p++) {
+            productRepository.save(new Product(productId(p), "Product " + p,
+                    new BigDecimal(100 + p * 7 + ".50"), Integer.MAX_VALUE / 2));
+        }
+    }
+
+    static String customerId(int index) {
+        return "C" + index;
+    }
+
+    static String productId(int index) {
+        return "P" + index;
+    }
+
+    static List<Item> items(int count, int seed) {
+        List<Item> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            items.add(new Item(productId((seed + i) % PRODUCT_COUNT), 1 + (seed + i) % 5));
+        }
+        return items;
+    }
+
+    static List<Item> pricedItems(int count, int seed) {
+        List<Item> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int p = (seed + i) % PRODUCT_COUNT;
+            items.add(new Item(productId(p), 1 + (seed + i) % 5, new BigDecimal(100 + p * 7 + ".50")));
+        }
+        return items;
+    }
+
+    static Order pricedOrder(String orderId, String customerId, int itemCount, int seed) {
+        return new Order(orderId, customerId, pricedItems(itemCount, seed), "Benchmark Address");
+    }
+}
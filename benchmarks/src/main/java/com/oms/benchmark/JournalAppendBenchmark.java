@@ -0,0 +1,52 @@
+package com.oms.benchmark;
+
+import com.oms.model.Order;
+import com.oms.persistence.PersistentRepositories;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Durable order saves through the journal. Run with -t N to see group commit share one fsync
+ * across N concurrent writers.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class JournalAppendBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Store {
+        @Param({"true", "false"})
+        public boolean fsync;
+
+        Path directory;
+        PersistentRepositories repositories;
+        final AtomicInteger sequence = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("journal-bench");
+            repositories = PersistentRepositories.open(directory, PersistentRepositories.DEFAULT_SEGMENT_BYTES, fsync);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            repositories.close();
+            Storage.deleteRecursively(directory);
+        }
+    }
+
+    @Benchmark
+    public Order saveOrder(Store store) {
+        int n = store.sequence.getAndIncrement();
+        return store.repositories.getOrderRepository().save(
+                Fixtures.pricedOrder("O" + n, Fixtures.customerId(n % Fixtures.CUSTOMER_COUNT), 3, n));
+    }
+}
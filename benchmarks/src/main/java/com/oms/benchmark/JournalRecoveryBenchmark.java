@@ -0,0 +1,77 @@
+package com.oms.benchmark;
+
+import com.oms.model.OrderStatus;
+import com.oms.persistence.PersistentRepositories;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to open a journal holding orderCount orders and rebuild the repositories from it,
+ * either by replaying the whole journal or from a snapshot taken after the writes.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class JournalRecoveryBenchmark {
+
+    @Param({"1000000"})
+    public int orderCount;
+
+    @Param({"false", "true"})
+    public boolean snapshot;
+
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("journal-recovery-bench");
+        int writers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try (PersistentRepositories repositories = PersistentRepositories.open(
+                directory, PersistentRepositories.DEFAULT_SEGMENT_BYTES, false)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                final int writer = w;
+                futures.add(executor.submit(() -> {
+                    for (int n = writer; n < orderCount; n += writers) {
+                        repositories.getOrderRepository().save(Fixtures.pricedOrder("O" + n,
+                                Fixtures.customerId(n % Fixtures.CUSTOMER_COUNT), 3, n));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            if (snapshot) {
+                repositories.snapshot();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Storage.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public int recover() {
+        try (PersistentRepositories repositories = PersistentRepositories.open(
+                directory, PersistentRepositories.DEFAULT_SEGMENT_BYTES, false)) {
+            return repositories.getOrderRepository().countByStatus(OrderStatus.CREATED);
+        }
+    }
+}
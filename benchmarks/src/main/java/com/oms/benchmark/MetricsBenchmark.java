@@ -0,0 +1,35 @@
+package com.oms.benchmark;
+
+import com.oms.metrics.OrderMetrics;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of timing one stage with OrderMetrics: startTimer plus recordStage, enabled and disabled.
+ * Run with -t to see recorders on several threads, and -prof gc to confirm nothing is allocated.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+
+    @Param({"false", "true"})
+    public boolean enabled;
+
+    private OrderMetrics metrics;
+
+    @Setup
+    public void setUp() {
+        metrics = enabled ? new OrderMetrics() : OrderMetrics.disabled();
+    }
+
+    @Benchmark
+    public void timeStage() {
+        long start = metrics.startTimer();
+        metrics.recordStage(OrderMetrics.Stage.VALIDATE_ORDER, start);
+    }
+}
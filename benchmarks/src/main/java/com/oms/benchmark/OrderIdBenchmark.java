@@ -0,0 +1,63 @@
+package com.oms.benchmark;
+
+import com.oms.model.Order;
+import com.oms.repository.OrderRepository;
+import com.oms.service.OrderIdGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Order ids from UUID.randomUUID against OrderIdGenerator: the cost of generating one, and of
+ * OrderRepository.findById with 1M orders stored under ids of that kind, looked up in random
+ * order. Lookups use copies of the stored ids, as requests arriving from outside would.
+ * Run with -t to see generation contend.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class OrderIdBenchmark {
+    private static final int ORDER_COUNT = 1_000_000;
+
+    @Param({"uuid", "ordered"})
+    public String idType;
+
+    private Supplier<String> orderIds;
+    private OrderRepository orderRepository;
+    private String[] lookups;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        orderIds = "uuid".equals(idType) ? () -> UUID.randomUUID().toString() : new OrderIdGenerator(1);
+        orderRepository = new OrderRepository(ORDER_COUNT);
+        lookups = new String[ORDER_COUNT];
+        for (int i = 0; i < ORDER_COUNT; i++) {
+            String orderId = orderIds.get();
+            orderRepository.save(Fixtures.pricedOrder(orderId, "C" + (i % 1000), 1, i));
+            lookups[(int) ((i * 0x9E3779B97L) % ORDER_COUNT)] = orderId;
+        }
+        // Copies allocated in lookup order sit next to each other in memory, so like a freshly
+        // received id they are in cache when looked up; only the repository's side is cold
+        for (int i = 0; i < ORDER_COUNT; i++) {
+            lookups[i] = new String(lookups[i].toCharArray());
+        }
+    }
+
+    @Benchmark
+    public String generate() {
+        return orderIds.get();
+    }
+
+    @Benchmark
+    public Optional<Order> findById() {
+        next = next + 1 == ORDER_COUNT ? 0 : next + 1;
+        return orderRepository.findById(lookups[next]);
+    }
+}
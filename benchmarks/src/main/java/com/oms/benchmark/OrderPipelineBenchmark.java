@@ -0,0 +1,66 @@
+package com.oms.benchmark;
+
+import com.oms.event.OrderEventBus;
+import com.oms.event.OrderEventHistory;
+import com.oms.metrics.OrderMetrics;
+import com.oms.model.Item;
+import com.oms.model.Order;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * createOrder + processOrder end to end. Run with -prof gc to see allocation per processed order.
+ * With events=true every transition is also published to an OrderEventBus feeding an OrderEventHistory.
+ * With metrics=true the stack records into an OrderMetrics.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class OrderPipelineBenchmark {
+
+    @Param({"1", "5", "20"})
+    public int itemCount;
+
+    @Param({"false", "true"})
+    public boolean events;
+
+    @Param({"false", "true"})
+    public boolean metrics;
+
+    private OrderEventBus eventBus;
+    private Fixtures fixtures;
+    private int sequence;
+
+    // Fresh stack per iteration so open reservations and stored orders don't pile up across iterations
+    @Setup(Level.Iteration)
+    public void setUp() {
+        if (events) {
+            eventBus = new OrderEventBus(1 << 16);
+            eventBus.subscribe("history", new OrderEventHistory());
+        }
+        fixtures = new Fixtures(eventBus, metrics ? new OrderMetrics() : OrderMetrics.disabled());
+        sequence = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        if (eventBus != null) {
+            eventBus.close();
+            eventBus = null;
+        }
+    }
+
+    @Benchmark
+    public Order createAndProcess() {
+        int seed = sequence++;
+        List<Item> items = Fixtures.items(itemCount, seed);
+        Order order = fixtures.orderService.createOrder(
+                Fixtures.customerId(seed % Fixtures.CUSTOMER_COUNT), items, "Benchmark Address");
+        return fixtures.orderService.processOrder(order.getOrderId());
+    }
+}
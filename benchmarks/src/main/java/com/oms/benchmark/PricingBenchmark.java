@@ -0,0 +1,69 @@
+package com.oms.benchmark;
+
+import com.oms.model.Customer;
+import com.oms.model.CustomerType;
+import com.oms.model.Order;
+import com.oms.service.MinorUnitPricingEngine;
+import com.oms.service.PricingEngine;
+import com.oms.service.PricingResult;
+import com.oms.service.RuleBasedPricingEngine;
+import com.oms.service.pricing.PricingRule;
+import com.oms.service.pricing.ProductPromotionRule;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PricingEngine.calculatePricing at increasing order sizes, for the BigDecimal engine,
+ * the long minor-unit engine and the compiled rule plan, without and with a line rule (a product
+ * promotion). Run with -prof gc to compare allocation per call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PricingBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int itemCount;
+
+    @Param({"bigdecimal", "minor-units", "rule-plan", "rule-plan-promotion"})
+    public String engine;
+
+    private PricingEngine pricingEngine;
+    private Order order;
+    private Customer customer;
+
+    @Setup
+    public void setUp() {
+        switch (engine) {
+            case "minor-units":
+                pricingEngine = new MinorUnitPricingEngine();
+                break;
+            case "rule-plan":
+                pricingEngine = new RuleBasedPricingEngine();
+                break;
+            case "rule-plan-promotion":
+                List<PricingRule> rules = new ArrayList<>();
+                rules.add(new ProductPromotionRule(Collections.singletonMap(Fixtures.productId(0), new BigDecimal("0.10"))));
+                rules.addAll(RuleBasedPricingEngine.defaultRules());
+                pricingEngine = new RuleBasedPricingEngine(rules);
+                break;
+            default:
+                pricingEngine = new PricingEngine();
+        }
+        order = Fixtures.pricedOrder("O1", "C1", itemCount, 0);
+        customer = new Customer("C1", CustomerType.GOLD, new BigDecimal("1000000"));
+    }
+
+    @Benchmark
+    public PricingResult calculatePricing() {
+        return pricingEngine.calculatePricing(order, customer);
+    }
+}
@@ -0,0 +1,44 @@
+package com.oms.benchmark;
+
+import com.oms.model.Order;
+import com.oms.repository.OrderRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OrderRepository.findByCustomerId with the store holding 10k and 1M orders.
+ * Each customer owns ten orders at either size, so lookup cost should not move with store size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class RepositoryBenchmark {
+    private static final int ORDERS_PER_CUSTOMER = 10;
+
+    @Param({"10000", "1000000"})
+    public int orderCount;
+
+    private OrderRepository orderRepository;
+    private int customerCount;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        orderRepository = new OrderRepository();
+        customerCount = orderCount / ORDERS_PER_CUSTOMER;
+        for (int i = 0; i < orderCount; i++) {
+            orderRepository.save(Fixtures.pricedOrder("O" + i, "C" + (i % customerCount), 1, i));
+        }
+    }
+
+    @Benchmark
+    public List<Order> findByCustomerId() {
+        next = (next + 1) % customerCount;
+        return orderRepository.findByCustomerId("C" + next);
+    }
+}
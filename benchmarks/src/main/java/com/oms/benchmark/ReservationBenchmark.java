@@ -0,0 +1,73 @@
+package com.oms.benchmark;
+
+import com.oms.model.Item;
+import com.oms.model.Product;
+import com.oms.repository.ProductRepository;
+import com.oms.service.InventoryManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * reserveStock + releaseStock under contention. Sweep thread counts with -t (BenchmarkMain does 1..N).
+ * With shared=true every thread reserves the same SKU; otherwise each thread has its own.
+ * With ttl=true every reservation is also scheduled on (and cancelled from) the expiry timing wheel.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReservationBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Inventory {
+        @Param({"true", "false"})
+        public boolean shared;
+
+        @Param({"false", "true"})
+        public boolean ttl;
+
+        final ProductRepository productRepository = new ProductRepository();
+        final AtomicInteger threadIds = new AtomicInteger();
+        InventoryManager inventoryManager;
+
+        @Setup
+        public void setUp() {
+            inventoryManager = ttl
+                    ? new InventoryManager(productRepository, Duration.ofMinutes(15))
+                    : new InventoryManager(productRepository);
+            for (int i = 0; i < 256; i++) {
+                productRepository.save(new Product("SKU" + i, "Product " + i, new BigDecimal("10"),
+                        Integer.MAX_VALUE / 2));
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Worker {
+        List<Item> items;
+        String orderPrefix;
+        long sequence;
+
+        @Setup
+        public void setUp(Inventory inventory) {
+            int threadId = inventory.threadIds.getAndIncrement();
+            String productId = inventory.shared ? "SKU0" : "SKU" + (threadId % 256);
+            items = Arrays.asList(new Item(productId, 1));
+            orderPrefix = "T" + threadId + "-";
+        }
+    }
+
+    @Benchmark
+    public void reserveAndRelease(Inventory inventory, Worker worker) {
+        String orderId = worker.orderPrefix + worker.sequence++;
+        inventory.inventoryManager.reserveStock(orderId, worker.items);
+        inventory.inventoryManager.releaseStock(orderId);
+    }
+}
@@ -0,0 +1,61 @@
+package com.oms.benchmark;
+
+import com.oms.model.Item;
+import com.oms.model.Order;
+import com.oms.service.ShardedOrderService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of createOrder + processOrder through a ShardedOrderService at 1, 2, 4 and 8 shards.
+ * Each invocation submits a burst of orders spread over every customer and waits for all of them,
+ * so the shards work in parallel. Scaling needs at least as many cores as shards.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class ShardedPipelineBenchmark {
+    private static final int BURST = 256;
+
+    @Param({"1", "2", "4", "8"})
+    public int shards;
+
+    private Fixtures fixtures;
+    private ShardedOrderService shardedService;
+    private int sequence;
+
+    // Fresh stack per iteration so open reservations and stored orders don't pile up across iterations
+    @Setup(Level.Iteration)
+    public void setUp() {
+        fixtures = new Fixtures();
+        shardedService = new ShardedOrderService(shards, fixtures.customerRepository,
+                fixtures.productRepository, fixtures.pricingEngine, fixtures.inventoryManager);
+        sequence = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        shardedService.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void createAndProcess() {
+        @SuppressWarnings("unchecked")
+        CompletableFuture<Order>[] processed = new CompletableFuture[BURST];
+        for (int i = 0; i < BURST; i++) {
+            int seed = sequence++;
+            List<Item> items = Fixtures.items(5, seed);
+            processed[i] = shardedService.createOrder(Fixtures.customerId(seed % Fixtures.CUSTOMER_COUNT), items,
+                            "Benchmark Address")
+                    .thenCompose(order -> shardedService.processOrder(order.getOrderId()));
+        }
+        CompletableFuture.allOf(processed).join();
+    }
+}
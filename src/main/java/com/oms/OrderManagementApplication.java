@@ -1,6 +1,7 @@
 package com.oms;
 
 import com.oms.exception.OrderValidationException;
+import com.oms.metrics.OrderMetrics;
 import com.oms.model.*;
 import com.oms.repository.CustomerRepository;
 import com.oms.repository.OrderRepository;
@@ -9,6 +10,7 @@ import com.oms.service.*;
 import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class OrderManagementApplication {
 
@@ -23,9 +25,11 @@ public class OrderManagementApplication {
         // Initialize services
         PricingEngine pricingEngine = new PricingEngine();
         InventoryManager inventoryManager = new InventoryManager(productRepository);
+        // Every running instance needs its own node number, e.g. -Doms.node=3
         OrderManagementService orderService = new OrderManagementService(
                 orderRepository, customerRepository, productRepository,
-                pricingEngine, inventoryManager);
+                pricingEngine, inventoryManager, null, OrderStateMachine.standard().build(),
+                OrderMetrics.disabled(), new OrderIdGenerator(Integer.getInteger("oms.node", 0)));
 
         // Setup sample data
         setupSampleData(customerRepository, productRepository);
@@ -153,13 +157,16 @@ public class OrderManagementApplication {
     private static void concurrentOrders(OrderManagementService orderService) {
         System.out.println("Product P004 (Monitor) has 5 units in stock");
         System.out.println("Customer A wants 3 units, Customer B wants 3 units\n");
+        // Both customers have credit to spare, so only stock decides who wins
+        AtomicInteger succeeded = new AtomicInteger();
 
         Thread customerA = new Thread(() -> {
             try {
                 List<Item> items = Arrays.asList(new Item("P004", 3));
-                Order order = orderService.createOrder("C003", items, "Customer A Address");
+                Order order = orderService.createOrder("C002", items, "Customer A Address");
                 Thread.sleep(50);
                 orderService.processOrder(order.getOrderId());
+                succeeded.incrementAndGet();
                 System.out.println("concurrentOrders Customer A: Order " + order.getOrderId() + " succeeded");
             } catch (Exception e) {
                 System.out.println("concurrentOrders Customer A: " + e.getMessage());
@@ -172,6 +179,7 @@ public class OrderManagementApplication {
                 Order order = orderService.createOrder("C004", items, "Customer B Address");
                 Thread.sleep(50);
                 orderService.processOrder(order.getOrderId());
+                succeeded.incrementAndGet();
                 System.out.println("concurrentOrders Customer B: Order " + order.getOrderId() + " succeeded");
             } catch (Exception e) {
                 System.out.println("concurrentOrders Customer B: " + e.getMessage());
@@ -188,6 +196,7 @@ public class OrderManagementApplication {
             e.printStackTrace();
         }
 
-        System.out.println("Result: Only one order succeeded due to stock reservation");
+        System.out.println("Result: " + succeeded.get() + " of 2 orders succeeded; stock reservation let only "
+                + "as many through as P004 had units for");
     }
 }
\ No newline at end of file
@@ -0,0 +1,504 @@
+package com.oms.codec;
+
+import com.oms.exception.CodecException;
+import com.oms.model.*;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Versioned binary encoding of Order (with its items), Customer and Product.
+ *
+ * Every entity starts with a format version byte. Version 2 appended the order's version as a
+ * varint, and version 3 the catalog version it was priced against. Older records still read, with
+ * the missing versions 0. Within it:
+ * - strings are a varint of (UTF-8 length + 1), 0 meaning null, followed by the bytes
+ * - BigDecimals are a scale byte followed by the unscaled value as a zigzag varint
+ *   (scale -128 means null), so 1234.50 takes four bytes
+ * - item productIds are varint ids from the {@link ProductIdDictionary}
+ * - Instants are epoch microseconds in a fixed 8 bytes; sub-microsecond precision is dropped
+ * - enums are ordinal + 1, 0 meaning null
+ *
+ * Callers size the buffer with the matching sizeOf method, then write straight into it; writing
+ * into a buffer that is too small fails with a CodecException. Reads consume exactly one entity
+ * from the buffer's position.
+ */
+public final class ModelCodec {
+    public static final byte FORMAT_VERSION = 3;
+
+    private static final byte NULL_SCALE = Byte.MIN_VALUE;
+    private static final long NULL_INSTANT = Long.MIN_VALUE;
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+    private static final CustomerType[] CUSTOMER_TYPES = CustomerType.values();
+
+    private final ProductIdDictionary dictionary;
+
+    public ModelCodec(ProductIdDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    public ProductIdDictionary getDictionary() {
+        return dictionary;
+    }
+
+    public int sizeOf(Order order) {
+        int itemCount = order.getItemCount();
+        int size = 1
+                + sizeOf(order.getOrderId())
+                + sizeOf(order.getCustomerId())
+                + 1
+                + Long.BYTES * 2
+                + sizeOf(order.getTotalAmount())
+                + sizeOf(order.getVatAmount())
+                + sizeOf(order.getShippingAddress())
+                + varintSize(itemCount)
+                + varlongSize(order.getVersion())
+                + varlongSize(order.getCatalogVersion());
+        // Indexed reads, so encoding doesn't copy the order's item list
+        for (int i = 0; i < itemCount; i++) {
+            size += sizeOf(order.getItem(i));
+        }
+        return size;
+    }
+
+    public void write(Order order, ByteBuffer out) {
+        try {
+            writeOrder(order, out);
+        } catch (BufferOverflowException e) {
+            throw new CodecException("Buffer too small for order " + order.getOrderId(), e);
+        }
+    }
+
+    private void writeOrder(Order order, ByteBuffer out) {
+        int itemCount = order.getItemCount();
+        out.put(FORMAT_VERSION);
+        writeString(out, order.getOrderId());
+        writeString(out, order.getCustomerId());
+        out.put(order.getStatus() == null ? 0 : (byte) (order.getStatus().ordinal() + 1));
+        writeInstant(out, order.getCreatedOn());
+        writeInstant(out, order.getUpdatedOn());
+        writeDecimal(out, order.getTotalAmount());
+        writeDecimal(out, order.getVatAmount());
+        writeString(out, order.getShippingAddress());
+        writeVarint(out, itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            write(order.getItem(i), out);
+        }
+        writeVarlong(out, order.getVersion());
+        writeVarlong(out, order.getCatalogVersion());
+    }
+
+    public Order readOrder(ByteBuffer in) {
+        try {
+            byte version = checkVersion(in, "order");
+            Order order = new Order();
+            order.setOrderId(readString(in));
+            order.setCustomerId(readString(in));
+            order.setStatus(readEnum(in, STATUSES));
+            order.setCreatedOn(readInstant(in));
+            order.setUpdatedOn(readInstant(in));
+            order.setTotalAmount(readDecimal(in));
+            order.setVatAmount(readDecimal(in));
+            order.setShippingAddress(readString(in));
+            int itemCount = readVarint(in);
+            List<Item> items = new ArrayList<>(itemCount);
+            for (int i = 0; i < itemCount; i++) {
+                items.add(readItem(in));
+            }
+            order.setItems(items);
+            if (version >= 2) {
+                order.setVersion(readVarlong(in));
+            }
+            if (version >= 3) {
+                order.setCatalogVersion(readVarlong(in));
+            }
+            return order;
+        } catch (BufferUnderflowException e) {
+            throw new CodecException("Truncated order", e);
+        }
+    }
+
+    public int sizeOf(Customer customer) {
+        return 1
+                + sizeOf(customer.getCustomerId())
+                + 1
+                + sizeOf(customer.getCreditLimit())
+                + sizeOf(customer.getUsedCredit());
+    }
+
+    public void write(Customer customer, ByteBuffer out) {
+        try {
+            out.put(FORMAT_VERSION);
+            writeString(out, customer.getCustomerId());
+            out.put(customer.getType() == null ? 0 : (byte) (customer.getType().ordinal() + 1));
+            writeDecimal(out, customer.getCreditLimit());
+            writeDecimal(out, customer.getUsedCredit());
+        } catch (BufferOverflowException e) {
+            throw new CodecException("Buffer too small for customer " + customer.getCustomerId(), e);
+        }
+    }
+
+    public Customer readCustomer(ByteBuffer in) {
+        try {
+            checkVersion(in, "customer");
+            Customer customer = new Customer();
+            customer.setCustomerId(readString(in));
+            customer.setType(readEnum(in, CUSTOMER_TYPES));
+            customer.setCreditLimit(readDecimal(in));
+            customer.setUsedCredit(readDecimal(in));
+            return customer;
+        } catch (BufferUnderflowException e) {
+            throw new CodecException("Truncated customer", e);
+        }
+    }
+
+    public int sizeOf(Product product) {
+        return 1
+                + sizeOf(product.getId())
+                + sizeOf(product.getName())
+                + sizeOf(product.getPrice())
+                + nullableIntSize(product.getStockQuantity())
+                + 1;
+    }
+
+    public void write(Product product, ByteBuffer out) {
+        try {
+            out.put(FORMAT_VERSION);
+            writeString(out, product.getId());
+            writeString(out, product.getName());
+            writeDecimal(out, product.getPrice());
+            writeNullableInt(out, product.getStockQuantity());
+            out.put(product.isActive() ? (byte) 1 : 0);
+        } catch (BufferOverflowException e) {
+            throw new CodecException("Buffer too small for product " + product.getId(), e);
+        }
+    }
+
+    public Product readProduct(ByteBuffer in) {
+        try {
+            checkVersion(in, "product");
+            Product product = new Product();
+            product.setId(readString(in));
+            product.setName(readString(in));
+            product.setPrice(readDecimal(in));
+            product.setStockQuantity(readNullableInt(in));
+            product.setActive(in.get() != 0);
+            return product;
+        } catch (BufferUnderflowException e) {
+            throw new CodecException("Truncated product", e);
+        }
+    }
+
+    public int sizeOfDictionaryEntry(int id, String productId) {
+        return 1 + varintSize(id) + sizeOf(productId);
+    }
+
+    /**
+     * Writes a dictionary entry, e.g. from a {@link ProductIdDictionary.Listener}, so that a
+     * reader's dictionary can learn it with readDictionaryEntry.
+     */
+    public void writeDictionaryEntry(int id, String productId, ByteBuffer out) {
+        try {
+            out.put(FORMAT_VERSION);
+            writeVarint(out, id);
+            writeString(out, productId);
+        } catch (BufferOverflowException e) {
+            throw new CodecException("Buffer too small for product dictionary entry " + id, e);
+        }
+    }
+
+    /**
+     * Reads an entry written by writeDictionaryEntry and defines it in this codec's dictionary.
+     */
+    public void readDictionaryEntry(ByteBuffer in) {
+        try {
+            checkVersion(in, "product dictionary entry");
+            int id = readVarint(in);
+            dictionary.define(id, readString(in));
+        } catch (BufferUnderflowException e) {
+            throw new CodecException("Truncated product dictionary entry", e);
+        }
+    }
+
+    public int sizeOfStockLevel(String productId, int quantity) {
+        return 1 + sizeOf(productId) + varlongSize(zigzag(quantity));
+    }
+
+    /**
+     * Writes a product's absolute stock level, read back with readStockLevel.
+     */
+    public void writeStockLevel(String productId, int quantity, ByteBuffer out) {
+        try {
+            out.put(FORMAT_VERSION);
+            writeString(out, productId);
+            writeVarlong(out, zigzag(quantity));
+        } catch (BufferOverflowException e) {
+            throw new CodecException("Buffer too small for stock level of " + productId, e);
+        }
+    }
+
+    /**
+     * Reads a stock level written by writeStockLevel and passes it to target.
+     */
+    public void readStockLevel(ByteBuffer in, ObjIntConsumer<String> target) {
+        try {
+            checkVersion(in, "stock level");
+            String productId = readString(in);
+            target.accept(productId, (int) unzigzag(readVarlong(in)));
+        } catch (BufferUnderflowException e) {
+            throw new CodecException("Truncated stock level", e);
+        }
+    }
+
+    private int sizeOf(Item item) {
+        return varintSize(productIdToken(item.getProductId()))
+                + nullableIntSize(item.getQuantity())
+                + sizeOf(item.getUnitPrice())
+                + sizeOf(item.getLinePrice());
+    }
+
+    private void write(Item item, ByteBuffer out) {
+        writeVarint(out, productIdToken(item.getProductId()));
+        writeNullableInt(out, item.getQuantity());
+        writeDecimal(out, item.getUnitPrice());
+        writeDecimal(out, item.getLinePrice());
+    }
+
+    private Item readItem(ByteBuffer in) {
+        Item item = new Item();
+        int token = readVarint(in);
+        item.setProductId(token == 0 ? null : dictionary.lookup(token - 1));
+        item.setQuantity(readNullableInt(in));
+        item.setUnitPrice(readDecimal(in));
+        item.setLinePrice(readDecimal(in));
+        return item;
+    }
+
+    // Dictionary id + 1, 0 meaning null
+    private int productIdToken(String productId) {
+        return productId == null ? 0 : dictionary.intern(productId) + 1;
+    }
+
+    // Returns the entity's format version, which may be older than FORMAT_VERSION
+    private static byte checkVersion(ByteBuffer in, String entity) {
+        byte version = in.get();
+        if (version < 1 || version > FORMAT_VERSION) {
+            throw new CodecException("Unsupported " + entity + " format version " + version);
+        }
+        return version;
+    }
+
+    private static <E extends Enum<E>> E readEnum(ByteBuffer in, E[] values) {
+        int token = in.get() & 0xFF;
+        if (token > values.length) {
+            throw new CodecException("Unknown " + values[0].getDeclaringClass().getSimpleName() + " " + (token - 1));
+        }
+        return token == 0 ? null : values[token - 1];
+    }
+
+    private static int sizeOf(String value) {
+        if (value == null) {
+            return 1;
+        }
+        int length = utf8Length(value);
+        return varintSize(length + 1) + length;
+    }
+
+    private static void writeString(ByteBuffer out, String value) {
+        if (value == null) {
+            out.put((byte) 0);
+            return;
+        }
+        writeVarint(out, utf8Length(value) + 1);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                out.put((byte) c);
+            } else if (c < 0x800) {
+                out.put((byte) (0xC0 | (c >> 6)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                out.put((byte) (0xF0 | (codePoint >> 18)));
+                out.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                out.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogate: same replacement String.getBytes(UTF_8) uses
+                out.put((byte) '?');
+            } else {
+                out.put((byte) (0xE0 | (c >> 12)));
+                out.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    private static String readString(ByteBuffer in) {
+        int token = readVarint(in);
+        if (token == 0) {
+            return null;
+        }
+        int length = token - 1;
+        if (length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String value;
+        if (in.hasArray()) {
+            value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            in.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length += 1;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static int sizeOf(BigDecimal value) {
+        return value == null ? 1 : 1 + varlongSize(zigzag(unscaledLong(value)));
+    }
+
+    private static void writeDecimal(ByteBuffer out, BigDecimal value) {
+        if (value == null) {
+            out.put(NULL_SCALE);
+            return;
+        }
+        out.put((byte) value.scale());
+        writeVarlong(out, zigzag(unscaledLong(value)));
+    }
+
+    private static BigDecimal readDecimal(ByteBuffer in) {
+        byte scale = in.get();
+        if (scale == NULL_SCALE) {
+            return null;
+        }
+        return BigDecimal.valueOf(unzigzag(readVarlong(in)), scale);
+    }
+
+    private static long unscaledLong(BigDecimal value) {
+        // unscaledValue() builds a new BigInteger on every call, so take it once
+        BigInteger unscaled = value.unscaledValue();
+        if (value.scale() <= NULL_SCALE || value.scale() > Byte.MAX_VALUE || unscaled.bitLength() > 63) {
+            throw new CodecException("Amount out of encodable range: " + value);
+        }
+        return unscaled.longValue();
+    }
+
+    private static void writeInstant(ByteBuffer out, Instant value) {
+        if (value == null) {
+            out.putLong(NULL_INSTANT);
+            return;
+        }
+        try {
+            out.putLong(Math.addExact(Math.multiplyExact(value.getEpochSecond(), 1_000_000L), value.getNano() / 1_000));
+        } catch (ArithmeticException e) {
+            throw new CodecException("Instant out of encodable range: " + value, e);
+        }
+    }
+
+    private static Instant readInstant(ByteBuffer in) {
+        long micros = in.getLong();
+        if (micros == NULL_INSTANT) {
+            return null;
+        }
+        return Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000L), Math.floorMod(micros, 1_000_000L) * 1_000);
+    }
+
+    // Zigzag(value) + 1, 0 meaning null
+    private static int nullableIntSize(Integer value) {
+        return value == null ? 1 : varlongSize(zigzag(value) + 1);
+    }
+
+    private static void writeNullableInt(ByteBuffer out, Integer value) {
+        writeVarlong(out, value == null ? 0 : zigzag(value) + 1);
+    }
+
+    private static Integer readNullableInt(ByteBuffer in) {
+        long token = readVarlong(in);
+        return token == 0 ? null : (int) unzigzag(token - 1);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int varintSize(int value) {
+        return varlongSize(value & 0xFFFFFFFFL);
+    }
+
+    private static void writeVarint(ByteBuffer out, int value) {
+        writeVarlong(out, value & 0xFFFFFFFFL);
+    }
+
+    private static int readVarint(ByteBuffer in) {
+        long value = readVarlong(in);
+        if (value > Integer.MAX_VALUE) {
+            throw new CodecException("Varint out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    private static int varlongSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static void writeVarlong(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static long readVarlong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new CodecException("Malformed varint");
+    }
+}
@@ -0,0 +1,114 @@
+package com.oms.codec;
+
+import com.oms.exception.CodecException;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps productIds to small dense ints (0, 1, 2, ...) so encoded items carry a one or two byte
+ * id instead of the string.
+ *
+ * Ids are only meaningful to a reader holding the same dictionary. A writer that assigns a new
+ * id is told through the listener, under the dictionary lock, so it can publish the entry (e.g.
+ * to a journal) before any record using that id can be written.
+ */
+public final class ProductIdDictionary {
+
+    public interface Listener {
+        void onNewEntry(int id, String productId);
+    }
+
+    private static final Listener NONE = (id, productId) -> { };
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final Listener listener;
+    // Replaced on growth; entries below size are never changed once set
+    private volatile String[] productIds = new String[64];
+    private int size;
+
+    public ProductIdDictionary() {
+        this(NONE);
+    }
+
+    public ProductIdDictionary(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the id for productId, assigning the next free one on first use.
+     */
+    public int intern(String productId) {
+        Integer id = ids.get(productId);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(productId);
+            if (id != null) {
+                return id;
+            }
+            int assigned = size;
+            listener.onNewEntry(assigned, productId);
+            store(assigned, productId);
+            return assigned;
+        }
+    }
+
+    /**
+     * Records an entry assigned elsewhere, e.g. while replaying a journal. Defining the same entry
+     * twice is a no-op; redefining an id to a different productId is an error.
+     */
+    public synchronized void define(int id, String productId) {
+        String existing = id < size ? productIds[id] : null;
+        if (existing != null) {
+            if (!existing.equals(productId)) {
+                throw new CodecException("Product id " + id + " is already defined as " + existing
+                        + ", not " + productId);
+            }
+            return;
+        }
+        if (ids.containsKey(productId)) {
+            throw new CodecException("Product " + productId + " is already defined as id " + ids.get(productId));
+        }
+        store(id, productId);
+    }
+
+    public String lookup(int id) {
+        String[] current = productIds;
+        String productId = id >= 0 && id < current.length ? current[id] : null;
+        if (productId == null) {
+            // The entry may have been stored after we read the array; check under the lock
+            synchronized (this) {
+                productId = id >= 0 && id < size ? productIds[id] : null;
+            }
+            if (productId == null) {
+                throw new CodecException("Unknown product dictionary id " + id);
+            }
+        }
+        return productId;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Copy of the entries in id order; a gap (from out-of-order define calls) is null.
+     */
+    public synchronized String[] entries() {
+        return Arrays.copyOf(productIds, size);
+    }
+
+    private void store(int id, String productId) {
+        String[] current = productIds;
+        if (id >= current.length) {
+            current = Arrays.copyOf(current, Math.max(id + 1, current.length * 2));
+        }
+        current[id] = productId;
+        productIds = current;
+        size = Math.max(size, id + 1);
+        ids.put(productId, id);
+    }
+}
@@ -0,0 +1,60 @@
+package com.oms.event;
+
+import com.oms.model.OrderStatus;
+
+import java.time.Instant;
+
+/**
+ * One status transition of an order. previousStatus is null for the CREATED event.
+ *
+ * version is the order version the transition saved. Transitions of one order that commit close
+ * together can reach the bus in the opposite order, so a consumer that needs an order's sequence
+ * orders its events by version, as OrderEventHistory does.
+ */
+public final class OrderEvent {
+    private final String orderId;
+    private final String customerId;
+    private final OrderStatus previousStatus;
+    private final OrderStatus status;
+    private final long version;
+    private final Instant occurredOn;
+
+    public OrderEvent(String orderId, String customerId, OrderStatus previousStatus, OrderStatus status,
+                      long version, Instant occurredOn) {
+        this.orderId = orderId;
+        this.customerId = customerId;
+        this.previousStatus = previousStatus;
+        this.status = status;
+        this.version = version;
+        this.occurredOn = occurredOn;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public String getCustomerId() {
+        return customerId;
+    }
+
+    public OrderStatus getPreviousStatus() {
+        return previousStatus;
+    }
+
+    public OrderStatus getStatus() {
+        return status;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Instant getOccurredOn() {
+        return occurredOn;
+    }
+
+    @Override
+    public String toString() {
+        return "OrderEvent{" + orderId + " v" + version + " " + previousStatus + " -> " + status + " at " + occurredOn + "}";
+    }
+}
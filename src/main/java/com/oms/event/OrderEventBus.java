@@ -0,0 +1,201 @@
+package com.oms.event;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded, lock-free ring buffer of OrderEvents with any number of publishers and subscribers.
+ *
+ * A publisher claims the next sequence with one atomic increment, waits only if the ring is full
+ * (the slowest subscriber is a whole ring behind), stores the event in its slot and marks the
+ * slot published. Each subscriber runs on its own thread and tracks its own sequence. It takes
+ * every contiguous published event as one batch, hands the batch to its handler, then advances,
+ * which frees those slots for publishers.
+ *
+ * A subscriber sees the events published after it subscribed; subscribe before publishing starts
+ * to see all of them. A slow subscriber eventually holds publishers back; it never loses events.
+ */
+public class OrderEventBus implements AutoCloseable {
+    private static final int MAX_BATCH = 1024;
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<OrderEvent> slots;
+    // published.get(i) == sequence once the event with that sequence is stored in slot i
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private volatile Subscriber[] subscribers = new Subscriber[0];
+    private volatile boolean closed;
+
+    /**
+     * @param capacity ring size, rounded up to a power of two
+     */
+    public OrderEventBus(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.capacity = size;
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<>(this.capacity);
+        this.published = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    public void publish(OrderEvent event) {
+        if (closed) {
+            throw new IllegalStateException("Event bus is closed");
+        }
+
+        long sequence = claimed.incrementAndGet();
+        // The slot is free once every subscriber has consumed the event a full ring earlier
+        long wrapPoint = sequence - capacity;
+        int spins = 0;
+        while (wrapPoint > minConsumed()) {
+            spins = backOff(spins);
+        }
+
+        int index = (int) (sequence & mask);
+        slots.lazySet(index, event);
+        published.set(index, sequence);
+    }
+
+    /**
+     * Starts a thread named name that hands every event published from now on to handler.
+     */
+    public synchronized void subscribe(String name, OrderEventHandler handler) {
+        if (closed) {
+            throw new IllegalStateException("Event bus is closed");
+        }
+
+        // Publishers can't lap a subscriber that starts at the claim cursor
+        Subscriber subscriber = new Subscriber(handler, claimed.get());
+        Subscriber[] current = subscribers;
+        Subscriber[] next = new Subscriber[current.length + 1];
+        System.arraycopy(current, 0, next, 0, current.length);
+        next[current.length] = subscriber;
+        subscribers = next;
+
+        Thread thread = new Thread(subscriber, "order-events-" + name);
+        thread.setDaemon(true);
+        subscriber.thread = thread;
+        thread.start();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Stops accepting events, lets every subscriber drain what was already published, and waits
+     * for their threads to finish.
+     */
+    @Override
+    public void close() {
+        Subscriber[] current;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            current = subscribers;
+        }
+        for (Subscriber subscriber : current) {
+            subscriber.running = false;
+            LockSupport.unpark(subscriber.thread);
+        }
+        try {
+            for (Subscriber subscriber : current) {
+                subscriber.thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // A publish racing with close() must not wait forever on subscribers that have stopped
+            subscribers = new Subscriber[0];
+        }
+    }
+
+    private long minConsumed() {
+        long min = Long.MAX_VALUE;
+        for (Subscriber subscriber : subscribers) {
+            min = Math.min(min, subscriber.consumed.get());
+        }
+        return min;
+    }
+
+    // Spin briefly, then yield, then park; returns the updated spin count
+    private static int backOff(int spins) {
+        if (spins < 100) {
+            Thread.onSpinWait();
+        } else if (spins < 200) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(50_000);
+        }
+        return spins + 1;
+    }
+
+    private final class Subscriber implements Runnable {
+        private final OrderEventHandler handler;
+        // Last sequence handed to the handler
+        private final AtomicLong consumed;
+        private final List<OrderEvent> batch = new ArrayList<>();
+        private final List<OrderEvent> batchView = Collections.unmodifiableList(batch);
+        private volatile boolean running = true;
+        private Thread thread;
+
+        private Subscriber(OrderEventHandler handler, long consumed) {
+            this.handler = handler;
+            this.consumed = new AtomicLong(consumed);
+        }
+
+        @Override
+        public void run() {
+            int spins = 0;
+            while (true) {
+                // Read the flag first so a final drain after close() sees everything published before it
+                boolean stopping = !running;
+                if (drain()) {
+                    spins = 0;
+                } else if (stopping) {
+                    return;
+                } else {
+                    spins = backOff(spins);
+                }
+            }
+        }
+
+        private boolean drain() {
+            long next = consumed.get() + 1;
+            while (batch.size() < MAX_BATCH && published.get((int) (next & mask)) == next) {
+                batch.add(slots.get((int) (next & mask)));
+                next++;
+            }
+            if (batch.isEmpty()) {
+                return false;
+            }
+
+            try {
+                handler.onEvents(batchView);
+            } catch (RuntimeException e) {
+                // One bad batch must not stall publishers behind this subscriber
+                System.err.println("Order event handler failed: " + e);
+            } finally {
+                batch.clear();
+                consumed.set(next - 1);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.oms.event;
+
+import java.util.List;
+
+/**
+ * Receives events from an OrderEventBus on the subscriber's own thread.
+ */
+public interface OrderEventHandler {
+
+    /**
+     * Called with every event published since the previous call, oldest first. The list is only
+     * valid during the call; copy what you need to keep.
+     */
+    void onEvents(List<OrderEvent> batch);
+}
@@ -0,0 +1,61 @@
+package com.oms.event;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Subscriber that keeps every event per order, so an order's lifecycle can be read back or
+ * replayed into another consumer. History is only as current as the last batch the bus delivered.
+ *
+ * Each order's events are kept in version order, whatever order they arrived in, and an event
+ * whose version is already recorded is dropped.
+ */
+public class OrderEventHistory implements OrderEventHandler {
+    private final Map<String, List<OrderEvent>> eventsByOrder = new ConcurrentHashMap<>();
+
+    @Override
+    public void onEvents(List<OrderEvent> batch) {
+        for (OrderEvent event : batch) {
+            List<OrderEvent> events = eventsByOrder.computeIfAbsent(event.getOrderId(),
+                    id -> new CopyOnWriteArrayList<>());
+            // One history may subscribe to several buses
+            synchronized (events) {
+                insert(events, event);
+            }
+        }
+    }
+
+    // Events nearly always arrive in order, so the search from the end stops at once
+    private static void insert(List<OrderEvent> events, OrderEvent event) {
+        int index = events.size();
+        while (index > 0 && events.get(index - 1).getVersion() > event.getVersion()) {
+            index--;
+        }
+        if (index > 0 && events.get(index - 1).getVersion() == event.getVersion()) {
+            return;
+        }
+        events.add(index, event);
+    }
+
+    // Lowest version first; empty if the order has no recorded events
+    public List<OrderEvent> getHistory(String orderId) {
+        List<OrderEvent> events = eventsByOrder.get(orderId);
+        return events == null ? Collections.emptyList() : new ArrayList<>(events);
+    }
+
+    /**
+     * Feeds the order's events to consumer, lowest version first.
+     */
+    public void replay(String orderId, Consumer<OrderEvent> consumer) {
+        getHistory(orderId).forEach(consumer);
+    }
+
+    public int getOrderCount() {
+        return eventsByOrder.size();
+    }
+}
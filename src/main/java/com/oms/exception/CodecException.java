@@ -0,0 +1,11 @@
+package com.oms.exception;
+
+public class CodecException extends RuntimeException {
+    public CodecException(String message) {
+        super(message);
+    }
+
+    public CodecException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
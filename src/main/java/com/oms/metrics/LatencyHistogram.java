@@ -0,0 +1,93 @@
+package com.oms.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency histogram in the style of HdrHistogram: log-linear buckets with a bounded relative
+ * error, recorded without locks or allocation.
+ *
+ * Values up to 63 get a bucket each. Above that every power of two is split into 32 buckets, so a
+ * recorded value is reported to within about 3%. Values beyond MAX_VALUE (about 68 seconds in
+ * nanoseconds) are recorded as MAX_VALUE.
+ *
+ * Recording threads are spread over stripes by thread, each stripe its own array, so concurrent
+ * recorders rarely touch the same cache lines. snapshot() adds the stripes up; it may miss values
+ * recorded while it runs but never sees half a value.
+ */
+public final class LatencyHistogram {
+    public static final long MAX_VALUE = (1L << 36) - 1;
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int BUCKET_COUNT = bucketIndex(MAX_VALUE) + 1;
+    // Per stripe, after the buckets: total and max; the count is the sum of the buckets
+    private static final int TOTAL = BUCKET_COUNT;
+    private static final int MAX = BUCKET_COUNT + 1;
+
+    private final AtomicLongArray[] stripes;
+    private final int stripeMask;
+
+    public LatencyHistogram() {
+        int stripeCount = 1;
+        while (stripeCount < Math.min(Runtime.getRuntime().availableProcessors(), 16)) {
+            stripeCount <<= 1;
+        }
+        this.stripes = new AtomicLongArray[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new AtomicLongArray(BUCKET_COUNT + 2);
+        }
+        this.stripeMask = stripeCount - 1;
+    }
+
+    public void record(long value) {
+        long clamped = value < 0 ? 0 : Math.min(value, MAX_VALUE);
+        AtomicLongArray stripe = stripes[stripeIndex()];
+        stripe.getAndIncrement(bucketIndex(clamped));
+        stripe.getAndAdd(TOTAL, clamped);
+        long max = stripe.get(MAX);
+        while (clamped > max && !stripe.compareAndSet(MAX, max, clamped)) {
+            max = stripe.get(MAX);
+        }
+    }
+
+    public HistogramSnapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        long count = 0;
+        long total = 0;
+        long max = 0;
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                long bucketCount = stripe.get(i);
+                counts[i] += bucketCount;
+                count += bucketCount;
+            }
+            total += stripe.get(TOTAL);
+            max = Math.max(max, stripe.get(MAX));
+        }
+        return new HistogramSnapshot(counts, count, total, max);
+    }
+
+    private int stripeIndex() {
+        int hash = System.identityHashCode(Thread.currentThread());
+        return (hash ^ (hash >>> 16)) & stripeMask;
+    }
+
+    static int bucketIndex(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        // value >>> shift falls in [SUB_BUCKETS, 2 * SUB_BUCKETS)
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    // Highest value that lands in bucket index
+    static long highestValueIn(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
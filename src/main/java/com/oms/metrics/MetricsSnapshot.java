@@ -0,0 +1,55 @@
+package com.oms.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Everything OrderMetrics held at one point in time. Empty for disabled metrics.
+ */
+public final class MetricsSnapshot {
+    private final Map<OrderMetrics.Stage, HistogramSnapshot> stageLatencies;
+    private final Map<OrderMetrics.ValidationFailure, Long> validationFailures;
+    private final long contendedLocks;
+    private final HistogramSnapshot lockWaits;
+    private final Map<String, Long> gauges;
+
+    MetricsSnapshot(Map<OrderMetrics.Stage, HistogramSnapshot> stageLatencies,
+                    Map<OrderMetrics.ValidationFailure, Long> validationFailures,
+                    long contendedLocks,
+                    HistogramSnapshot lockWaits,
+                    Map<String, Long> gauges) {
+        this.stageLatencies = Collections.unmodifiableMap(stageLatencies);
+        this.validationFailures = Collections.unmodifiableMap(validationFailures);
+        this.contendedLocks = contendedLocks;
+        this.lockWaits = lockWaits;
+        this.gauges = Collections.unmodifiableMap(gauges);
+    }
+
+    // Null for disabled metrics
+    public HistogramSnapshot getStageLatency(OrderMetrics.Stage stage) {
+        return stageLatencies.get(stage);
+    }
+
+    public long getValidationFailures(OrderMetrics.ValidationFailure reason) {
+        return validationFailures.getOrDefault(reason, 0L);
+    }
+
+    // How many product lock acquisitions had to wait
+    public long getContendedLocks() {
+        return contendedLocks;
+    }
+
+    // Wait time in nanoseconds of the contended acquisitions; null for disabled metrics
+    public HistogramSnapshot getLockWaits() {
+        return lockWaits;
+    }
+
+    // Null for a gauge that isn't registered
+    public Long getGauge(String name) {
+        return gauges.get(name);
+    }
+
+    public Map<String, Long> getGauges() {
+        return gauges;
+    }
+}
@@ -0,0 +1,144 @@
+package com.oms.metrics;
+
+import com.oms.tracing.OrderTracer;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Built-in metrics for the order pipeline: a latency histogram per Stage, validation failures
+ * counted by reason, how often and how long reservations waited for a product lock, and gauges
+ * such as repository sizes. Share one instance between OrderManagementService and
+ * InventoryManager, and read it with snapshot().
+ *
+ * Recording takes no locks and allocates nothing. disabled() is a no-op instance that doesn't
+ * even read the clock, so unmetered services pay one predictable branch per stage.
+ *
+ * An OrderMetrics can also carry an OrderTracer, which the same services feed with per-order spans.
+ */
+public final class OrderMetrics {
+    private static final Stage[] STAGES = Stage.values();
+    private static final ValidationFailure[] FAILURES = ValidationFailure.values();
+    // After STAGES and FAILURES, which the constructor reads
+    private static final OrderMetrics DISABLED = new OrderMetrics(false, OrderTracer.disabled());
+
+    public enum Stage {
+        CREATE_ORDER,
+        VALIDATE_ORDER,
+        PROCESS_ORDER,
+        RESERVE_STOCK,
+        CALCULATE_PRICING
+    }
+
+    public enum ValidationFailure {
+        PRODUCT_UNAVAILABLE,
+        INVALID_QUANTITY,
+        INSUFFICIENT_STOCK,
+        CUSTOMER_NOT_FOUND,
+        CREDIT_LIMIT_EXCEEDED,
+        BELOW_MINIMUM_VALUE
+    }
+
+    private final boolean enabled;
+    private final LatencyHistogram[] stageLatencies;
+    private final LongAdder[] validationFailures;
+    private final LongAdder contendedLocks = new LongAdder();
+    private final LatencyHistogram lockWaits;
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private final OrderTracer tracer;
+
+    public OrderMetrics() {
+        this(true, OrderTracer.disabled());
+    }
+
+    // Also records per-order spans in tracer
+    public OrderMetrics(OrderTracer tracer) {
+        this(true, tracer);
+    }
+
+    private OrderMetrics(boolean enabled, OrderTracer tracer) {
+        this.enabled = enabled;
+        this.tracer = tracer;
+        this.stageLatencies = new LatencyHistogram[enabled ? STAGES.length : 0];
+        for (int i = 0; i < stageLatencies.length; i++) {
+            stageLatencies[i] = new LatencyHistogram();
+        }
+        this.validationFailures = new LongAdder[FAILURES.length];
+        for (int i = 0; i < validationFailures.length; i++) {
+            validationFailures[i] = new LongAdder();
+        }
+        this.lockWaits = enabled ? new LatencyHistogram() : null;
+    }
+
+    // Records nothing
+    public static OrderMetrics disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public OrderTracer getTracer() {
+        return tracer;
+    }
+
+    /**
+     * Start time to pass to recordStage or recordLockWait once the timed work finishes; 0 when
+     * disabled.
+     */
+    public long startTimer() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    public void recordStage(Stage stage, long startNanos) {
+        if (enabled) {
+            stageLatencies[stage.ordinal()].record(System.nanoTime() - startNanos);
+        }
+    }
+
+    public void recordValidationFailure(ValidationFailure reason) {
+        if (enabled) {
+            validationFailures[reason.ordinal()].increment();
+        }
+    }
+
+    // A product lock was held by someone else; startNanos is when the wait for it began
+    public void recordLockWait(long startNanos) {
+        if (enabled) {
+            contendedLocks.increment();
+            lockWaits.record(System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Adds a value read at snapshot time, e.g. a repository size. A gauge registered again under
+     * the same name replaces the earlier one.
+     */
+    public void registerGauge(String name, LongSupplier gauge) {
+        if (enabled) {
+            gauges.put(name, gauge);
+        }
+    }
+
+    public MetricsSnapshot snapshot() {
+        Map<Stage, HistogramSnapshot> stages = new EnumMap<>(Stage.class);
+        Map<ValidationFailure, Long> failures = new EnumMap<>(ValidationFailure.class);
+        Map<String, Long> gaugeValues = new LinkedHashMap<>();
+        if (enabled) {
+            for (Stage stage : STAGES) {
+                stages.put(stage, stageLatencies[stage.ordinal()].snapshot());
+            }
+            for (ValidationFailure reason : FAILURES) {
+                failures.put(reason, validationFailures[reason.ordinal()].sum());
+            }
+            gauges.forEach((name, gauge) -> gaugeValues.put(name, gauge.getAsLong()));
+        }
+        return new MetricsSnapshot(stages, failures, contendedLocks.sum(),
+                enabled ? lockWaits.snapshot() : null, gaugeValues);
+    }
+}
@@ -0,0 +1,38 @@
+package com.oms.model;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * Immutable catalog entry for a product: what it is and what it costs, without its stock.
+ * version is the catalog version in which this entry was last changed.
+ */
+public final class CatalogProduct {
+    private final String id;
+    private final String name;
+    private final BigDecimal price;
+    private final boolean active;
+    private final long version;
+
+    public CatalogProduct(Product product, long version) {
+        this.id = product.getId();
+        this.name = product.getName();
+        this.price = product.getPrice();
+        this.active = product.isActive();
+        this.version = version;
+    }
+
+    public String getId() { return id; }
+    public String getName() { return name; }
+    public BigDecimal getPrice() { return price; }
+    public boolean isActive() { return active; }
+    public long getVersion() { return version; }
+
+    // True if product has the same catalog fields, so saving it needs no new entry
+    public boolean matches(Product product) {
+        return id.equals(product.getId())
+                && Objects.equals(name, product.getName())
+                && Objects.equals(price, product.getPrice())
+                && active == product.isActive();
+    }
+}
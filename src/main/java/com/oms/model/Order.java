@@ -15,6 +15,13 @@ public class Order {
     private BigDecimal totalAmount;
     private BigDecimal vatAmount;
     private String shippingAddress;
+    // Bumped by the repository on every save; 0 until first saved
+    private long version;
+    // The product catalog version the items were priced from; 0 if unknown
+    private long catalogVersion;
+    // Cached view, dropped by every change; itemsView keeps a view whose item arrays are still valid
+    private volatile OrderView snapshot;
+    private OrderView itemsView;
 
     public Order() {
         this.items = new ArrayList<>();
@@ -31,26 +38,83 @@ public class Order {
         this.shippingAddress = shippingAddress;
     }
 
+    /**
+     * Copy for updating without touching the stored order. The copy shares other's items, which
+     * is safe as long as items are replaced with setItems rather than changed in place.
+     */
+    public Order(Order other) {
+        this.orderId = other.orderId;
+        this.customerId = other.customerId;
+        // Never modified in place: setItems replaces the list and getItems hands out copies
+        this.items = other.items;
+        this.status = other.status;
+        this.createdOn = other.createdOn;
+        this.updatedOn = other.updatedOn;
+        this.totalAmount = other.totalAmount;
+        this.vatAmount = other.vatAmount;
+        this.shippingAddress = other.shippingAddress;
+        this.version = other.version;
+        this.catalogVersion = other.catalogVersion;
+        // Same items, so the flattened items can be shared too
+        OrderView otherSnapshot = other.snapshot;
+        this.itemsView = otherSnapshot != null ? otherSnapshot : other.itemsView;
+    }
+
     public String getOrderId() { return orderId; }
     public String getCustomerId() { return customerId; }
     public List<Item> getItems() { return new ArrayList<>(items); }
+    // Indexed access for readers that must not copy the list; don't change the item in place
+    public int getItemCount() { return items.size(); }
+    public Item getItem(int index) { return items.get(index); }
     public OrderStatus getStatus() { return status; }
     public Instant getCreatedOn() { return createdOn; }
     public Instant getUpdatedOn() { return updatedOn; }
     public BigDecimal getTotalAmount() { return totalAmount; }
     public BigDecimal getVatAmount() { return vatAmount; }
     public String getShippingAddress() { return shippingAddress; }
+    public long getVersion() { return version; }
+    public long getCatalogVersion() { return catalogVersion; }
 
-    public void setOrderId(String orderId) { this.orderId = orderId; }
-    public void setCustomerId(String customerId) { this.customerId = customerId; }
-    public void setItems(List<Item> items) { this.items = new ArrayList<>(items); }
+    public void setOrderId(String orderId) { this.orderId = orderId; changed(); }
+    public void setCustomerId(String customerId) { this.customerId = customerId; changed(); }
+    public void setItems(List<Item> items) {
+        this.items = new ArrayList<>(items);
+        this.snapshot = null;
+        this.itemsView = null;
+    }
     public void setStatus(OrderStatus status) {
         this.status = status;
         this.updatedOn = Instant.now();
+        changed();
+    }
+    public void setCreatedOn(Instant createdOn) { this.createdOn = createdOn; changed(); }
+    public void setUpdatedOn(Instant updatedOn) { this.updatedOn = updatedOn; changed(); }
+    public void setTotalAmount(BigDecimal totalAmount) { this.totalAmount = totalAmount; changed(); }
+    public void setVatAmount(BigDecimal vatAmount) { this.vatAmount = vatAmount; changed(); }
+    public void setShippingAddress(String shippingAddress) { this.shippingAddress = shippingAddress; changed(); }
+    public void setVersion(long version) { this.version = version; changed(); }
+    public void setCatalogVersion(long catalogVersion) { this.catalogVersion = catalogVersion; }
+
+    /**
+     * Immutable view of the order as it is now, for readers on the hot path. It is cached until
+     * the next change through a setter. Items changed in place, through the list getItems
+     * returns, are not noticed; replace them with setItems instead.
+     */
+    public OrderView snapshot() {
+        OrderView view = snapshot;
+        if (view == null) {
+            view = new OrderView(this, items, itemsView);
+            snapshot = view;
+        }
+        return view;
+    }
+
+    // The header changed; the items didn't
+    private void changed() {
+        OrderView view = snapshot;
+        if (view != null) {
+            itemsView = view;
+            snapshot = null;
+        }
     }
-    public void setCreatedOn(Instant createdOn) { this.createdOn = createdOn; }
-    public void setUpdatedOn(Instant updatedOn) { this.updatedOn = updatedOn; }
-    public void setTotalAmount(BigDecimal totalAmount) { this.totalAmount = totalAmount; }
-    public void setVatAmount(BigDecimal vatAmount) { this.vatAmount = vatAmount; }
-    public void setShippingAddress(String shippingAddress) { this.shippingAddress = shippingAddress; }
 }
\ No newline at end of file
@@ -0,0 +1,129 @@
+package com.oms.model;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * 128-bit, time-ordered order id, laid out like a ULID:
+ *
+ *   [48 bits unix millis][16 bits node][24 bits thread slot][40 bits sequence]
+ *
+ * Ids compare by creation time first, so a sorted set of ids is also a creation-time index.
+ * The string form is 26 characters of Crockford base32 that sort the same way as the ids.
+ * Every id has exactly one string form and parse accepts only that, so ids and their strings
+ * can be used interchangeably as keys.
+ */
+public final class OrderId implements Comparable<OrderId> {
+    public static final int NODE_BITS = 16;
+    public static final int THREAD_SLOT_BITS = 24;
+    public static final int SEQUENCE_BITS = 40;
+    public static final long MAX_TIMESTAMP = (1L << 48) - 1;
+    public static final int MAX_NODE = (1 << NODE_BITS) - 1;
+    public static final int LENGTH = 26;
+
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final byte[] DIGITS = new byte[128];
+
+    static {
+        Arrays.fill(DIGITS, (byte) -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            DIGITS[ALPHABET[i]] = (byte) i;
+        }
+    }
+
+    private final long high;
+    private final long low;
+
+    private OrderId(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    public static OrderId of(long timestampMillis, int node, int threadSlot, long sequence) {
+        if (timestampMillis < 0 || timestampMillis > MAX_TIMESTAMP) {
+            throw new IllegalArgumentException("Timestamp out of range: " + timestampMillis);
+        }
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException("Node out of range: " + node);
+        }
+        long threadBits = threadSlot & ((1L << THREAD_SLOT_BITS) - 1);
+        long sequenceBits = sequence & ((1L << SEQUENCE_BITS) - 1);
+        return new OrderId(timestampMillis << NODE_BITS | node, threadBits << SEQUENCE_BITS | sequenceBits);
+    }
+
+    /**
+     * The id whose string form is text, or null if text isn't one: not 26 characters, not
+     * upper-case Crockford base32, or larger than 128 bits.
+     */
+    public static OrderId parse(CharSequence text) {
+        if (text == null || text.length() != LENGTH || text.charAt(0) > '7') {
+            return null;
+        }
+        long high = 0;
+        long low = 0;
+        for (int i = 0; i < LENGTH; i++) {
+            char c = text.charAt(i);
+            int digit = c < DIGITS.length ? DIGITS[c] : -1;
+            if (digit < 0) {
+                return null;
+            }
+            high = high << 5 | low >>> 59;
+            low = low << 5 | digit;
+        }
+        return new OrderId(high, low);
+    }
+
+    public long getTimestampMillis() {
+        return high >>> NODE_BITS;
+    }
+
+    public Instant getTimestamp() {
+        return Instant.ofEpochMilli(getTimestampMillis());
+    }
+
+    public int getNode() {
+        return (int) (high & MAX_NODE);
+    }
+
+    public int getThreadSlot() {
+        return (int) (low >>> SEQUENCE_BITS);
+    }
+
+    public long getSequence() {
+        return low & ((1L << SEQUENCE_BITS) - 1);
+    }
+
+    @Override
+    public int compareTo(OrderId other) {
+        int byHigh = Long.compareUnsigned(high, other.high);
+        return byHigh != 0 ? byHigh : Long.compareUnsigned(low, other.low);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof OrderId)) return false;
+        OrderId other = (OrderId) o;
+        return high == other.high && low == other.low;
+    }
+
+    @Override
+    public int hashCode() {
+        // Sequence and thread bits vary fastest, so they land in the low bits maps index by
+        long hash = low * 0x9E3779B97F4A7C15L ^ high;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        char[] chars = new char[LENGTH];
+        long h = high;
+        long l = low;
+        for (int i = LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (l & 31)];
+            l = l >>> 5 | h << 59;
+            h >>>= 5;
+        }
+        return new String(chars);
+    }
+}
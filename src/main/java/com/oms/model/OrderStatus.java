@@ -6,5 +6,7 @@ public enum OrderStatus {
     VALIDATED,
     PAID,
     FULFILLED,
-    CANCELLED
+    CANCELLED,
+    // Added after CANCELLED: ModelCodec stores statuses by ordinal
+    PARTIALLY_FULFILLED
 }
\ No newline at end of file
@@ -0,0 +1,95 @@
+package com.oms.model;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Immutable, read-optimized snapshot of an Order, taken with Order.snapshot().
+ *
+ * Items are flattened into parallel arrays: productIds, int quantities, unit prices and line
+ * prices, with line prices and their total computed once. Readers index into the arrays and can
+ * share one view across threads without copying anything. A view never changes; it does not see
+ * later changes to its order.
+ */
+public final class OrderView {
+    private final String orderId;
+    private final String customerId;
+    private final OrderStatus status;
+    private final Instant createdOn;
+    private final Instant updatedOn;
+    private final BigDecimal totalAmount;
+    private final BigDecimal vatAmount;
+    private final String shippingAddress;
+    private final long version;
+
+    // Shared, never written after construction; views of the same items reuse them
+    private final String[] productIds;
+    private final int[] quantities;
+    private final BigDecimal[] unitPrices;
+    private final BigDecimal[] linePrices;
+    private final BigDecimal itemsTotal;
+
+    // itemsFrom, if not null, is a view of the same items whose arrays can be reused
+    OrderView(Order order, List<Item> items, OrderView itemsFrom) {
+        this.orderId = order.getOrderId();
+        this.customerId = order.getCustomerId();
+        this.status = order.getStatus();
+        this.createdOn = order.getCreatedOn();
+        this.updatedOn = order.getUpdatedOn();
+        this.totalAmount = order.getTotalAmount();
+        this.vatAmount = order.getVatAmount();
+        this.shippingAddress = order.getShippingAddress();
+        this.version = order.getVersion();
+
+        if (itemsFrom != null) {
+            this.productIds = itemsFrom.productIds;
+            this.quantities = itemsFrom.quantities;
+            this.unitPrices = itemsFrom.unitPrices;
+            this.linePrices = itemsFrom.linePrices;
+            this.itemsTotal = itemsFrom.itemsTotal;
+            return;
+        }
+
+        int count = items.size();
+        this.productIds = new String[count];
+        this.quantities = new int[count];
+        this.unitPrices = new BigDecimal[count];
+        this.linePrices = new BigDecimal[count];
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < count; i++) {
+            Item item = items.get(i);
+            productIds[i] = item.getProductId();
+            quantities[i] = item.getQuantity() == null ? 0 : item.getQuantity();
+            unitPrices[i] = item.getUnitPrice();
+            BigDecimal linePrice = item.getLinePrice();
+            if (linePrice == null && unitPrices[i] != null) {
+                linePrice = unitPrices[i].multiply(BigDecimal.valueOf(quantities[i]));
+            }
+            linePrices[i] = linePrice;
+            total = total == null || linePrice == null ? null : total.add(linePrice);
+        }
+        this.itemsTotal = total;
+    }
+
+    public String getOrderId() { return orderId; }
+    public String getCustomerId() { return customerId; }
+    public OrderStatus getStatus() { return status; }
+    public Instant getCreatedOn() { return createdOn; }
+    public Instant getUpdatedOn() { return updatedOn; }
+    public BigDecimal getTotalAmount() { return totalAmount; }
+    public BigDecimal getVatAmount() { return vatAmount; }
+    public String getShippingAddress() { return shippingAddress; }
+    public long getVersion() { return version; }
+
+    public int getItemCount() { return productIds.length; }
+    public String getProductId(int index) { return productIds[index]; }
+    // 0 for an item without a quantity
+    public int getQuantity(int index) { return quantities[index]; }
+    public BigDecimal getUnitPrice(int index) { return unitPrices[index]; }
+    // The item's line price, or unit price times quantity if it has none; null if neither is known
+    public BigDecimal getLinePrice(int index) { return linePrices[index]; }
+
+    // Sum of all line prices; null if any is unknown
+    public BigDecimal getItemsTotal() { return itemsTotal; }
+}
@@ -0,0 +1,466 @@
+package com.oms.persistence;
+
+import com.oms.exception.PersistenceException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of records stored in numbered segment files (journal-0000000001.log, ...).
+ *
+ * Record layout: [int payload length][int CRC32 of type + payload][byte type][payload].
+ *
+ * Appends use group commit. Callers queue their record and wait. A single writer thread
+ * drains everything queued, writes it with one gathering write, forces the file once,
+ * then releases every waiting caller. So many concurrent appends share one fsync.
+ *
+ * On open, segments are scanned. A torn or corrupt record at the tail of the last segment
+ * (a crash mid-write) is truncated away.
+ *
+ * A write or force that fails leaves the journal failed. The file is cut back to the end of the
+ * last acknowledged record, and every pending and later append fails, so nothing is acknowledged
+ * after a record that may be torn. Reopen the journal to append again.
+ */
+public class Journal implements AutoCloseable {
+    static final int HEADER_BYTES = 9;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int MAX_BATCH = 4096;
+
+    // Queued by close() to stop the writer; never written
+    private static final PendingAppend CLOSE = new PendingAppend(ByteBuffer.allocate(0), false);
+
+    private final Path directory;
+    private final long maxSegmentBytes;
+    private final boolean fsync;
+    private final BlockingQueue<PendingAppend> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+
+    private final SegmentOpener segmentOpener;
+
+    private volatile boolean closed;
+    // Set by the writer after a failed write or force; appends fail from then on
+    private volatile PersistenceException failure;
+    // Owned by the writer thread after open
+    private FileChannel channel;
+    private long segmentId;
+    // Length of the current segment up to the last acknowledged record
+    private long segmentBytes;
+
+    private Journal(Path directory, long maxSegmentBytes, boolean fsync, SegmentOpener segmentOpener)
+            throws IOException {
+        this.directory = directory;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.fsync = fsync;
+        this.segmentOpener = segmentOpener;
+
+        Files.createDirectories(directory);
+        List<Long> segments = listSegments(directory);
+        if (segments.isEmpty()) {
+            openSegment(1);
+        } else {
+            long last = segments.get(segments.size() - 1);
+            truncateTornTail(segmentPath(directory, last));
+            openSegment(last);
+        }
+
+        this.writer = new Thread(this::writeLoop, "journal-writer-" + directory.getFileName());
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Opens (or creates) the journal in the given directory.
+     *
+     * @param maxSegmentBytes a new segment file is started once the current one reaches this size
+     * @param fsync           force every group commit to disk; turn off only for tests and benchmarks
+     */
+    public static Journal open(Path directory, long maxSegmentBytes, boolean fsync) {
+        return open(directory, maxSegmentBytes, fsync, segment -> FileChannel.open(segment,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+    }
+
+    // Tests pass an opener whose channels fail on demand
+    static Journal open(Path directory, long maxSegmentBytes, boolean fsync, SegmentOpener segmentOpener) {
+        try {
+            return new Journal(directory, maxSegmentBytes, fsync, segmentOpener);
+        } catch (IOException e) {
+            throw new PersistenceException("Failed to open journal in " + directory, e);
+        }
+    }
+
+    /**
+     * Appends a record and returns once it is written (and forced, when fsync is on).
+     */
+    public void append(byte type, byte[] payload) {
+        append(type, payload.length, buffer -> buffer.put(payload));
+    }
+
+    /**
+     * Appends a record whose payload the writer puts straight into the record buffer, so no
+     * separate payload array is built. The writer must put exactly payloadLength bytes.
+     */
+    public void append(byte type, int payloadLength, Consumer<ByteBuffer> payloadWriter) {
+        await(appendAsync(type, payloadLength, payloadWriter));
+    }
+
+    /**
+     * Queues a record and returns without waiting for it. The future completes once the record
+     * is written (and forced, when fsync is on). Records are written in the order they were
+     * queued, so a caller can queue under its own lock and wait after releasing it. If the
+     * record can't be written the future fails with a PersistenceException.
+     */
+    public CompletableFuture<Void> appendAsync(byte type, int payloadLength, Consumer<ByteBuffer> payloadWriter) {
+        PendingAppend pending = enqueue(new PendingAppend(encode(type, payloadLength, payloadWriter), false));
+        CompletableFuture<Void> written = new CompletableFuture<>();
+        pending.done.whenComplete((segment, failure) -> {
+            if (failure == null) {
+                written.complete(null);
+            } else {
+                written.completeExceptionally(failure instanceof PersistenceException
+                        ? failure : new PersistenceException("Failed to append to journal", failure));
+            }
+        });
+        return written;
+    }
+
+    /**
+     * Waits for an appendAsync, or a future derived from one, and returns its value. Throws
+     * the PersistenceException if the record was not written.
+     */
+    public static <T> T await(CompletableFuture<T> append) {
+        try {
+            return append.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new PersistenceException("Failed to append to journal", e.getCause());
+        }
+    }
+
+    /**
+     * Reads every record, oldest segment first. Must be called before appending.
+     */
+    public void replay(Consumer<JournalRecord> consumer) {
+        replayFrom(0, consumer);
+    }
+
+    /**
+     * Reads every record in segments numbered fromSegment or later, oldest first.
+     */
+    public void replayFrom(long fromSegment, Consumer<JournalRecord> consumer) {
+        try {
+            for (long id : listSegments(directory)) {
+                if (id >= fromSegment) {
+                    readSegment(segmentPath(directory, id), consumer);
+                }
+            }
+        } catch (IOException e) {
+            throw new PersistenceException("Failed to replay journal in " + directory, e);
+        }
+    }
+
+    /**
+     * Closes the current segment and starts a new one. Returns the new segment's id: every record
+     * appended after this call returns lives in that segment or a later one.
+     */
+    public long rollSegment() {
+        PendingAppend roll = enqueue(new PendingAppend(null, true));
+        try {
+            return roll.done.join();
+        } catch (CompletionException e) {
+            throw new PersistenceException("Failed to roll journal segment", e.getCause());
+        }
+    }
+
+    /**
+     * Deletes every segment numbered below the given id, e.g. once a snapshot covers them.
+     */
+    public void deleteSegmentsBefore(long segmentId) {
+        try {
+            for (long id : listSegments(directory)) {
+                if (id < segmentId) {
+                    Files.deleteIfExists(segmentPath(directory, id));
+                }
+            }
+        } catch (IOException e) {
+            throw new PersistenceException("Failed to delete journal segments in " + directory, e);
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        queue.add(CLOSE);
+        try {
+            writer.join();
+            channel.close();
+        } catch (IOException e) {
+            throw new PersistenceException("Failed to close journal", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Appends that raced with close() never reach the writer
+        PendingAppend late;
+        while ((late = queue.poll()) != null) {
+            late.done.completeExceptionally(new PersistenceException("Journal is closed"));
+        }
+    }
+
+    private PendingAppend enqueue(PendingAppend pending) {
+        if (closed) {
+            throw new PersistenceException("Journal is closed");
+        }
+        PersistenceException failed = failure;
+        if (failed != null) {
+            throw failed;
+        }
+        queue.add(pending);
+        // close() may have taken the last look at the queue between the check and the add; then
+        // nobody else will complete it. Whoever removes it from the queue fails it.
+        if (closed && queue.remove(pending)) {
+            pending.done.completeExceptionally(new PersistenceException("Journal is closed"));
+        }
+        return pending;
+    }
+
+    private void writeLoop() {
+        List<PendingAppend> batch = new ArrayList<>();
+        boolean closing = false;
+        while (!closing) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                // Only close() stops the writer
+                continue;
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+
+            closing = batch.remove(CLOSE);
+            if (closing) {
+                // Everything queued before close() still gets written
+                queue.drainTo(batch);
+                batch.remove(CLOSE);
+            }
+            if (!batch.isEmpty()) {
+                commit(batch);
+            }
+            batch.clear();
+        }
+    }
+
+    private void commit(List<PendingAppend> batch) {
+        int start = 0;
+        for (int i = 0; i <= batch.size(); i++) {
+            if (i == batch.size() || batch.get(i).roll) {
+                // Write everything queued before the roll as one group
+                writeGroup(batch.subList(start, i));
+                if (i < batch.size()) {
+                    roll(batch.get(i));
+                }
+                start = i + 1;
+            }
+        }
+    }
+
+    private void writeGroup(List<PendingAppend> group) {
+        if (group.isEmpty()) {
+            return;
+        }
+        if (failure != null) {
+            failAll(group);
+            return;
+        }
+        try {
+            ByteBuffer[] buffers = new ByteBuffer[group.size()];
+            long bytes = 0;
+            for (int i = 0; i < buffers.length; i++) {
+                buffers[i] = group.get(i).record;
+                bytes += buffers[i].remaining();
+            }
+
+            long written = 0;
+            while (written < bytes) {
+                written += channel.write(buffers);
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+            segmentBytes += bytes;
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+            failAll(group);
+            return;
+        }
+
+        // The group is durable whatever happens to the next segment
+        for (PendingAppend pending : group) {
+            pending.done.complete(segmentId);
+        }
+        if (segmentBytes >= maxSegmentBytes) {
+            try {
+                channel.close();
+                openSegment(segmentId + 1);
+            } catch (IOException | RuntimeException e) {
+                fail(e);
+            }
+        }
+    }
+
+    private void roll(PendingAppend roll) {
+        if (failure != null) {
+            roll.done.completeExceptionally(failure);
+            return;
+        }
+        try {
+            channel.force(true);
+            channel.close();
+            openSegment(segmentId + 1);
+            roll.done.complete(segmentId);
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+            roll.done.completeExceptionally(failure);
+        }
+    }
+
+    // Part of the failed group may have reached the file. Cut it off, so a restart doesn't keep
+    // records that were reported as failed, and stop appending to a channel in an unknown state.
+    private void fail(Exception cause) {
+        PersistenceException failed = new PersistenceException(
+                "Journal write failed in segment " + segmentId + "; reopen the journal to append again", cause);
+        try {
+            channel.truncate(segmentBytes);
+        } catch (IOException | RuntimeException e) {
+            failed.addSuppressed(e);
+        }
+        failure = failed;
+    }
+
+    private void failAll(List<PendingAppend> group) {
+        for (PendingAppend pending : group) {
+            pending.done.completeExceptionally(failure);
+        }
+    }
+
+    private void openSegment(long id) throws IOException {
+        FileChannel opened = segmentOpener.open(segmentPath(directory, id));
+        channel = opened;
+        segmentId = id;
+        segmentBytes = opened.size();
+    }
+
+    static ByteBuffer encode(byte type, byte[] payload) {
+        return encode(type, payload.length, buffer -> buffer.put(payload));
+    }
+
+    static ByteBuffer encode(byte type, int payloadLength, Consumer<ByteBuffer> payloadWriter) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + payloadLength);
+        buffer.position(HEADER_BYTES);
+        payloadWriter.accept(buffer);
+        if (buffer.position() != buffer.capacity()) {
+            throw new PersistenceException("Record payload is " + (buffer.position() - HEADER_BYTES)
+                    + " bytes, expected " + payloadLength);
+        }
+        buffer.putInt(0, payloadLength);
+        buffer.putInt(4, checksum(type, buffer.array(), HEADER_BYTES, payloadLength));
+        buffer.put(8, type);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static int checksum(byte type, byte[] payload, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload, offset, length);
+        return (int) crc.getValue();
+    }
+
+    // Returns the length of the valid prefix of the segment
+    private static long readSegment(Path segment, Consumer<JournalRecord> consumer) throws IOException {
+        byte[] bytes = Files.readAllBytes(segment);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.remaining() >= HEADER_BYTES) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int crc = buffer.getInt();
+            byte type = buffer.get();
+            if (length < 0 || length > buffer.remaining()) {
+                return start;
+            }
+            if (checksum(type, bytes, buffer.position(), length) != crc) {
+                return start;
+            }
+            consumer.accept(new JournalRecord(type, ByteBuffer.wrap(bytes, buffer.position(), length).slice()));
+            buffer.position(buffer.position() + length);
+        }
+        return buffer.position();
+    }
+
+    private static void truncateTornTail(Path segment) throws IOException {
+        long valid = readSegment(segment, record -> { });
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            if (channel.size() > valid) {
+                channel.truncate(valid);
+                channel.force(true);
+            }
+        }
+    }
+
+    static List<Long> listSegments(Path directory) throws IOException {
+        List<Long> ids = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+                SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                ids.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                        name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    static Path segmentPath(Path directory, long id) {
+        return directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+    }
+
+    interface SegmentOpener {
+        FileChannel open(Path segment) throws IOException;
+    }
+
+    private static final class PendingAppend {
+        private final ByteBuffer record;
+        // Asks the writer to start a new segment instead of writing a record
+        private final boolean roll;
+        // Completes with the segment the record went to, or the new segment after a roll
+        private final CompletableFuture<Long> done = new CompletableFuture<>();
+
+        private PendingAppend(ByteBuffer record, boolean roll) {
+            this.record = record;
+            this.roll = roll;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.oms.persistence;
+
+import java.nio.ByteBuffer;
+
+public class JournalRecord {
+    private final byte type;
+    private final ByteBuffer payload;
+
+    public JournalRecord(byte type, ByteBuffer payload) {
+        this.type = type;
+        this.payload = payload;
+    }
+
+    public byte getType() {
+        return type;
+    }
+
+    // Read-only view positioned at the start of the payload
+    public ByteBuffer getPayload() {
+        return payload.asReadOnlyBuffer();
+    }
+
+    // Writable view for decoding in this package, so strings can be read from the backing array
+    ByteBuffer payloadForDecoding() {
+        return payload.duplicate();
+    }
+}
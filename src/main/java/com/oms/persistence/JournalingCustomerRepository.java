@@ -0,0 +1,42 @@
+package com.oms.persistence;
+
+import com.oms.model.Customer;
+import com.oms.repository.CustomerRepository;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * CustomerRepository that writes every save to the journal before applying it.
+ */
+public class JournalingCustomerRepository extends CustomerRepository {
+    private final RecordCodec codec;
+    private final Lock saveLock;
+
+    public JournalingCustomerRepository(Journal journal) {
+        this(new RecordCodec(journal), new ReentrantReadWriteLock());
+    }
+
+    // Saves hold the shared side of checkpointLock so a snapshot can wait for in-flight saves
+    JournalingCustomerRepository(RecordCodec codec, ReadWriteLock checkpointLock) {
+        this.codec = codec;
+        this.saveLock = checkpointLock.readLock();
+    }
+
+    @Override
+    public Customer save(Customer customer) {
+        saveLock.lock();
+        try {
+            codec.appendCustomer(customer);
+            return super.save(customer);
+        } finally {
+            saveLock.unlock();
+        }
+    }
+
+    // Applies a recovered customer without journaling it again
+    void restore(Customer customer) {
+        super.save(customer);
+    }
+}
@@ -0,0 +1,91 @@
+package com.oms.persistence;
+
+import com.oms.model.Order;
+import com.oms.repository.OrderRepository;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * OrderRepository that journals every save before applying it.
+ *
+ * A save works out the version it is about to store, journals the order at that version, and only
+ * then applies it, so no reader ever sees an order the journal doesn't have. A save whose journal
+ * write fails throws and stores nothing. Saves of one order hold that order's stripe lock from the
+ * version check to the apply, so they reach the journal in version order; saves of orders on
+ * other stripes still share group commits.
+ */
+public class JournalingOrderRepository extends OrderRepository {
+    private static final int STRIPES = 256;
+
+    private final RecordCodec codec;
+    private final Lock saveLock;
+    private final Object[] stripes = new Object[STRIPES];
+
+    public JournalingOrderRepository(Journal journal) {
+        this(new RecordCodec(journal), new ReentrantReadWriteLock(), 16);
+    }
+
+    // Saves hold the shared side of checkpointLock so a snapshot can wait for in-flight saves
+    JournalingOrderRepository(RecordCodec codec, ReadWriteLock checkpointLock, int expectedOrders) {
+        super(expectedOrders);
+        this.codec = codec;
+        this.saveLock = checkpointLock.readLock();
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    @Override
+    public Order save(Order order) {
+        saveLock.lock();
+        try {
+            synchronized (stripeFor(order.getOrderId())) {
+                Order previous = findById(order.getOrderId()).orElse(null);
+                journal(order, previous == null ? order.getVersion() + 1 : previous.getVersion() + 1);
+                return super.save(order);
+            }
+        } finally {
+            saveLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean saveIfVersion(Order order, long expectedVersion) {
+        saveLock.lock();
+        try {
+            synchronized (stripeFor(order.getOrderId())) {
+                long currentVersion = findById(order.getOrderId()).map(Order::getVersion).orElse(0L);
+                if (currentVersion != expectedVersion) {
+                    return false;
+                }
+                journal(order, expectedVersion + 1);
+                return super.saveIfVersion(order, expectedVersion);
+            }
+        } finally {
+            saveLock.unlock();
+        }
+    }
+
+    // Applies a recovered order without journaling it again
+    @Override
+    protected boolean restore(Order order) {
+        return super.restore(order);
+    }
+
+    // Journals order as it will be stored at version; the save itself then sets the version
+    private void journal(Order order, long version) {
+        long unsavedVersion = order.getVersion();
+        order.setVersion(version);
+        try {
+            codec.appendOrder(order);
+        } finally {
+            order.setVersion(unsavedVersion);
+        }
+    }
+
+    private Object stripeFor(String orderId) {
+        return stripes[orderId.hashCode() & (STRIPES - 1)];
+    }
+}
@@ -0,0 +1,101 @@
+package com.oms.persistence;
+
+import com.oms.model.Product;
+import com.oms.repository.ProductRepository;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * ProductRepository that journals every save and every stock change.
+ *
+ * Changes are applied first and journaled before returning. A PRODUCT record carries the stock
+ * level at the time of the save, and a STOCK record the absolute level after a stock change.
+ * Each change is applied and its record queued under the product's monitor, so changes to one
+ * product reach the journal in the order they were applied and replay ends on the latest level.
+ * The wait for the write happens after the monitor is released.
+ */
+public class JournalingProductRepository extends ProductRepository {
+    private final RecordCodec codec;
+    private final Lock saveLock;
+    // Orders the apply-then-queue steps of each product
+    private final Map<String, Object> productMonitors = new ConcurrentHashMap<>();
+
+    public JournalingProductRepository(Journal journal) {
+        this(new RecordCodec(journal), new ReentrantReadWriteLock());
+    }
+
+    // Saves hold the shared side of checkpointLock so a snapshot can wait for in-flight saves
+    JournalingProductRepository(RecordCodec codec, ReadWriteLock checkpointLock) {
+        this.codec = codec;
+        this.saveLock = checkpointLock.readLock();
+    }
+
+    @Override
+    public Product save(Product product) {
+        saveLock.lock();
+        try {
+            CompletableFuture<Void> written;
+            synchronized (monitorFor(product.getId())) {
+                super.save(product);
+                written = codec.appendProductAsync(withCurrentStock(product));
+            }
+            Journal.await(written);
+            return product;
+        } finally {
+            saveLock.unlock();
+        }
+    }
+
+    @Override
+    public void setStock(String productId, int quantity) {
+        saveLock.lock();
+        try {
+            CompletableFuture<Void> written;
+            synchronized (monitorFor(productId)) {
+                super.setStock(productId, quantity);
+                written = codec.appendStockLevelAsync(productId, quantity);
+            }
+            Journal.await(written);
+        } finally {
+            saveLock.unlock();
+        }
+    }
+
+    @Override
+    public int adjustStock(String productId, int delta) {
+        return Journal.await(adjustStockAsync(productId, delta));
+    }
+
+    @Override
+    public CompletableFuture<Integer> adjustStockAsync(String productId, int delta) {
+        saveLock.lock();
+        try {
+            synchronized (monitorFor(productId)) {
+                int quantity = super.adjustStock(productId, delta);
+                return codec.appendStockLevelAsync(productId, quantity).thenApply(written -> quantity);
+            }
+        } finally {
+            saveLock.unlock();
+        }
+    }
+
+    // Applies a recovered product without journaling it again
+    @Override
+    protected void restore(Product product) {
+        super.restore(product);
+    }
+
+    // Applies a recovered stock level without journaling it again
+    void restoreStock(String productId, int quantity) {
+        super.setStock(productId, quantity);
+    }
+
+    private Object monitorFor(String productId) {
+        return productMonitors.computeIfAbsent(productId, id -> new Object());
+    }
+}
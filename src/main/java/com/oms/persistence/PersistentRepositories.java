@@ -0,0 +1,231 @@
+package com.oms.persistence;
+
+import com.oms.codec.ModelCodec;
+import com.oms.exception.PersistenceException;
+import com.oms.model.Customer;
+import com.oms.model.Order;
+import com.oms.model.OrderStatus;
+import com.oms.model.Product;
+import com.oms.service.CreditLedger;
+import com.oms.service.InventoryManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Durable storage mode: journaling order, customer and product repositories sharing one journal.
+ * Opening loads the latest snapshot, if any, then replays only the journal segments after it.
+ *
+ * Reservations aren't journaled separately. An order holds its reservation while VALIDATED (payment
+ * turns it into a stock deduction), so restoreReservations rebuilds them from the recovered order statuses.
+ */
+public class PersistentRepositories implements AutoCloseable {
+    public static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+
+    private final Path directory;
+    private final Journal journal;
+    private final RecordCodec codec;
+    // Saves take the read side; snapshot() takes the write side only while rolling the journal
+    private final ReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+    private final JournalingOrderRepository orderRepository;
+    private final JournalingCustomerRepository customerRepository;
+    private final JournalingProductRepository productRepository;
+    private final Object snapshotMonitor = new Object();
+    private ScheduledExecutorService snapshotScheduler;
+
+    private PersistentRepositories(Path directory, Journal journal, int expectedOrders) {
+        this.directory = directory;
+        this.journal = journal;
+        this.codec = new RecordCodec(journal);
+        this.orderRepository = new JournalingOrderRepository(codec, checkpointLock, expectedOrders);
+        this.customerRepository = new JournalingCustomerRepository(codec, checkpointLock);
+        this.productRepository = new JournalingProductRepository(codec, checkpointLock);
+    }
+
+    public static PersistentRepositories open(Path directory) {
+        return open(directory, DEFAULT_SEGMENT_BYTES, true);
+    }
+
+    public static PersistentRepositories open(Path directory, long maxSegmentBytes, boolean fsync) {
+        try {
+            Files.createDirectories(directory);
+            List<Path> snapshots = Snapshots.list(directory);
+            Path latest = snapshots.isEmpty() ? null : snapshots.get(snapshots.size() - 1);
+            int expectedOrders = latest == null ? 16 : Snapshots.readHeader(latest).orderCount;
+
+            PersistentRepositories repositories = new PersistentRepositories(directory,
+                    Journal.open(directory, maxSegmentBytes, fsync), expectedOrders);
+            repositories.recover(latest);
+            return repositories;
+        } catch (IOException e) {
+            throw new PersistenceException("Failed to open repositories in " + directory, e);
+        }
+    }
+
+    private void recover(Path snapshot) throws IOException {
+        long fromSegment = 0;
+        if (snapshot != null) {
+            fromSegment = Snapshots.load(snapshot, this::apply).segmentId;
+        }
+        journal.replayFrom(fromSegment, this::apply);
+    }
+
+    private void apply(JournalRecord record) {
+        ModelCodec modelCodec = codec.getCodec();
+        switch (record.getType()) {
+            case RecordType.ORDER:
+                orderRepository.restore(modelCodec.readOrder(record.payloadForDecoding()));
+                break;
+            case RecordType.CUSTOMER:
+                customerRepository.restore(modelCodec.readCustomer(record.payloadForDecoding()));
+                break;
+            case RecordType.PRODUCT:
+                productRepository.restore(modelCodec.readProduct(record.payloadForDecoding()));
+                break;
+            case RecordType.STOCK:
+                modelCodec.readStockLevel(record.payloadForDecoding(), productRepository::restoreStock);
+                break;
+            case RecordType.PRODUCT_ID:
+                modelCodec.readDictionaryEntry(record.payloadForDecoding());
+                break;
+            default:
+                // Written by a newer version; skip
+                break;
+        }
+    }
+
+    /**
+     * Writes a snapshot of every repository and drops the journal segments it covers.
+     *
+     * Writers are held back only while the journal rolls to a new segment. The snapshot is then
+     * taken from the live maps while saves continue. It may catch some of those later saves
+     * half-applied, but every one of them is also in the new segment, which recovery replays over
+     * the snapshot, so the end state is exact.
+     */
+    public Path snapshot() {
+        synchronized (snapshotMonitor) {
+            long segmentId;
+            checkpointLock.writeLock().lock();
+            try {
+                segmentId = journal.rollSegment();
+            } finally {
+                checkpointLock.writeLock().unlock();
+            }
+
+            List<Customer> customers = customerRepository.findAll();
+            List<Product> products = productRepository.findAll();
+            Snapshots.Header header = new Snapshots.Header(segmentId,
+                    orderRepository.size(), customers.size(), products.size());
+
+            try {
+                Path written;
+                try (Snapshots.Writer writer = Snapshots.create(directory, header)) {
+                    // Entries assigned after the roll are also journaled in the tail
+                    codec.writeDictionary(writer);
+                    for (Customer customer : customers) {
+                        codec.write(writer, customer);
+                    }
+                    // findAll fills in each product's current stock level
+                    for (Product product : products) {
+                        codec.write(writer, product);
+                    }
+                    Iterator<Order> orders = orderRepository.streamAll().iterator();
+                    while (orders.hasNext()) {
+                        codec.write(writer, orders.next());
+                    }
+                    written = writer.commit();
+                }
+
+                // Compaction: older snapshots and the segments before this one are no longer needed
+                for (Path older : Snapshots.list(directory)) {
+                    if (!older.equals(written)) {
+                        Files.deleteIfExists(older);
+                    }
+                }
+                journal.deleteSegmentsBefore(segmentId);
+                return written;
+            } catch (IOException e) {
+                throw new PersistenceException("Failed to write snapshot in " + directory, e);
+            }
+        }
+    }
+
+    /**
+     * Takes a snapshot every interval on a background thread until close().
+     */
+    public synchronized void scheduleSnapshots(Duration interval) {
+        if (snapshotScheduler != null) {
+            throw new IllegalStateException("Snapshots are already scheduled");
+        }
+        snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snapshot-" + directory.getFileName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        snapshotScheduler.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot();
+            } catch (RuntimeException e) {
+                // Keep the schedule alive; the journal still holds everything since the last good snapshot
+                System.err.println("Snapshot of " + directory + " failed: " + e.getMessage());
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Re-creates the stock reservation of every VALIDATED order. With a reservation TTL, each one
+     * gets a fresh TTL from now.
+     */
+    public void restoreReservations(InventoryManager inventoryManager) {
+        orderRepository.streamByStatus(OrderStatus.VALIDATED, null, null).forEach((Order order) ->
+                inventoryManager.restoreReservation(order.getOrderId(), order.getItems()));
+    }
+
+    /**
+     * Re-creates the credit hold of every VALIDATED order. Credit of PAID orders is already in the
+     * recovered customers' usedCredit.
+     */
+    public void restoreCreditHolds(CreditLedger creditLedger) {
+        orderRepository.streamByStatus(OrderStatus.VALIDATED, null, null).forEach((Order order) -> {
+            Customer customer = customerRepository.findById(order.getCustomerId()).orElse(null);
+            if (customer != null && order.getTotalAmount() != null) {
+                creditLedger.restoreHold(customer, order.getOrderId(), order.getTotalAmount());
+            }
+        });
+    }
+
+    public JournalingOrderRepository getOrderRepository() {
+        return orderRepository;
+    }
+
+    public JournalingCustomerRepository getCustomerRepository() {
+        return customerRepository;
+    }
+
+    public JournalingProductRepository getProductRepository() {
+        return productRepository;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (snapshotScheduler != null) {
+                snapshotScheduler.shutdownNow();
+            }
+        }
+        // Let a snapshot in progress finish before the journal goes away
+        synchronized (snapshotMonitor) {
+            journal.close();
+        }
+    }
+}
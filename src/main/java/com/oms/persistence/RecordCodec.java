@@ -0,0 +1,78 @@
+package com.oms.persistence;
+
+import com.oms.codec.ModelCodec;
+import com.oms.codec.ProductIdDictionary;
+import com.oms.model.Customer;
+import com.oms.model.Order;
+import com.oms.model.Product;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Journal and snapshot payloads in the ModelCodec format.
+ *
+ * Item productIds are written as dictionary ids. The first time an id is assigned, a PRODUCT_ID
+ * record defining it is appended before the id is handed out, so in the journal every definition
+ * comes before the first record that uses it. Snapshots start with the whole dictionary.
+ */
+final class RecordCodec {
+    private final Journal journal;
+    private final ModelCodec codec;
+
+    RecordCodec(Journal journal) {
+        this.journal = journal;
+        this.codec = new ModelCodec(new ProductIdDictionary(this::appendDictionaryEntry));
+    }
+
+    void appendOrder(Order order) {
+        journal.append(RecordType.ORDER, codec.sizeOf(order), buffer -> codec.write(order, buffer));
+    }
+
+    void appendCustomer(Customer customer) {
+        journal.append(RecordType.CUSTOMER, codec.sizeOf(customer), buffer -> codec.write(customer, buffer));
+    }
+
+    // Queues the record; the future completes once it is written
+    CompletableFuture<Void> appendProductAsync(Product product) {
+        return journal.appendAsync(RecordType.PRODUCT, codec.sizeOf(product), buffer -> codec.write(product, buffer));
+    }
+
+    // Queues the record; the future completes once it is written
+    CompletableFuture<Void> appendStockLevelAsync(String productId, int quantity) {
+        return journal.appendAsync(RecordType.STOCK, codec.sizeOfStockLevel(productId, quantity),
+                buffer -> codec.writeStockLevel(productId, quantity, buffer));
+    }
+
+    private void appendDictionaryEntry(int id, String productId) {
+        journal.append(RecordType.PRODUCT_ID, codec.sizeOfDictionaryEntry(id, productId),
+                buffer -> codec.writeDictionaryEntry(id, productId, buffer));
+    }
+
+    void writeDictionary(Snapshots.Writer writer) {
+        String[] entries = codec.getDictionary().entries();
+        for (int id = 0; id < entries.length; id++) {
+            if (entries[id] != null) {
+                final int entryId = id;
+                final String productId = entries[id];
+                writer.write(RecordType.PRODUCT_ID, codec.sizeOfDictionaryEntry(entryId, productId),
+                        buffer -> codec.writeDictionaryEntry(entryId, productId, buffer));
+            }
+        }
+    }
+
+    void write(Snapshots.Writer writer, Order order) {
+        writer.write(RecordType.ORDER, codec.sizeOf(order), buffer -> codec.write(order, buffer));
+    }
+
+    void write(Snapshots.Writer writer, Customer customer) {
+        writer.write(RecordType.CUSTOMER, codec.sizeOf(customer), buffer -> codec.write(customer, buffer));
+    }
+
+    void write(Snapshots.Writer writer, Product product) {
+        writer.write(RecordType.PRODUCT, codec.sizeOf(product), buffer -> codec.write(product, buffer));
+    }
+
+    ModelCodec getCodec() {
+        return codec;
+    }
+}
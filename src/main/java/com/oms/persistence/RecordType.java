@@ -0,0 +1,17 @@
+package com.oms.persistence;
+
+/**
+ * Journal record type tags. Entity records carry the full state of one entity after a save.
+ */
+final class RecordType {
+    static final byte ORDER = 1;
+    static final byte CUSTOMER = 2;
+    static final byte PRODUCT = 3;
+    // Defines a product dictionary id used by later ORDER records
+    static final byte PRODUCT_ID = 4;
+    // A product's absolute stock level after a stock change
+    static final byte STOCK = 5;
+
+    private RecordType() {
+    }
+}
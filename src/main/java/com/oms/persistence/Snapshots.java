@@ -0,0 +1,193 @@
+package com.oms.persistence;
+
+import com.oms.exception.CodecException;
+import com.oms.exception.PersistenceException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Snapshot files (snapshot-0000000042.snap) holding the full state of the repositories.
+ * The number is the first journal segment not covered by the snapshot, so recovery loads the
+ * snapshot and replays from that segment on.
+ *
+ * Layout: [int magic][int version][long segment][int orders][int customers][int products]
+ * followed by [byte type][int length][payload] entries, a 0 type byte, and a CRC32 of all
+ * preceding bytes. The counts are sizing hints taken when the snapshot started.
+ */
+final class Snapshots {
+    private static final int MAGIC = 0x4F4D5353; // "OMSS"
+    private static final int VERSION = 2;
+    private static final byte END = 0;
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".snap";
+
+    private Snapshots() {
+    }
+
+    static final class Header {
+        final long segmentId;
+        final int orderCount;
+        final int customerCount;
+        final int productCount;
+
+        Header(long segmentId, int orderCount, int customerCount, int productCount) {
+            this.segmentId = segmentId;
+            this.orderCount = orderCount;
+            this.customerCount = customerCount;
+            this.productCount = productCount;
+        }
+    }
+
+    static final class Writer implements AutoCloseable {
+        private final Path target;
+        private final Path temp;
+        private final FileOutputStream file;
+        private final CheckedOutputStream checked;
+        private final DataOutputStream out;
+        // Reused for every entry; payloads are encoded into it, then copied to the stream
+        private ByteBuffer scratch = ByteBuffer.allocate(1024);
+        private boolean committed;
+
+        private Writer(Path directory, Header header) throws IOException {
+            this.target = path(directory, header.segmentId);
+            this.temp = target.resolveSibling(target.getFileName() + ".tmp");
+            this.file = new FileOutputStream(temp.toFile());
+            this.checked = new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), new CRC32());
+            this.out = new DataOutputStream(checked);
+
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(header.segmentId);
+            out.writeInt(header.orderCount);
+            out.writeInt(header.customerCount);
+            out.writeInt(header.productCount);
+        }
+
+        void write(byte type, int payloadLength, Consumer<ByteBuffer> payloadWriter) {
+            if (scratch.capacity() < payloadLength) {
+                scratch = ByteBuffer.allocate(Math.max(payloadLength, scratch.capacity() * 2));
+            }
+            scratch.clear();
+            payloadWriter.accept(scratch);
+            if (scratch.position() != payloadLength) {
+                throw new PersistenceException("Snapshot entry is " + scratch.position()
+                        + " bytes, expected " + payloadLength);
+            }
+            try {
+                out.writeByte(type);
+                out.writeInt(payloadLength);
+                out.write(scratch.array(), 0, payloadLength);
+            } catch (IOException e) {
+                throw new PersistenceException("Failed to write snapshot " + target, e);
+            }
+        }
+
+        // Makes the snapshot durable and visible under its final name
+        Path commit() throws IOException {
+            out.writeByte(END);
+            out.flush();
+            out.writeLong(checked.getChecksum().getValue());
+            out.flush();
+            file.getFD().sync();
+            out.close();
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            committed = true;
+            return target;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                out.close();
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    static Writer create(Path directory, Header header) throws IOException {
+        return new Writer(directory, header);
+    }
+
+    static Header readHeader(Path snapshot) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(snapshot))) {
+            return readHeader(in, snapshot);
+        }
+    }
+
+    /**
+     * Streams every entry to the consumer and verifies the checksum at the end.
+     */
+    static Header load(Path snapshot, Consumer<JournalRecord> consumer) throws IOException {
+        try (InputStream file = Files.newInputStream(snapshot)) {
+            CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(file, 1 << 16), new CRC32());
+            DataInputStream in = new DataInputStream(checked);
+            Header header = readHeader(in, snapshot);
+
+            byte[] buffer = new byte[256];
+            while (true) {
+                byte type = in.readByte();
+                if (type == END) {
+                    break;
+                }
+                int length = in.readInt();
+                if (buffer.length < length) {
+                    buffer = new byte[Math.max(length, buffer.length * 2)];
+                }
+                in.readFully(buffer, 0, length);
+                try {
+                    consumer.accept(new JournalRecord(type, ByteBuffer.wrap(buffer, 0, length)));
+                } catch (CodecException e) {
+                    // Entries are applied before the checksum at the end can be checked
+                    throw new PersistenceException("Snapshot " + snapshot + " is corrupt", e);
+                }
+            }
+
+            long expected = checked.getChecksum().getValue();
+            if (in.readLong() != expected) {
+                throw new PersistenceException("Snapshot " + snapshot + " is corrupt (checksum mismatch)");
+            }
+            return header;
+        }
+    }
+
+    private static Header readHeader(DataInputStream in, Path snapshot) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new PersistenceException("Not a snapshot file: " + snapshot);
+        }
+        return new Header(in.readLong(), in.readInt(), in.readInt(), in.readInt());
+    }
+
+    // Newest last
+    static List<Path> list(Path directory) throws IOException {
+        List<Path> snapshots = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path path : stream) {
+                snapshots.add(path);
+            }
+        }
+        Collections.sort(snapshots);
+        return snapshots;
+    }
+
+    private static Path path(Path directory, long segmentId) {
+        return directory.resolve(String.format("%s%010d%s", PREFIX, segmentId, SUFFIX));
+    }
+}
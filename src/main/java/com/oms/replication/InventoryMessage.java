@@ -0,0 +1,85 @@
+package com.oms.replication;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * One message between inventory nodes. Requests carry a requestId that the owner's response
+ * repeats; RELEASE, RESTOCK, EXPIRED and STOCK_LEVELS expect no response.
+ */
+public final class InventoryMessage {
+    public enum Type {
+        // Reserve quantities for orderId on the owner of every product in it
+        RESERVE,
+        // Deduct orderId's reservation from the owner's stock
+        CONFIRM,
+        RELEASE,
+        // Re-create orderId's reservation during recovery, without checking availability
+        RESTORE,
+        // Put back the stock a CONFIRM deducted, when another owner's part of the order failed
+        RESTOCK,
+        // From an owner to the node that placed orderId: the owner's reservation ran out
+        EXPIRED,
+        // Answer to RESERVE, CONFIRM or RESTORE; error is null on success
+        RESPONSE,
+        // An owner's available stock per product, replicated to the other nodes
+        STOCK_LEVELS
+    }
+
+    private final Type type;
+    private final long requestId;
+    private final String fromNode;
+    private final String orderId;
+    private final Map<String, Integer> quantities;
+    private final String error;
+
+    private InventoryMessage(Type type, long requestId, String fromNode, String orderId,
+                             Map<String, Integer> quantities, String error) {
+        this.type = type;
+        this.requestId = requestId;
+        this.fromNode = fromNode;
+        this.orderId = orderId;
+        this.quantities = quantities == null ? Collections.emptyMap() : Collections.unmodifiableMap(quantities);
+        this.error = error;
+    }
+
+    static InventoryMessage reserve(long requestId, String fromNode, String orderId, Map<String, Integer> quantities) {
+        return new InventoryMessage(Type.RESERVE, requestId, fromNode, orderId, quantities, null);
+    }
+
+    static InventoryMessage confirm(long requestId, String fromNode, String orderId) {
+        return new InventoryMessage(Type.CONFIRM, requestId, fromNode, orderId, null, null);
+    }
+
+    // quantities are what the owner reserved for the order, so it knows which levels changed
+    static InventoryMessage release(String fromNode, String orderId, Map<String, Integer> quantities) {
+        return new InventoryMessage(Type.RELEASE, 0, fromNode, orderId, quantities, null);
+    }
+
+    static InventoryMessage restore(long requestId, String fromNode, String orderId, Map<String, Integer> quantities) {
+        return new InventoryMessage(Type.RESTORE, requestId, fromNode, orderId, quantities, null);
+    }
+
+    static InventoryMessage restock(String fromNode, String orderId, Map<String, Integer> quantities) {
+        return new InventoryMessage(Type.RESTOCK, 0, fromNode, orderId, quantities, null);
+    }
+
+    static InventoryMessage expired(String fromNode, String orderId) {
+        return new InventoryMessage(Type.EXPIRED, 0, fromNode, orderId, null, null);
+    }
+
+    static InventoryMessage response(long requestId, String fromNode, String error) {
+        return new InventoryMessage(Type.RESPONSE, requestId, fromNode, null, null, error);
+    }
+
+    static InventoryMessage stockLevels(String fromNode, Map<String, Integer> available) {
+        return new InventoryMessage(Type.STOCK_LEVELS, 0, fromNode, null, available, null);
+    }
+
+    public Type getType() { return type; }
+    public long getRequestId() { return requestId; }
+    public String getFromNode() { return fromNode; }
+    public String getOrderId() { return orderId; }
+    public Map<String, Integer> getQuantities() { return quantities; }
+    public String getError() { return error; }
+}
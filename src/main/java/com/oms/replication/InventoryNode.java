@@ -0,0 +1,538 @@
+package com.oms.replication;
+
+import com.oms.model.CatalogProduct;
+import com.oms.model.Item;
+import com.oms.service.InventoryManager;
+import com.oms.repository.ProductRepository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * One instance's share of a multi-node inventory. Every product has a single owner among the
+ * members, picked by a hash of its productId, and only the owner's InventoryManager reserves,
+ * confirms and releases that product's stock, so no two nodes can sell the same units.
+ *
+ * reserveStock splits an order by owner: the node's own products are reserved directly and the
+ * rest are forwarded to their owners. The order is reserved only if every owner succeeds;
+ * otherwise every owner is sent a RELEASE for its part. confirmStock and releaseStock go to
+ * the same owners. If any owner fails to confirm, the owners that did confirm get their part
+ * back with a RESTOCK, so an order is never left partly deducted. restoreReservation re-creates a
+ * recovered order's reservation on its owners. Owners replicate the available stock of products
+ * they change to the other members, so getAvailableStock can answer locally, possibly slightly
+ * behind the owner.
+ *
+ * Reservations expire on their owners' InventoryManagers. An owner tells the node that placed the
+ * order with an EXPIRED message; that node releases the order's other parts and passes the orderId
+ * to its expiry listeners, which cancel the order.
+ *
+ * Outgoing messages are queued and sent by one thread, which drains everything queued so far and
+ * sends one batch per destination. Under load many requests and replication updates share a batch.
+ */
+public class InventoryNode implements AutoCloseable {
+    private static final int MAX_BATCH_SIZE = 256;
+
+    private final String nodeId;
+    private final List<String> members;
+    private final InventoryManager inventoryManager;
+    private final ProductRepository productRepository;
+    private final InventoryTransport transport;
+    private final long requestTimeoutMillis;
+
+    private final AtomicLong nextRequestId = new AtomicLong();
+    private final Map<Long, CompletableFuture<Void>> pendingRequests = new ConcurrentHashMap<>();
+    // Each order's reservation, by owner
+    private final Map<String, Map<String, Map<String, Integer>>> participants = new ConcurrentHashMap<>();
+    // Reservations this node holds as owner for orders other nodes placed, so expiry can tell them
+    private final Map<String, PeerReservation> peerReservations = new ConcurrentHashMap<>();
+    private final List<Consumer<String>> expiryListeners = new CopyOnWriteArrayList<>();
+    // Last available stock replicated by the owners of other nodes' products
+    private final Map<String, Integer> replicatedStock = new ConcurrentHashMap<>();
+
+    private final BlockingQueue<Outgoing> outbox = new LinkedBlockingQueue<>();
+    private final Thread sender;
+    private volatile boolean closed;
+
+    public InventoryNode(String nodeId, Collection<String> members, InventoryManager inventoryManager,
+                         ProductRepository productRepository, InventoryTransport transport) {
+        this(nodeId, members, inventoryManager, productRepository, transport, Duration.ofSeconds(5));
+    }
+
+    public InventoryNode(String nodeId, Collection<String> members, InventoryManager inventoryManager,
+                         ProductRepository productRepository, InventoryTransport transport,
+                         Duration requestTimeout) {
+        // Every member must see the same list to agree on owners
+        List<String> sortedMembers = new ArrayList<>(new TreeSet<>(members));
+        if (!sortedMembers.contains(nodeId)) {
+            throw new IllegalArgumentException("Node " + nodeId + " is not one of the members");
+        }
+        this.nodeId = nodeId;
+        this.members = Collections.unmodifiableList(sortedMembers);
+        this.inventoryManager = inventoryManager;
+        this.productRepository = productRepository;
+        this.transport = transport;
+        this.requestTimeoutMillis = requestTimeout.toMillis();
+
+        inventoryManager.addExpiryListener(this::onLocalExpiry);
+        transport.bind(nodeId, this::receive);
+        this.sender = new Thread(this::sendLoop, "inventory-sender-" + nodeId);
+        sender.setDaemon(true);
+        sender.start();
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public List<String> getMembers() {
+        return members;
+    }
+
+    public String ownerOf(String productId) {
+        int hash = productId.hashCode() * 0x9E3779B9;
+        return members.get(((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % members.size());
+    }
+
+    public boolean owns(String productId) {
+        return nodeId.equals(ownerOf(productId));
+    }
+
+    /**
+     * Reserves the order's items on their owners, all or nothing. The future fails with the
+     * first owner's error, e.g. insufficient stock, after the other owners' parts are released.
+     */
+    public CompletableFuture<Void> reserveStock(String orderId, List<Item> items) {
+        Map<String, Map<String, Integer>> byOwner = splitByOwner(items);
+        participants.put(orderId, byOwner);
+
+        List<CompletableFuture<Void>> parts = new ArrayList<>(byOwner.size());
+        for (Map.Entry<String, Map<String, Integer>> entry : byOwner.entrySet()) {
+            if (entry.getKey().equals(nodeId)) {
+                parts.add(reserveLocally(orderId, entry.getValue()));
+            } else {
+                long requestId = nextRequestId.incrementAndGet();
+                parts.add(request(entry.getKey(), requestId,
+                        InventoryMessage.reserve(requestId, nodeId, orderId, entry.getValue())));
+            }
+        }
+
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0])).whenComplete((done, failure) -> {
+            if (failure == null) {
+                result.complete(null);
+                return;
+            }
+            // An owner that timed out may still have reserved, so every owner gets the release
+            releaseStock(orderId);
+            result.completeExceptionally(unwrap(failure));
+        });
+        return result;
+    }
+
+    /**
+     * Deducts the order's reservation from stock on every owner. Fails if the order holds no
+     * reservation through this node, or an owner no longer has it; then the owners that deducted
+     * their part are sent it back, and the others a release, so the order leaves no stock
+     * deducted. An owner that timed out may still deduct its part later.
+     */
+    public CompletableFuture<Void> confirmStock(String orderId) {
+        Map<String, Map<String, Integer>> byOwner = participants.remove(orderId);
+        if (byOwner == null) {
+            return CompletableFuture.failedFuture(
+                    new IllegalStateException("No reservation for order " + orderId));
+        }
+
+        Map<String, CompletableFuture<Void>> parts = new TreeMap<>();
+        for (String owner : byOwner.keySet()) {
+            if (owner.equals(nodeId)) {
+                parts.put(owner, confirmLocally(orderId));
+            } else {
+                long requestId = nextRequestId.incrementAndGet();
+                parts.put(owner, request(owner, requestId, InventoryMessage.confirm(requestId, nodeId, orderId)));
+            }
+        }
+
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        CompletableFuture.allOf(parts.values().toArray(new CompletableFuture<?>[0])).whenComplete((done, failure) -> {
+            if (failure == null) {
+                result.complete(null);
+                return;
+            }
+            Throwable reported = null;
+            for (Map.Entry<String, CompletableFuture<Void>> part : parts.entrySet()) {
+                Map<String, Integer> quantities = byOwner.get(part.getKey());
+                if (!part.getValue().isCompletedExceptionally()) {
+                    restock(part.getKey(), orderId, quantities);
+                    continue;
+                }
+                releaseOn(part.getKey(), orderId, quantities);
+                Throwable cause = unwrap(part.getValue().handle((ignored, error) -> error).join());
+                // A missing reservation says the order can't be paid; report that over a timeout
+                if (reported == null || isNoReservation(cause, orderId) && !isNoReservation(reported, orderId)) {
+                    reported = cause;
+                }
+            }
+            result.completeExceptionally(reported);
+        });
+        return result;
+    }
+
+    /**
+     * Re-creates a recovered order's reservation on the owners of its items, without checking
+     * availability. An owner that still holds the reservation keeps one copy of it.
+     */
+    public CompletableFuture<Void> restoreReservation(String orderId, List<Item> items) {
+        Map<String, Map<String, Integer>> byOwner = splitByOwner(items);
+        participants.put(orderId, byOwner);
+
+        List<CompletableFuture<Void>> parts = new ArrayList<>(byOwner.size());
+        for (Map.Entry<String, Map<String, Integer>> entry : byOwner.entrySet()) {
+            if (entry.getKey().equals(nodeId)) {
+                inventoryManager.restoreReservation(orderId, toItems(entry.getValue()));
+                replicate(entry.getValue().keySet());
+            } else {
+                long requestId = nextRequestId.incrementAndGet();
+                parts.add(request(entry.getKey(), requestId,
+                        InventoryMessage.restore(requestId, nodeId, orderId, entry.getValue())));
+            }
+        }
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0]));
+    }
+
+    // Owners release without answering; a release for an order they don't hold is ignored
+    public void releaseStock(String orderId) {
+        Map<String, Map<String, Integer>> byOwner = participants.remove(orderId);
+        if (byOwner == null) {
+            return;
+        }
+        for (Map.Entry<String, Map<String, Integer>> entry : byOwner.entrySet()) {
+            releaseOn(entry.getKey(), orderId, entry.getValue());
+        }
+    }
+
+    /**
+     * Registers a callback that receives the orderId of every order placed through this node
+     * whose reservation expired on one of its owners. It runs on the owner's expiry thread, or on
+     * the transport's receiving thread for another owner's EXPIRED, so it must not wait on this
+     * node's requests.
+     */
+    public void addExpiryListener(Consumer<String> listener) {
+        expiryListeners.add(listener);
+    }
+
+    /**
+     * Stock not reserved by any order: exact for products this node owns, otherwise the last
+     * level the owner replicated, or 0 if it hasn't replicated one yet.
+     */
+    public int getAvailableStock(String productId) {
+        if (owns(productId)) {
+            return inventoryManager.getAvailableStock(productId);
+        }
+        return replicatedStock.getOrDefault(productId, 0);
+    }
+
+    /**
+     * Sends the available stock of every product this node owns to the other members, e.g. after
+     * it starts or restocks.
+     */
+    public void publishStockLevels() {
+        Set<String> owned = new TreeSet<>();
+        for (CatalogProduct product : productRepository.getCatalog().getProducts()) {
+            if (owns(product.getId())) {
+                owned.add(product.getId());
+            }
+        }
+        replicate(owned);
+    }
+
+    /**
+     * Stops sending and fails the requests still waiting for an answer. Messages not yet sent are
+     * dropped.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        sender.interrupt();
+        try {
+            sender.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        IllegalStateException failure = new IllegalStateException("Inventory node " + nodeId + " closed");
+        for (CompletableFuture<Void> pending : pendingRequests.values()) {
+            pending.completeExceptionally(failure);
+        }
+        pendingRequests.clear();
+    }
+
+    private CompletableFuture<Void> reserveLocally(String orderId, Map<String, Integer> quantities) {
+        try {
+            inventoryManager.reserveStock(orderId, toItems(quantities));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        replicate(quantities.keySet());
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private Map<String, Map<String, Integer>> splitByOwner(List<Item> items) {
+        Map<String, Map<String, Integer>> byOwner = new TreeMap<>();
+        for (Item item : items) {
+            byOwner.computeIfAbsent(ownerOf(item.getProductId()), owner -> new TreeMap<>())
+                    .merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+        return byOwner;
+    }
+
+    private void releaseOn(String owner, String orderId, Map<String, Integer> quantities) {
+        if (owner.equals(nodeId)) {
+            inventoryManager.releaseStock(orderId);
+            replicate(quantities.keySet());
+        } else {
+            enqueue(owner, InventoryMessage.release(nodeId, orderId, quantities));
+        }
+    }
+
+    // Puts back stock the owner deducted for orderId
+    private void restock(String owner, String orderId, Map<String, Integer> quantities) {
+        if (owner.equals(nodeId)) {
+            restockLocally(quantities);
+            replicate(quantities.keySet());
+        } else {
+            enqueue(owner, InventoryMessage.restock(nodeId, orderId, quantities));
+        }
+    }
+
+    private void restockLocally(Map<String, Integer> quantities) {
+        for (Map.Entry<String, Integer> entry : quantities.entrySet()) {
+            productRepository.adjustStock(entry.getKey(), entry.getValue());
+        }
+    }
+
+    // This node's InventoryManager expired orderId's reservation
+    private void onLocalExpiry(String orderId) {
+        PeerReservation peer = peerReservations.remove(orderId);
+        if (peer != null) {
+            replicate(peer.quantities.keySet());
+            enqueue(peer.fromNode, InventoryMessage.expired(nodeId, orderId));
+            return;
+        }
+        Map<String, Map<String, Integer>> byOwner = participants.get(orderId);
+        if (byOwner != null && byOwner.containsKey(nodeId)) {
+            replicate(byOwner.get(nodeId).keySet());
+        }
+        expired(orderId, nodeId);
+    }
+
+    // owner expired its part of an order placed here: release the rest and tell the listeners
+    private void expired(String orderId, String owner) {
+        Map<String, Map<String, Integer>> byOwner = participants.remove(orderId);
+        if (byOwner == null) {
+            // Confirmed or released first
+            return;
+        }
+        for (Map.Entry<String, Map<String, Integer>> entry : byOwner.entrySet()) {
+            if (!entry.getKey().equals(owner)) {
+                releaseOn(entry.getKey(), orderId, entry.getValue());
+            }
+        }
+        for (Consumer<String> listener : expiryListeners) {
+            try {
+                listener.accept(orderId);
+            } catch (RuntimeException e) {
+                System.err.println("Inventory node " + nodeId + " expiry listener failed for order "
+                        + orderId + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private CompletableFuture<Void> confirmLocally(String orderId) {
+        if (!inventoryManager.confirmStock(orderId)) {
+            return CompletableFuture.failedFuture(
+                    new IllegalStateException("No reservation for order " + orderId + " on node " + nodeId));
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private CompletableFuture<Void> request(String owner, long requestId, InventoryMessage message) {
+        CompletableFuture<Void> response = new CompletableFuture<>();
+        pendingRequests.put(requestId, response);
+        response.orTimeout(requestTimeoutMillis, TimeUnit.MILLISECONDS)
+                .whenComplete((done, failure) -> pendingRequests.remove(requestId));
+        enqueue(owner, message);
+        return response;
+    }
+
+    // Runs on the transport's receiving thread, one batch at a time
+    private void receive(List<InventoryMessage> batch) {
+        Set<String> changed = new TreeSet<>();
+        for (InventoryMessage message : batch) {
+            switch (message.getType()) {
+                case RESERVE:
+                    enqueue(message.getFromNode(), InventoryMessage.response(message.getRequestId(), nodeId,
+                            reserveForPeer(message, changed)));
+                    break;
+                case CONFIRM:
+                    peerReservations.remove(message.getOrderId());
+                    boolean confirmed = inventoryManager.confirmStock(message.getOrderId());
+                    enqueue(message.getFromNode(), InventoryMessage.response(message.getRequestId(), nodeId,
+                            confirmed ? null : "No reservation for order " + message.getOrderId() + " on node " + nodeId));
+                    break;
+                case RELEASE:
+                    peerReservations.remove(message.getOrderId());
+                    inventoryManager.releaseStock(message.getOrderId());
+                    changed.addAll(message.getQuantities().keySet());
+                    break;
+                case RESTORE:
+                    peerReservations.put(message.getOrderId(),
+                            new PeerReservation(message.getFromNode(), message.getQuantities()));
+                    inventoryManager.restoreReservation(message.getOrderId(), toItems(message.getQuantities()));
+                    changed.addAll(message.getQuantities().keySet());
+                    enqueue(message.getFromNode(), InventoryMessage.response(message.getRequestId(), nodeId, null));
+                    break;
+                case RESTOCK:
+                    restockLocally(message.getQuantities());
+                    changed.addAll(message.getQuantities().keySet());
+                    break;
+                case EXPIRED:
+                    expired(message.getOrderId(), message.getFromNode());
+                    break;
+                case RESPONSE:
+                    CompletableFuture<Void> pending = pendingRequests.remove(message.getRequestId());
+                    if (pending != null) {
+                        if (message.getError() == null) {
+                            pending.complete(null);
+                        } else {
+                            pending.completeExceptionally(new IllegalStateException(message.getError()));
+                        }
+                    }
+                    break;
+                case STOCK_LEVELS:
+                    replicatedStock.putAll(message.getQuantities());
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown message type " + message.getType());
+            }
+        }
+        replicate(changed);
+    }
+
+    // Returns the error to answer with, or null once reserved
+    private String reserveForPeer(InventoryMessage message, Set<String> changed) {
+        // Recorded first, so an expiry right after the reservation still finds who to tell
+        PeerReservation peer = new PeerReservation(message.getFromNode(), message.getQuantities());
+        peerReservations.put(message.getOrderId(), peer);
+        try {
+            inventoryManager.reserveStock(message.getOrderId(), toItems(message.getQuantities()));
+        } catch (RuntimeException e) {
+            peerReservations.remove(message.getOrderId(), peer);
+            return e.getMessage();
+        }
+        changed.addAll(message.getQuantities().keySet());
+        return null;
+    }
+
+    private void replicate(Set<String> productIds) {
+        if (productIds.isEmpty() || members.size() == 1) {
+            return;
+        }
+        Map<String, Integer> levels = new TreeMap<>();
+        for (String productId : productIds) {
+            levels.put(productId, inventoryManager.getAvailableStock(productId));
+        }
+        for (String member : members) {
+            if (!member.equals(nodeId)) {
+                enqueue(member, InventoryMessage.stockLevels(nodeId, levels));
+            }
+        }
+    }
+
+    private void enqueue(String destination, InventoryMessage message) {
+        if (!closed) {
+            outbox.add(new Outgoing(destination, message));
+        }
+    }
+
+    private void sendLoop() {
+        List<Outgoing> drained = new ArrayList<>(MAX_BATCH_SIZE);
+        while (!closed) {
+            try {
+                drained.add(outbox.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            outbox.drainTo(drained, MAX_BATCH_SIZE - 1);
+
+            // Grouped by destination in queue order, so each destination sees messages in send order
+            Map<String, List<InventoryMessage>> batches = new LinkedHashMap<>();
+            for (Outgoing outgoing : drained) {
+                batches.computeIfAbsent(outgoing.destination, destination -> new ArrayList<>())
+                        .add(outgoing.message);
+            }
+            drained.clear();
+            for (Map.Entry<String, List<InventoryMessage>> batch : batches.entrySet()) {
+                try {
+                    transport.send(batch.getKey(), batch.getValue());
+                } catch (RuntimeException e) {
+                    // Requests in the lost batch time out
+                    System.err.println("Inventory node " + nodeId + " failed to send to " + batch.getKey()
+                            + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static List<Item> toItems(Map<String, Integer> quantities) {
+        List<Item> items = new ArrayList<>(quantities.size());
+        for (Map.Entry<String, Integer> entry : quantities.entrySet()) {
+            items.add(new Item(entry.getKey(), entry.getValue()));
+        }
+        return items;
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+    }
+
+    private static boolean isNoReservation(Throwable failure, String orderId) {
+        return failure instanceof IllegalStateException && failure.getMessage() != null
+                && failure.getMessage().startsWith("No reservation for order " + orderId);
+    }
+
+    private static final class PeerReservation {
+        private final String fromNode;
+        private final Map<String, Integer> quantities;
+
+        private PeerReservation(String fromNode, Map<String, Integer> quantities) {
+            this.fromNode = fromNode;
+            this.quantities = quantities;
+        }
+    }
+
+    private static final class Outgoing {
+        private final String destination;
+        private final InventoryMessage message;
+
+        private Outgoing(String destination, InventoryMessage message) {
+            this.destination = destination;
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.oms.replication;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Carries batches of InventoryMessages between nodes. Implementations must deliver the batches
+ * sent to one node in the order they were sent, one batch at a time. A batch for a node that
+ * isn't reachable may be lost; senders time out waiting for its responses.
+ */
+public interface InventoryTransport {
+    // Delivers batches addressed to nodeId to receiver
+    void bind(String nodeId, Consumer<List<InventoryMessage>> receiver);
+
+    void send(String nodeId, List<InventoryMessage> batch);
+}
@@ -0,0 +1,90 @@
+package com.oms.replication;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * In-process transport for running several inventory nodes in one JVM, e.g. in tests. Each bound
+ * node receives its batches on a thread of its own, like a network receiver. Batches for a node
+ * that isn't bound, or has been disconnected, are dropped.
+ */
+public class LoopbackTransport implements InventoryTransport, AutoCloseable {
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    @Override
+    public void bind(String nodeId, Consumer<List<InventoryMessage>> receiver) {
+        Endpoint previous = endpoints.put(nodeId, new Endpoint(nodeId, receiver));
+        if (previous != null) {
+            previous.executor.shutdown();
+        }
+    }
+
+    @Override
+    public void send(String nodeId, List<InventoryMessage> batch) {
+        Endpoint endpoint = endpoints.get(nodeId);
+        if (endpoint == null || !endpoint.connected) {
+            dropped.add(batch.size());
+            return;
+        }
+        batches.increment();
+        messages.add(batch.size());
+        try {
+            endpoint.executor.execute(() -> endpoint.receiver.accept(batch));
+        } catch (RejectedExecutionException e) {
+            dropped.add(batch.size());
+        }
+    }
+
+    /**
+     * Simulates a network partition: batches for nodeId are dropped until it is reconnected.
+     */
+    public void setConnected(String nodeId, boolean connected) {
+        Endpoint endpoint = endpoints.get(nodeId);
+        if (endpoint != null) {
+            endpoint.connected = connected;
+        }
+    }
+
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    public long getMessageCount() {
+        return messages.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void close() {
+        for (Endpoint endpoint : endpoints.values()) {
+            endpoint.executor.shutdown();
+        }
+    }
+
+    private static final class Endpoint {
+        private final Consumer<List<InventoryMessage>> receiver;
+        private final ExecutorService executor;
+        private volatile boolean connected = true;
+
+        private Endpoint(String nodeId, Consumer<List<InventoryMessage>> receiver) {
+            this.receiver = receiver;
+            this.executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "loopback-" + nodeId);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.oms.replication;
+
+import com.oms.model.CatalogProduct;
+import com.oms.model.Item;
+import com.oms.model.OrderView;
+import com.oms.repository.ProductRepository;
+import com.oms.service.InventoryManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * InventoryManager that reserves, confirms and releases through an InventoryNode, so an
+ * OrderManagementService or ShardedOrderService built on it sells each product only through the
+ * product's owner. Pass it wherever an InventoryManager is expected.
+ *
+ * Calls wait for the owners' answers. Availability checks during validation read the node's view
+ * of available stock, which for other nodes' products is the last level their owners replicated;
+ * the reservation on the owner is the check that counts. Reservation expiry runs on each owner's
+ * own InventoryManager; expiry listeners registered here hear about every order placed through
+ * the node whose reservation expired on any owner, so a service built on this manager cancels it.
+ * confirmStock returns false when an owner no longer holds its part, after the other owners' parts
+ * are put back. restoreReservation re-creates a recovered order's reservation on its owners.
+ */
+public class ReplicatedInventoryManager extends InventoryManager {
+    private final InventoryNode node;
+
+    public ReplicatedInventoryManager(InventoryNode node, ProductRepository productRepository) {
+        super(productRepository);
+        this.node = node;
+    }
+
+    public InventoryNode getNode() {
+        return node;
+    }
+
+    @Override
+    public boolean checkAvailability(String productId, Integer quantity) {
+        return quantity != null && node.getAvailableStock(productId) >= quantity;
+    }
+
+    @Override
+    public boolean checkAvailability(CatalogProduct product, int quantity) {
+        return node.getAvailableStock(product.getId()) >= quantity;
+    }
+
+    @Override
+    public int getAvailableStock(String productId) {
+        return node.getAvailableStock(productId);
+    }
+
+    @Override
+    public void reserveStock(String orderId, List<Item> items) {
+        join(node.reserveStock(orderId, items));
+    }
+
+    @Override
+    public void reserveStock(String orderId, OrderView order) {
+        join(node.reserveStock(orderId, toItems(order)));
+    }
+
+    // Every order is sent to its owners before waiting on any, so the requests share batches
+    @Override
+    public Map<String, String> reserveStockBatch(Map<String, List<Item>> itemsByOrder) {
+        Map<String, CompletableFuture<Void>> reservations = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Item>> entry : itemsByOrder.entrySet()) {
+            reservations.put(entry.getKey(), node.reserveStock(entry.getKey(), entry.getValue()));
+        }
+        return failures(reservations);
+    }
+
+    @Override
+    public Map<String, String> reserveStockBatch(List<String> orderIds, List<? extends OrderView> orders) {
+        Map<String, CompletableFuture<Void>> reservations = new LinkedHashMap<>();
+        for (int i = 0; i < orderIds.size(); i++) {
+            reservations.put(orderIds.get(i), node.reserveStock(orderIds.get(i), toItems(orders.get(i))));
+        }
+        return failures(reservations);
+    }
+
+    @Override
+    public void releaseStock(String orderId) {
+        node.releaseStock(orderId);
+    }
+
+    // False if the order holds no reservation through this node
+    @Override
+    public boolean confirmStock(String orderId) {
+        try {
+            node.confirmStock(orderId).join();
+            return true;
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IllegalStateException
+                    && e.getCause().getMessage().startsWith("No reservation for order " + orderId)) {
+                return false;
+            }
+            throw unwrap(e);
+        }
+    }
+
+    @Override
+    public void restoreReservation(String orderId, List<Item> items) {
+        join(node.restoreReservation(orderId, items));
+    }
+
+    @Override
+    public void addExpiryListener(Consumer<String> listener) {
+        node.addExpiryListener(listener);
+    }
+
+    private static Map<String, String> failures(Map<String, CompletableFuture<Void>> reservations) {
+        Map<String, String> failures = new LinkedHashMap<>();
+        for (Map.Entry<String, CompletableFuture<Void>> entry : reservations.entrySet()) {
+            try {
+                entry.getValue().join();
+            } catch (CompletionException e) {
+                failures.put(entry.getKey(), String.valueOf(e.getCause().getMessage()));
+            }
+        }
+        return failures;
+    }
+
+    private static void join(CompletableFuture<Void> reservation) {
+        try {
+            reservation.join();
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    // An owner's error is an IllegalStateException, as from a local reservation
+    private static RuntimeException unwrap(CompletionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        return new IllegalStateException(cause.getMessage(), cause);
+    }
+
+    private static List<Item> toItems(OrderView order) {
+        List<Item> items = new ArrayList<>(order.getItemCount());
+        for (int i = 0; i < order.getItemCount(); i++) {
+            items.add(new Item(order.getProductId(i), order.getQuantity(i)));
+        }
+        return items;
+    }
+}
@@ -0,0 +1,40 @@
+package com.oms.repository;
+
+import com.oms.model.CatalogProduct;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of every product's catalog entry at one catalog version, taken with
+ * ProductRepository.getCatalog(). Lookups are plain map reads with no locking, and every entry
+ * comes from the same version, so an order priced from one Catalog is priced consistently.
+ */
+public final class Catalog {
+    private final long version;
+    private final Map<String, CatalogProduct> products;
+
+    // products must not be changed afterwards
+    Catalog(long version, Map<String, CatalogProduct> products) {
+        this.version = version;
+        this.products = products;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    // Null if the product isn't in this version of the catalog
+    public CatalogProduct find(String productId) {
+        return products.get(productId);
+    }
+
+    public Collection<CatalogProduct> getProducts() {
+        return Collections.unmodifiableCollection(products.values());
+    }
+
+    public int size() {
+        return products.size();
+    }
+}
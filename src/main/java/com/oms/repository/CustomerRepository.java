@@ -19,4 +19,8 @@ public class CustomerRepository {
     public List<Customer> findAll() {
         return new ArrayList<>(customers.values());
     }
+
+    public int size() {
+        return customers.size();
+    }
 }
\ No newline at end of file
@@ -1,25 +1,221 @@
 package com.oms.repository;
 
 import com.oms.model.Order;
+import com.oms.model.OrderStatus;
+import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
 
 public class OrderRepository {
-    private final Map<String, Order> orders = new ConcurrentHashMap<>();
+    private final Map<String, Order> orders;
+    // Secondary index: customerId -> orderIds, maintained on save
+    private final Map<String, Set<String>> orderIdsByCustomer = new ConcurrentHashMap<>();
+    // Secondary index: status -> orders ordered by updatedOn, maintained on save
+    private final Map<OrderStatus, NavigableSet<StatusEntry>> ordersByStatus = new EnumMap<>(OrderStatus.class);
+    // Last indexed status entry per order; Order is mutated in place, so the old key can't be read back from it
+    private final Map<String, StatusEntry> statusEntries;
 
+    public OrderRepository() {
+        this(16);
+    }
+
+    // Presized for bulk loads such as recovery, avoiding repeated rehashing
+    public OrderRepository(int expectedOrders) {
+        this.orders = new ConcurrentHashMap<>(expectedOrders);
+        this.statusEntries = new ConcurrentHashMap<>(expectedOrders);
+        for (OrderStatus status : OrderStatus.values()) {
+            ordersByStatus.put(status, new ConcurrentSkipListSet<>());
+        }
+    }
+
+    /**
+     * Stores order unconditionally, as the version after the stored one.
+     */
     public Order save(Order order) {
-        orders.put(order.getOrderId(), order);
+        // compute() serializes saves of the same order, keeping the indexes in step with the map
+        orders.compute(order.getOrderId(), (id, previous) -> {
+            order.setVersion(previous == null ? order.getVersion() + 1 : previous.getVersion() + 1);
+            return store(order, previous);
+        });
         return order;
     }
 
+    /**
+     * Stores order only if the stored order is still at expectedVersion (0 for an order not yet
+     * stored), then sets order's version to expectedVersion + 1. Returns false, storing nothing,
+     * if another save got there first; the caller re-reads and retries.
+     */
+    public boolean saveIfVersion(Order order, long expectedVersion) {
+        boolean[] saved = new boolean[1];
+        orders.compute(order.getOrderId(), (id, previous) -> {
+            long currentVersion = previous == null ? 0 : previous.getVersion();
+            if (currentVersion != expectedVersion) {
+                return previous;
+            }
+            order.setVersion(expectedVersion + 1);
+            saved[0] = true;
+            return store(order, previous);
+        });
+        return saved[0];
+    }
+
+    /**
+     * Stores a recovered order with its recorded version, unless a newer version is already
+     * stored. Returns false if it was older and ignored.
+     */
+    protected boolean restore(Order order) {
+        boolean[] restored = new boolean[1];
+        orders.compute(order.getOrderId(), (id, previous) -> {
+            // Equal versions only come from records written before orders were versioned; the later one wins
+            if (previous != null && previous.getVersion() > order.getVersion()) {
+                return previous;
+            }
+            restored[0] = true;
+            return store(order, previous);
+        });
+        return restored[0];
+    }
+
     public Optional<Order> findById(String orderId) {
         return Optional.ofNullable(orders.get(orderId));
     }
 
+    // Weakly consistent: reflects some, but not necessarily all, concurrent saves
+    public Stream<Order> streamAll() {
+        return orders.values().stream();
+    }
+
+    public int size() {
+        return orders.size();
+    }
+
     public List<Order> findByCustomerId(String customerId) {
-        return orders.values().stream()
-                .filter(order -> order.getCustomerId().equals(customerId))
-                .collect(Collectors.toList());
+        Set<String> orderIds = orderIdsByCustomer.get(customerId);
+        if (orderIds == null) {
+            return new ArrayList<>();
+        }
+
+        List<Order> result = new ArrayList<>(orderIds.size());
+        for (String orderId : orderIds) {
+            Order order = orders.get(orderId);
+            if (order != null && customerId.equals(order.getCustomerId())) {
+                result.add(order);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Lazily streams orders in the given status, oldest updatedOn first.
+     * Either bound may be null; updatedFrom is inclusive and updatedTo exclusive.
+     */
+    public Stream<Order> streamByStatus(OrderStatus status, Instant updatedFrom, Instant updatedTo) {
+        NavigableSet<StatusEntry> entries = ordersByStatus.get(status);
+        if (updatedFrom != null && updatedTo != null) {
+            entries = entries.subSet(StatusEntry.lowerBound(updatedFrom), true, StatusEntry.lowerBound(updatedTo), false);
+        } else if (updatedFrom != null) {
+            entries = entries.tailSet(StatusEntry.lowerBound(updatedFrom), true);
+        } else if (updatedTo != null) {
+            entries = entries.headSet(StatusEntry.lowerBound(updatedTo), false);
+        }
+
+        return entries.stream()
+                .map(entry -> orders.get(entry.orderId))
+                // Skip orders that moved on while the stream was being consumed
+                .filter(order -> order != null && order.getStatus() == status);
+    }
+
+    public List<Order> findByStatus(OrderStatus status, Instant updatedFrom, Instant updatedTo, int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit must not be negative");
+        }
+
+        List<Order> result = new ArrayList<>(Math.min(limit, 1024));
+        streamByStatus(status, updatedFrom, updatedTo)
+                .skip(offset)
+                .limit(limit)
+                .forEach(result::add);
+        return result;
+    }
+
+    public int countByStatus(OrderStatus status) {
+        return ordersByStatus.get(status).size();
+    }
+
+    // Runs inside compute() for order's key
+    private Order store(Order order, Order previous) {
+        String orderId = order.getOrderId();
+        if (previous != null && !Objects.equals(previous.getCustomerId(), order.getCustomerId())) {
+            removeFromCustomerIndex(previous.getCustomerId(), orderId);
+        }
+        addToCustomerIndex(order.getCustomerId(), orderId);
+        updateStatusIndex(order);
+        return order;
+    }
+
+    private void addToCustomerIndex(String customerId, String orderId) {
+        orderIdsByCustomer.compute(customerId, (c, orderIds) -> {
+            Set<String> ids = orderIds != null ? orderIds : ConcurrentHashMap.newKeySet();
+            ids.add(orderId);
+            return ids;
+        });
+    }
+
+    private void removeFromCustomerIndex(String customerId, String orderId) {
+        orderIdsByCustomer.computeIfPresent(customerId, (c, orderIds) -> {
+            orderIds.remove(orderId);
+            return orderIds.isEmpty() ? null : orderIds;
+        });
+    }
+
+    private void updateStatusIndex(Order order) {
+        StatusEntry current = new StatusEntry(order.getStatus(), order.getUpdatedOn(), order.getOrderId());
+        StatusEntry previous = statusEntries.put(order.getOrderId(), current);
+        if (current.equals(previous)) {
+            return;
+        }
+
+        // Add before removing so a concurrent reader never misses the order entirely
+        ordersByStatus.get(current.status).add(current);
+        if (previous != null) {
+            ordersByStatus.get(previous.status).remove(previous);
+        }
+    }
+
+    private static final class StatusEntry implements Comparable<StatusEntry> {
+        private final OrderStatus status;
+        private final Instant updatedOn;
+        private final String orderId;
+
+        private StatusEntry(OrderStatus status, Instant updatedOn, String orderId) {
+            this.status = status;
+            this.updatedOn = updatedOn;
+            this.orderId = orderId;
+        }
+
+        private static StatusEntry lowerBound(Instant updatedOn) {
+            return new StatusEntry(null, updatedOn, "");
+        }
+
+        @Override
+        public int compareTo(StatusEntry other) {
+            int byTime = updatedOn.compareTo(other.updatedOn);
+            return byTime != 0 ? byTime : orderId.compareTo(other.orderId);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof StatusEntry)) return false;
+            StatusEntry other = (StatusEntry) o;
+            return status == other.status && updatedOn.equals(other.updatedOn) && orderId.equals(other.orderId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(status, updatedOn, orderId);
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,22 +1,142 @@
 package com.oms.repository;
 
+import com.oms.model.CatalogProduct;
 import com.oms.model.Product;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Products, split into a read-mostly catalog and separate stock counters.
+ *
+ * Saving a product whose name, price or active flag changed publishes a new catalog version.
+ * getCatalog() returns an immutable Catalog, rebuilt at most once per version, so pricing reads
+ * neither lock nor see a half-applied change. Stock lives in one counter per product, read with
+ * getStock and changed with setStock (a restock to an absolute level) and adjustStock. A product's
+ * stockQuantity only seeds its counter on first save; saving it again never touches stock, so a
+ * product read with findById, whose stockQuantity is the stock level at the time of the lookup,
+ * can be saved back after a price change without undoing sales made in between. Stock changes
+ * never touch the catalog.
+ */
 public class ProductRepository {
     private final Map<String, Product> products = new ConcurrentHashMap<>();
+    private final Map<String, CatalogProduct> catalogEntries = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> stock = new ConcurrentHashMap<>();
+    // Guarded by this
+    private long catalogVersion;
+    // Null when a save has changed the catalog since it was last built
+    private volatile Catalog catalog = new Catalog(0, Collections.emptyMap());
 
     public Product save(Product product) {
-        products.put(product.getId(), product);
+        Product stored = withoutStock(product);
+        products.put(product.getId(), stored);
+        publish(stored);
+        if (product.getStockQuantity() != null) {
+            stock.putIfAbsent(product.getId(), new AtomicInteger(product.getStockQuantity()));
+        }
         return product;
     }
 
+    // A copy carrying the current stock level; changing it changes nothing until it is saved
     public Optional<Product> findById(String productId) {
-        return Optional.ofNullable(products.get(productId));
+        Product stored = products.get(productId);
+        return stored == null ? Optional.empty() : Optional.of(withCurrentStock(stored));
+    }
+
+    public boolean existsById(String productId) {
+        return products.containsKey(productId);
     }
 
     public List<Product> findAll() {
-        return new ArrayList<>(products.values());
+        List<Product> all = new ArrayList<>(products.size());
+        for (Product stored : products.values()) {
+            all.add(withCurrentStock(stored));
+        }
+        return all;
+    }
+
+    public int size() {
+        return products.size();
+    }
+
+    /**
+     * The current catalog. Cheap to call: it is rebuilt only after a save changed the catalog.
+     */
+    public Catalog getCatalog() {
+        Catalog current = catalog;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (catalog == null) {
+                catalog = new Catalog(catalogVersion, new HashMap<>(catalogEntries));
+            }
+            return catalog;
+        }
+    }
+
+    // 0 for a product without stock
+    public int getStock(String productId) {
+        AtomicInteger counter = stock.get(productId);
+        return counter == null ? 0 : counter.get();
+    }
+
+    public void setStock(String productId, int quantity) {
+        counter(productId).set(quantity);
+    }
+
+    // Returns the new stock level
+    public int adjustStock(String productId, int delta) {
+        return counter(productId).addAndGet(delta);
+    }
+
+    /**
+     * adjustStock for callers holding locks: the change is applied before this returns, but a
+     * repository that persists stock may complete the future only once the change is durable.
+     * Waiting for it after releasing the locks keeps them out of the write.
+     */
+    public CompletableFuture<Integer> adjustStockAsync(String productId, int delta) {
+        return CompletableFuture.completedFuture(adjustStock(productId, delta));
+    }
+
+    /**
+     * Applies a recovered product, including its stock level, keeping the catalog in step.
+     */
+    protected void restore(Product product) {
+        Product stored = withoutStock(product);
+        products.put(product.getId(), stored);
+        publish(stored);
+        if (product.getStockQuantity() != null) {
+            counter(product.getId()).set(product.getStockQuantity());
+        }
+    }
+
+    private synchronized void publish(Product product) {
+        CatalogProduct current = catalogEntries.get(product.getId());
+        if (current != null && current.matches(product)) {
+            return;
+        }
+        catalogEntries.put(product.getId(), new CatalogProduct(product, ++catalogVersion));
+        catalog = null;
+    }
+
+    // The stock level lives only in the counter, so the stored copy can't go stale
+    private static Product withoutStock(Product product) {
+        Product stored = new Product(product.getId(), product.getName(), product.getPrice(), null);
+        stored.setActive(product.isActive());
+        return stored;
+    }
+
+    // A copy of product whose stockQuantity is the current stock level
+    protected Product withCurrentStock(Product product) {
+        Product copy = new Product(product.getId(), product.getName(), product.getPrice(),
+                getStock(product.getId()));
+        copy.setActive(product.isActive());
+        return copy;
+    }
+
+    private AtomicInteger counter(String productId) {
+        return stock.computeIfAbsent(productId, id -> new AtomicInteger());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,49 @@
+package com.oms.service;
+
+import com.oms.model.Order;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs OrderManagementService.processOrder off the caller thread. At most maxInFlight orders
+ * are accepted at once; beyond that processOrderAsync fails fast with RejectedExecutionException
+ * so callers can shed load or retry instead of piling up work.
+ */
+public class AsyncOrderProcessor {
+    private final OrderManagementService orderService;
+    private final Executor executor;
+    private final Semaphore inFlight;
+
+    public AsyncOrderProcessor(OrderManagementService orderService, Executor executor, int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1");
+        }
+        this.orderService = orderService;
+        this.executor = executor;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    public CompletableFuture<Order> processOrderAsync(String orderId) {
+        if (!inFlight.tryAcquire()) {
+            return CompletableFuture.failedFuture(
+                    new RejectedExecutionException("Too many orders in flight, rejected order " + orderId));
+        }
+
+        CompletableFuture<Order> future;
+        try {
+            future = CompletableFuture.supplyAsync(() -> orderService.processOrder(orderId), executor);
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            return CompletableFuture.failedFuture(e);
+        }
+        // Release before dependants run, so a completed future always frees its permit
+        return future.whenComplete((order, error) -> inFlight.release());
+    }
+
+    public int availablePermits() {
+        return inFlight.availablePermits();
+    }
+}
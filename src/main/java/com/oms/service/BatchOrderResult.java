@@ -0,0 +1,40 @@
+package com.oms.service;
+
+import com.oms.model.Order;
+
+public class BatchOrderResult {
+    private final String orderId;
+    private final Order order;
+    private final String error;
+
+    private BatchOrderResult(String orderId, Order order, String error) {
+        this.orderId = orderId;
+        this.order = order;
+        this.error = error;
+    }
+
+    public static BatchOrderResult success(Order order) {
+        return new BatchOrderResult(order.getOrderId(), order, null);
+    }
+
+    public static BatchOrderResult failure(String orderId, Order order, String error) {
+        return new BatchOrderResult(orderId, order, error);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    // Null when the order could not be created
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public Order getOrder() {
+        return order;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,155 @@
+package com.oms.service;
+
+import com.oms.model.Customer;
+import com.oms.repository.CustomerRepository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks each customer's credit as used (paid orders) plus held (validated, unpaid orders).
+ *
+ * Per customer, used + held is one AtomicLong in öre. A hold is a compare-and-set that only
+ * succeeds while the new total stays within the credit limit, so concurrent orders can never
+ * overspend, and customers never contend with each other. Capturing a hold on payment moves it
+ * into Customer.usedCredit; releasing it on cancellation gives the credit back.
+ *
+ * An account starts from the customer's usedCredit the first time the ledger sees the customer.
+ */
+public class CreditLedger {
+    private final CustomerRepository customerRepository;
+    private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+    private final Map<String, Hold> holds = new ConcurrentHashMap<>();
+
+    public CreditLedger(CustomerRepository customerRepository) {
+        this.customerRepository = customerRepository;
+    }
+
+    /**
+     * Credit limit minus used and held credit.
+     */
+    public BigDecimal getAvailableCredit(Customer customer) {
+        long available = toOre(customer.getCreditLimit(), RoundingMode.FLOOR) - account(customer).committed.get();
+        return BigDecimal.valueOf(available, 2);
+    }
+
+    /**
+     * Holds amount of the customer's credit for the order if it fits under the credit limit.
+     * Returns false, holding nothing, if it doesn't. Holding again for the same order replaces
+     * the earlier hold.
+     */
+    public boolean tryHold(Customer customer, String orderId, BigDecimal amount) {
+        release(orderId);
+
+        long limit = toOre(customer.getCreditLimit(), RoundingMode.FLOOR);
+        long ore = toOre(amount, RoundingMode.CEILING);
+        Account account = account(customer);
+        while (true) {
+            long committed = account.committed.get();
+            if (committed + ore > limit) {
+                return false;
+            }
+            if (account.committed.compareAndSet(committed, committed + ore)) {
+                break;
+            }
+        }
+
+        holds.put(orderId, new Hold(customer.getCustomerId(), account, ore));
+        return true;
+    }
+
+    /**
+     * Re-creates a hold during recovery, without checking the limit.
+     */
+    public void restoreHold(Customer customer, String orderId, BigDecimal amount) {
+        release(orderId);
+        Account account = account(customer);
+        long ore = toOre(amount, RoundingMode.CEILING);
+        account.committed.addAndGet(ore);
+        holds.put(orderId, new Hold(customer.getCustomerId(), account, ore));
+    }
+
+    /**
+     * Turns the order's hold into used credit and saves the customer. Returns false if the order
+     * holds no credit.
+     */
+    public boolean capture(String orderId) {
+        Hold hold = holds.remove(orderId);
+        if (hold == null) {
+            return false;
+        }
+
+        // used + held is unchanged; only the customer's usedCredit moves
+        long used = hold.account.used.addAndGet(hold.ore);
+        customerRepository.findById(hold.customerId).ifPresent(customer -> {
+            synchronized (hold.account) {
+                // Concurrent captures may finish out of order; never move usedCredit backwards
+                if (used > hold.account.savedUsed) {
+                    hold.account.savedUsed = used;
+                    customer.setUsedCredit(BigDecimal.valueOf(used, 2));
+                    customerRepository.save(customer);
+                }
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Gives the order's held credit back. A no-op if it holds none.
+     */
+    public void release(String orderId) {
+        Hold hold = holds.remove(orderId);
+        if (hold != null) {
+            hold.account.committed.addAndGet(-hold.ore);
+        }
+    }
+
+    public boolean isHeld(String orderId) {
+        return holds.containsKey(orderId);
+    }
+
+    public BigDecimal getHeldCredit(String orderId) {
+        Hold hold = holds.get(orderId);
+        return hold == null ? BigDecimal.ZERO.setScale(2) : BigDecimal.valueOf(hold.ore, 2);
+    }
+
+    private Account account(Customer customer) {
+        return accounts.computeIfAbsent(customer.getCustomerId(), id -> {
+            BigDecimal usedCredit = customer.getUsedCredit() == null ? BigDecimal.ZERO : customer.getUsedCredit();
+            return new Account(toOre(usedCredit, RoundingMode.CEILING));
+        });
+    }
+
+    private static long toOre(BigDecimal amount, RoundingMode rounding) {
+        return amount.setScale(2, rounding).unscaledValue().longValueExact();
+    }
+
+    private static final class Account {
+        // Used plus held, in öre
+        private final AtomicLong committed;
+        private final AtomicLong used;
+        // Last used value written to the customer; guarded by the account's monitor
+        private long savedUsed;
+
+        private Account(long used) {
+            this.committed = new AtomicLong(used);
+            this.used = new AtomicLong(used);
+            this.savedUsed = used;
+        }
+    }
+
+    private static final class Hold {
+        private final String customerId;
+        private final Account account;
+        private final long ore;
+
+        private Hold(String customerId, Account account, long ore) {
+            this.customerId = customerId;
+            this.account = account;
+            this.ore = ore;
+        }
+    }
+}
@@ -1,81 +1,466 @@
 package com.oms.service;
 
+import com.oms.model.CatalogProduct;
 import com.oms.model.Item;
-import com.oms.model.Product;
+import com.oms.model.OrderView;
 import com.oms.repository.ProductRepository;
 import com.oms.exception.ResourceNotFoundException;
+import com.oms.metrics.OrderMetrics;
+import com.oms.tracing.OrderTracer;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
 
 public class InventoryManager {
+    private static final long EXPIRY_TICK_MILLIS = 10;
+    private static final int EXPIRY_WHEEL_SIZE = 512;
+
     private final ProductRepository productRepository;
-    private final Map<String, Map<String, Integer>> reservations = new ConcurrentHashMap<>();
+    private final Map<String, Reservation> reservations = new ConcurrentHashMap<>();
+    // Running reserved total per product, kept in step with reservations
+    private final Map<String, AtomicInteger> reservedByProduct = new ConcurrentHashMap<>();
+    // One lock per product; multi-product operations take them in sorted productId order
+    private final Map<String, ReentrantLock> productLocks = new ConcurrentHashMap<>();
+
+    // Null when reservations never expire
+    private final TimingWheel<Reservation> expiryWheel;
+    private final long reservationTtlMillis;
+    private final LongSupplier clock;
+    private final List<Consumer<String>> expiryListeners = new CopyOnWriteArrayList<>();
+    private final LongAdder confirmedReservations = new LongAdder();
+    private final LongAdder releasedReservations = new LongAdder();
+    private final LongAdder expiredReservations = new LongAdder();
+    private final OrderMetrics metrics;
+    private final OrderTracer tracer;
 
     public InventoryManager(ProductRepository productRepository) {
+        this(productRepository, null, System::currentTimeMillis);
+    }
+
+    /**
+     * Reservations expire reservationTtl after they are made unless confirmed or released first.
+     * Expiry happens when expireReservations runs, normally from a ReservationExpiryScheduler.
+     */
+    public InventoryManager(ProductRepository productRepository, Duration reservationTtl) {
+        this(productRepository, reservationTtl, System::currentTimeMillis);
+    }
+
+    /**
+     * Records reservation latency, product lock contention and the open reservation count in
+     * metrics. reservationTtl may be null for reservations that never expire.
+     */
+    public InventoryManager(ProductRepository productRepository, Duration reservationTtl, OrderMetrics metrics) {
+        this(productRepository, reservationTtl, System::currentTimeMillis, metrics);
+    }
+
+    InventoryManager(ProductRepository productRepository, Duration reservationTtl, LongSupplier clock) {
+        this(productRepository, reservationTtl, clock, OrderMetrics.disabled());
+    }
+
+    InventoryManager(ProductRepository productRepository, Duration reservationTtl, LongSupplier clock,
+                     OrderMetrics metrics) {
         this.productRepository = productRepository;
+        this.metrics = metrics;
+        this.tracer = metrics.getTracer();
+        this.clock = clock;
+        this.reservationTtlMillis = reservationTtl == null ? 0 : reservationTtl.toMillis();
+        this.expiryWheel = reservationTtl == null ? null
+                : new TimingWheel<>(EXPIRY_TICK_MILLIS, EXPIRY_WHEEL_SIZE, clock.getAsLong());
+        metrics.registerGauge("reservations", reservations::size);
     }
 
-    public synchronized boolean checkAvailability(String productId, Integer quantity) {
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new ResourceNotFoundException("Product " + productId + " not found"));
+    public boolean checkAvailability(String productId, Integer quantity) {
+        requireProduct(productId);
+        return isAvailable(productId, quantity);
+    }
 
-        int reservedQuantity = getReservedQuantity(productId);
-        int availableStock = product.getStockQuantity() - reservedQuantity;
+    // For callers that already hold the catalog entry, saving a repository lookup
+    public boolean checkAvailability(CatalogProduct product, int quantity) {
+        return isAvailable(product.getId(), quantity);
+    }
 
-        return availableStock >= quantity;
+    private boolean isAvailable(String productId, int quantity) {
+        long span = tracer.startSpan();
+        ReentrantLock lock = lockFor(productId);
+        acquire(lock);
+        try {
+            return availableStock(productId) >= quantity;
+        } finally {
+            lock.unlock();
+            tracer.endSpan("checkAvailability", span);
+        }
     }
 
-    public synchronized void reserveStock(String orderId, List<Item> items) {
-        Map<String, Integer> orderReservations = new ConcurrentHashMap<>();
+    // Stock not yet reserved by any order; 0 for an unknown product
+    public int getAvailableStock(String productId) {
+        ReentrantLock lock = lockFor(productId);
+        acquire(lock);
+        try {
+            return availableStock(productId);
+        } finally {
+            lock.unlock();
+        }
+    }
 
-        // First check all items are available
-        for (Item item : items) {
-            if (!checkAvailability(item.getProductId(), item.getQuantity())) {
-                throw new IllegalStateException("Insufficient stock for product " + item.getProductId());
+    public void reserveStock(String orderId, List<Item> items) {
+        reserveStock(orderId, toReservations(items));
+    }
+
+    // Reserves the items of an order snapshot, without copying them into Items first
+    public void reserveStock(String orderId, OrderView order) {
+        reserveStock(orderId, toReservations(order));
+    }
+
+    private void reserveStock(String orderId, Map<String, Integer> orderReservations) {
+        long span = tracer.startTrace(orderId);
+        long start = metrics.startTimer();
+        try {
+            for (String productId : orderReservations.keySet()) {
+                requireProduct(productId);
+            }
+
+            List<ReentrantLock> locks = lockAll(orderReservations.keySet());
+            try {
+                String shortProductId = tryReserve(orderReservations);
+                if (shortProductId != null) {
+                    throw new IllegalStateException("Insufficient stock for product " + shortProductId);
+                }
+            } finally {
+                unlockAll(locks);
             }
+
+            recordReservation(orderId, orderReservations);
+        } finally {
+            metrics.recordStage(OrderMetrics.Stage.RESERVE_STOCK, start);
+            tracer.endSpan("reserveStock", span);
         }
+    }
 
-        // Reserve all items
+    /**
+     * Reserves stock for many orders in one pass: every product in the batch is looked up and
+     * locked once, then orders are reserved in iteration order, each one all-or-nothing.
+     * Returns the orders that could not be reserved, mapped to the reason.
+     */
+    public Map<String, String> reserveStockBatch(Map<String, List<Item>> itemsByOrder) {
+        Map<String, Map<String, Integer>> batch = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Item>> entry : itemsByOrder.entrySet()) {
+            batch.put(entry.getKey(), toReservations(entry.getValue()));
+        }
+        return reserveBatch(batch);
+    }
+
+    // Same as above for order snapshots, without copying them into Items first
+    public Map<String, String> reserveStockBatch(List<String> orderIds, List<? extends OrderView> orders) {
+        Map<String, Map<String, Integer>> batch = new LinkedHashMap<>();
+        for (int i = 0; i < orderIds.size(); i++) {
+            batch.put(orderIds.get(i), toReservations(orders.get(i)));
+        }
+        return reserveBatch(batch);
+    }
+
+    private Map<String, String> reserveBatch(Map<String, Map<String, Integer>> batch) {
+        Set<String> productIds = new TreeSet<>();
+        for (Map<String, Integer> orderReservations : batch.values()) {
+            productIds.addAll(orderReservations.keySet());
+        }
+
+        Set<String> products = new HashSet<>();
+        for (String productId : productIds) {
+            if (productRepository.existsById(productId)) {
+                products.add(productId);
+            }
+        }
+
+        Map<String, String> failures = new LinkedHashMap<>();
+        List<Map.Entry<String, Map<String, Integer>>> reserved = new ArrayList<>(batch.size());
+
+        List<ReentrantLock> locks = lockAll(productIds);
+        try {
+            for (Map.Entry<String, Map<String, Integer>> entry : batch.entrySet()) {
+                String missingProductId = firstMissing(entry.getValue().keySet(), products);
+                if (missingProductId != null) {
+                    failures.put(entry.getKey(), "Product " + missingProductId + " not found");
+                    continue;
+                }
+
+                String shortProductId = tryReserve(entry.getValue());
+                if (shortProductId != null) {
+                    failures.put(entry.getKey(), "Insufficient stock for product " + shortProductId);
+                } else {
+                    reserved.add(entry);
+                }
+            }
+        } finally {
+            unlockAll(locks);
+        }
+
+        for (Map.Entry<String, Map<String, Integer>> entry : reserved) {
+            recordReservation(entry.getKey(), entry.getValue());
+        }
+        return failures;
+    }
+
+    /**
+     * Re-creates a reservation during recovery, without checking availability.
+     */
+    public void restoreReservation(String orderId, List<Item> items) {
+        Map<String, Integer> orderReservations = toReservations(items);
+        adjustReserved(orderReservations, 1);
+        recordReservation(orderId, orderReservations);
+    }
+
+    public void releaseStock(String orderId) {
+        Reservation reservation = reservations.remove(orderId);
+        if (reservation != null) {
+            reservation.cancelExpiry();
+            adjustReserved(reservation.quantities, -1);
+            releasedReservations.increment();
+        }
+    }
+
+    /**
+     * Deducts the order's reserved stock from inventory. Returns false if the order holds no
+     * reservation: it was never reserved, or was already confirmed, released or expired.
+     */
+    public boolean confirmStock(String orderId) {
+        // Only the caller that removes the reservation gets to deduct it
+        Reservation reservation = reservations.remove(orderId);
+        if (reservation == null) {
+            return false;
+        }
+        reservation.cancelExpiry();
+        Map<String, Integer> orderReservations = reservation.quantities;
+
+        long span = tracer.startTrace(orderId);
+        try {
+            List<CompletableFuture<Integer>> deductions = new ArrayList<>(orderReservations.size());
+            List<ReentrantLock> locks = lockAll(orderReservations.keySet());
+            try {
+                // Deduct from actual inventory and drop the reservation in one step per product
+                for (Map.Entry<String, Integer> entry : orderReservations.entrySet()) {
+                    String productId = entry.getKey();
+                    Integer quantity = entry.getValue();
+
+                    deductions.add(productRepository.adjustStockAsync(productId, -quantity));
+                    reservedByProduct.get(productId).addAndGet(-quantity);
+                }
+            } finally {
+                unlockAll(locks);
+            }
+
+            // A persistent repository may still be writing the deductions; wait without the locks
+            for (CompletableFuture<Integer> deduction : deductions) {
+                try {
+                    deduction.join();
+                } catch (CompletionException e) {
+                    throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+                }
+            }
+        } finally {
+            tracer.endSpan("confirmStock", span);
+        }
+        confirmedReservations.increment();
+        return true;
+    }
+
+    /**
+     * Releases every reservation whose TTL has run out and tells the expiry listeners about each
+     * order. Returns how many expired. A no-op when reservations don't expire.
+     */
+    public int expireReservations() {
+        if (expiryWheel == null) {
+            return 0;
+        }
+
+        int expired = 0;
+        for (Reservation reservation : expiryWheel.advanceTo(clock.getAsLong())) {
+            // Loses to a confirm, release or newer reservation that got there first
+            if (!reservations.remove(reservation.orderId, reservation)) {
+                continue;
+            }
+            adjustReserved(reservation.quantities, -1);
+            expiredReservations.increment();
+            expired++;
+            for (Consumer<String> listener : expiryListeners) {
+                try {
+                    listener.accept(reservation.orderId);
+                } catch (RuntimeException e) {
+                    System.err.println("Reservation expiry listener failed for order "
+                            + reservation.orderId + ": " + e.getMessage());
+                }
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Registers a callback that receives the orderId of every reservation that expires.
+     */
+    public void addExpiryListener(Consumer<String> listener) {
+        expiryListeners.add(listener);
+    }
+
+    public long getConfirmedReservationCount() {
+        return confirmedReservations.sum();
+    }
+
+    public long getReleasedReservationCount() {
+        return releasedReservations.sum();
+    }
+
+    public long getExpiredReservationCount() {
+        return expiredReservations.sum();
+    }
+
+    // Reservations still waiting to expire
+    public int getPendingExpiryCount() {
+        return expiryWheel == null ? 0 : expiryWheel.size();
+    }
+
+    private Map<String, Integer> toReservations(List<Item> items) {
+        // Sorted by productId so concurrent reservations always lock in the same order
+        Map<String, Integer> orderReservations = new TreeMap<>();
         for (Item item : items) {
             orderReservations.put(item.getProductId(), item.getQuantity());
         }
+        return orderReservations;
+    }
 
-        reservations.put(orderId, orderReservations);
+    private Map<String, Integer> toReservations(OrderView order) {
+        Map<String, Integer> orderReservations = new TreeMap<>();
+        for (int i = 0; i < order.getItemCount(); i++) {
+            orderReservations.put(order.getProductId(i), order.getQuantity(i));
+        }
+        return orderReservations;
     }
 
-    public synchronized void releaseStock(String orderId) {
-        reservations.remove(orderId);
+    // Caller must hold the locks of every product in orderReservations
+    private String tryReserve(Map<String, Integer> orderReservations) {
+        // First check all items are available
+        for (Map.Entry<String, Integer> entry : orderReservations.entrySet()) {
+            if (availableStock(entry.getKey()) < entry.getValue()) {
+                return entry.getKey();
+            }
+        }
+
+        // Reserve all items
+        adjustReserved(orderReservations, 1);
+        return null;
     }
 
-    public synchronized void confirmStock(String orderId) {
-        Map<String, Integer> orderReservations = reservations.get(orderId);
-        if (orderReservations == null) {
-            return;
+    private void recordReservation(String orderId, Map<String, Integer> orderReservations) {
+        Reservation reservation = new Reservation(orderId, orderReservations);
+        if (expiryWheel != null) {
+            reservation.expiry = expiryWheel.schedule(reservation, clock.getAsLong() + reservationTtlMillis);
         }
 
-        // Deduct from actual inventory
-        for (Map.Entry<String, Integer> entry : orderReservations.entrySet()) {
-            String productId = entry.getKey();
-            Integer quantity = entry.getValue();
+        // Replace any earlier reservation for the same order
+        Reservation previous = reservations.put(orderId, reservation);
+        if (previous != null) {
+            previous.cancelExpiry();
+            adjustReserved(previous.quantities, -1);
+        }
+    }
 
-            Product product = productRepository.findById(productId)
-                    .orElseThrow(() -> new ResourceNotFoundException("Product " + productId + " not found"));
+    private static String firstMissing(Set<String> productIds, Set<String> products) {
+        for (String productId : productIds) {
+            if (!products.contains(productId)) {
+                return productId;
+            }
+        }
+        return null;
+    }
 
-            product.setStockQuantity(product.getStockQuantity() - quantity);
-            productRepository.save(product);
+    private void requireProduct(String productId) {
+        if (!productRepository.existsById(productId)) {
+            throw new ResourceNotFoundException("Product " + productId + " not found");
         }
+    }
 
-        // Remove reservation
-        reservations.remove(orderId);
+    private int availableStock(String productId) {
+        return productRepository.getStock(productId) - getReservedQuantity(productId);
     }
 
     private int getReservedQuantity(String productId) {
-        int total = 0;
-        for (Map<String, Integer> orderReservation : reservations.values()) {
-            total += orderReservation.getOrDefault(productId, 0);
+        AtomicInteger reserved = reservedByProduct.get(productId);
+        return reserved == null ? 0 : reserved.get();
+    }
+
+    private void adjustReserved(Map<String, Integer> orderReservations, int sign) {
+        for (Map.Entry<String, Integer> entry : orderReservations.entrySet()) {
+            reservedByProduct.computeIfAbsent(entry.getKey(), id -> new AtomicInteger())
+                    .addAndGet(sign * entry.getValue());
+        }
+    }
+
+    private static final class Reservation {
+        private final String orderId;
+        private final Map<String, Integer> quantities;
+        // Set before the reservation is published; null when reservations don't expire
+        private TimingWheel.Timeout<Reservation> expiry;
+
+        private Reservation(String orderId, Map<String, Integer> quantities) {
+            this.orderId = orderId;
+            this.quantities = quantities;
+        }
+
+        private void cancelExpiry() {
+            if (expiry != null) {
+                expiry.cancel();
+            }
+        }
+    }
+
+    private ReentrantLock lockFor(String productId) {
+        return productLocks.computeIfAbsent(productId, id -> new ReentrantLock());
+    }
+
+    private List<ReentrantLock> lockAll(Iterable<String> sortedProductIds) {
+        List<ReentrantLock> locks = new ArrayList<>();
+        try {
+            for (String productId : sortedProductIds) {
+                ReentrantLock lock = lockFor(productId);
+                acquire(lock);
+                locks.add(lock);
+            }
+        } catch (RuntimeException e) {
+            unlockAll(locks);
+            throw e;
+        }
+        return locks;
+    }
+
+    // Takes lock, recording the wait in metrics if another thread holds it
+    private void acquire(ReentrantLock lock) {
+        if (!lock.tryLock()) {
+            long span = tracer.startSpan();
+            long start = metrics.startTimer();
+            lock.lock();
+            metrics.recordLockWait(start);
+            tracer.endSpan("waitForProductLock", span);
+        }
+    }
+
+    private void unlockAll(List<ReentrantLock> locks) {
+        for (int i = locks.size() - 1; i >= 0; i--) {
+            locks.get(i).unlock();
         }
-        return total;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,106 @@
+package com.oms.service;
+
+import com.oms.model.Customer;
+import com.oms.model.Order;
+import com.oms.model.OrderView;
+
+import java.math.BigDecimal;
+
+/**
+ * PricingEngine that does the arithmetic in long öre instead of BigDecimal.
+ * Drop-in replacement: pass it wherever a PricingEngine is expected.
+ *
+ * The calculation mirrors PricingEngine exactly. Every intermediate value is kept as an
+ * exact integer in a finer unit:
+ *   base      öre                      sum of line prices
+ *   discounted öre x 100 (1e-4 SEK)    base x (100 - customer discount %)
+ *   final     öre x 10000 (1e-6 SEK)   discounted x (100 - bulk discount %) when over the threshold
+ * Only two values are rounded, both HALF_UP to whole öre, as in PricingEngine:
+ *   net   = round(final / 1.25)
+ *   total = round(final), vat = round(final - net)
+ * Orders whose line prices have more than two decimals, or whose totals would overflow a long,
+ * fall back to the BigDecimal implementation so results stay identical.
+ */
+public class MinorUnitPricingEngine extends PricingEngine {
+    private static final long ORE_PER_SEK = 100;
+    private static final long FINAL_UNITS_PER_ORE = 10_000;
+    private static final long BULK_KEEP_PERCENT = 100 - percent(BULK_DISCOUNT_RATE);
+    // Threshold in the 1e-4 SEK unit of the discounted total
+    private static final long BULK_THRESHOLD_UNITS =
+            BULK_DISCOUNT_THRESHOLD.movePointRight(4).longValueExact();
+    // final / VAT_MULTIPLIER as final x VAT_NUM / VAT_DEN, e.g. 1.25 -> 4 / 5
+    private static final long VAT_NUM;
+    private static final long VAT_DEN;
+
+    static {
+        long multiplier = VAT_MULTIPLIER.movePointRight(2).longValueExact();
+        long gcd = gcd(100, multiplier);
+        VAT_NUM = 100 / gcd;
+        VAT_DEN = multiplier / gcd;
+    }
+
+    @Override
+    public PricingResult calculatePricing(Order order, Customer customer) {
+        OrderView view = order.snapshot();
+        BigDecimal discountRate = customer.getType().getDiscountRate();
+        if (discountRate.scale() > 2) {
+            return super.calculatePricing(order, customer);
+        }
+
+        try {
+            long baseOre = 0;
+            for (int i = 0; i < view.getItemCount(); i++) {
+                long lineOre = toOre(view.getLinePrice(i));
+                if (lineOre == Long.MIN_VALUE) {
+                    return super.calculatePricing(order, customer);
+                }
+                baseOre = Math.addExact(baseOre, lineOre);
+            }
+
+            long discounted = Math.multiplyExact(baseOre, 100 - percent(discountRate));
+            long finalUnits = discounted > BULK_THRESHOLD_UNITS
+                    ? Math.multiplyExact(discounted, BULK_KEEP_PERCENT)
+                    : Math.multiplyExact(discounted, 100);
+
+            long netOre = roundHalfUp(Math.multiplyExact(finalUnits, VAT_NUM),
+                    Math.multiplyExact(FINAL_UNITS_PER_ORE, VAT_DEN));
+            long totalOre = roundHalfUp(finalUnits, FINAL_UNITS_PER_ORE);
+            long vatOre = roundHalfUp(finalUnits - netOre * FINAL_UNITS_PER_ORE, FINAL_UNITS_PER_ORE);
+
+            return new PricingResult(BigDecimal.valueOf(totalOre, 2), BigDecimal.valueOf(vatOre, 2));
+        } catch (ArithmeticException overflow) {
+            return super.calculatePricing(order, customer);
+        }
+    }
+
+    // Long.MIN_VALUE when the amount isn't a whole number of öre
+    private static long toOre(BigDecimal amount) {
+        int scale = amount.scale();
+        if (scale == 0) {
+            // Compact scale-0 values convert without allocating
+            return Math.multiplyExact(amount.longValueExact(), ORE_PER_SEK);
+        }
+        if (scale < 0 || scale > 2) {
+            return Long.MIN_VALUE;
+        }
+        return amount.movePointRight(2).longValueExact();
+    }
+
+    private static long percent(BigDecimal rate) {
+        return rate.movePointRight(2).longValueExact();
+    }
+
+    // Divides rounding half away from zero, like RoundingMode.HALF_UP
+    static long roundHalfUp(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (Math.abs(remainder) * 2 >= divisor) {
+            quotient += Long.signum(dividend);
+        }
+        return quotient;
+    }
+
+    private static long gcd(long a, long b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+}
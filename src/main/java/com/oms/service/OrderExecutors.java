@@ -0,0 +1,62 @@
+package com.oms.service;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class OrderExecutors {
+
+    private OrderExecutors() {
+    }
+
+    /**
+     * Virtual thread per task when running on JDK 21+, otherwise a bounded pool sized to the machine.
+     */
+    public static ExecutorService defaultExecutor() {
+        ExecutorService virtual = virtualThreadExecutor();
+        if (virtual != null) {
+            return virtual;
+        }
+        int threads = Runtime.getRuntime().availableProcessors() * 2;
+        return bounded(threads, threads * 64);
+    }
+
+    /**
+     * Fixed pool with a bounded queue. Submissions beyond the queue capacity are rejected
+     * with RejectedExecutionException instead of queueing without limit.
+     */
+    public static ExecutorService bounded(int threads, int queueCapacity) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new OrderThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    // Looked up reflectively so the project still compiles for Java 11
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            return (ExecutorService) MethodHandles.publicLookup()
+                    .findStatic(java.util.concurrent.Executors.class, "newVirtualThreadPerTaskExecutor",
+                            MethodType.methodType(ExecutorService.class))
+                    .invoke();
+        } catch (Throwable e) {
+            // Not available before JDK 21 (or only as a disabled preview on 19/20)
+            return null;
+        }
+    }
+
+    private static final class OrderThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "order-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.oms.service;
+
+import com.oms.model.OrderId;
+
+import java.lang.ref.Cleaner;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Generates time-ordered OrderIds without any shared state on the hot path: each thread takes a
+ * slot the first time it generates an id, then numbers its own ids within each millisecond. Generating an id never
+ * blocks or waits for the clock. If the clock steps back, a thread keeps using its last
+ * millisecond, so its ids stay ordered.
+ *
+ * Slots and sequences belong to the thread, not the generator, so all generators in a JVM share
+ * them: no two ids generated in one JVM are equal, whatever their nodes. The node keeps ids from
+ * different JVMs apart, so every running instance needs a node number of its own. Ids are unique
+ * across instances as long as that holds and the clock doesn't step back across a restart of the
+ * same node.
+ *
+ * Once a thread has ended and been collected, its slot goes back to a free list together with the
+ * slot's last millisecond and sequence, and the next thread to take it carries on from there. So
+ * short-lived threads, virtual ones included, don't use up the 2^24 slots; only 2^24 threads
+ * holding slots at once would, and generating an id then throws IllegalStateException.
+ */
+public class OrderIdGenerator implements Supplier<String> {
+    private static final int MAX_THREAD_SLOTS = 1 << OrderId.THREAD_SLOT_BITS;
+    private static final AtomicInteger NEXT_THREAD_SLOT = new AtomicInteger();
+    private static final Queue<Sequence> FREE_SEQUENCES = new ConcurrentLinkedQueue<>();
+    private static final Cleaner THREAD_CLEANER = Cleaner.create();
+    private static final ThreadLocal<Sequence> SEQUENCES = ThreadLocal.withInitial(OrderIdGenerator::takeSequence);
+
+    private final int node;
+    private final LongSupplier clock;
+
+    public OrderIdGenerator(int node) {
+        this(node, System::currentTimeMillis);
+    }
+
+    OrderIdGenerator(int node, LongSupplier clock) {
+        if (node < 0 || node > OrderId.MAX_NODE) {
+            throw new IllegalArgumentException("node must be between 0 and " + OrderId.MAX_NODE);
+        }
+        this.node = node;
+        this.clock = clock;
+    }
+
+    public int getNode() {
+        return node;
+    }
+
+    public OrderId next() {
+        Sequence sequence = SEQUENCES.get();
+        long now = clock.getAsLong();
+        if (now > sequence.millis) {
+            sequence.millis = now;
+            sequence.next = 0;
+        }
+        return OrderId.of(sequence.millis, node, sequence.slot, sequence.next++);
+    }
+
+    // The next id's string form
+    @Override
+    public String get() {
+        return next().toString();
+    }
+
+    // The action only holds the sequence, so it doesn't keep the thread reachable
+    private static Sequence takeSequence() {
+        Sequence sequence = FREE_SEQUENCES.poll();
+        if (sequence == null) {
+            int slot = NEXT_THREAD_SLOT.getAndUpdate(next -> next < MAX_THREAD_SLOTS ? next + 1 : next);
+            if (slot == MAX_THREAD_SLOTS) {
+                throw new IllegalStateException("All " + MAX_THREAD_SLOTS + " thread slots are held by live threads");
+            }
+            sequence = new Sequence(slot);
+        }
+        Sequence taken = sequence;
+        THREAD_CLEANER.register(Thread.currentThread(), () -> FREE_SEQUENCES.add(taken));
+        return sequence;
+    }
+
+    private static final class Sequence {
+        private final int slot;
+        private long millis = -1;
+        private long next;
+
+        private Sequence(int slot) {
+            this.slot = slot;
+        }
+    }
+}
@@ -1,165 +1,605 @@
 package com.oms.service;
 
+import com.oms.event.OrderEvent;
+import com.oms.event.OrderEventBus;
 import com.oms.exception.InvalidStateTransitionException;
 import com.oms.exception.OrderValidationException;
 import com.oms.exception.ResourceNotFoundException;
+import com.oms.metrics.OrderMetrics;
+import com.oms.metrics.OrderMetrics.Stage;
+import com.oms.metrics.OrderMetrics.ValidationFailure;
 import com.oms.model.*;
+import com.oms.repository.Catalog;
 import com.oms.repository.CustomerRepository;
 import com.oms.repository.OrderRepository;
 import com.oms.repository.ProductRepository;
+import com.oms.tracing.OrderTracer;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 public class OrderManagementService {
     private static final BigDecimal MIN_ORDER_VALUE = new BigDecimal("100");
-    private static final Integer MIN_QUANTITY = 1;
-    private static final Integer MAX_QUANTITY = 100;
+    private static final int MIN_QUANTITY = 1;
+    private static final int MAX_QUANTITY = 100;
+    private static final String CREDIT_LIMIT_EXCEEDED = "Order exceeds customer credit limit";
 
     private final OrderRepository orderRepository;
     private final CustomerRepository customerRepository;
     private final ProductRepository productRepository;
     private final PricingEngine pricingEngine;
     private final InventoryManager inventoryManager;
+    private final CreditLedger creditLedger;
+    // Null when nobody listens for order events
+    private final OrderEventBus eventBus;
+    private final OrderStateMachine stateMachine;
+    private final OrderMetrics metrics;
+    private final OrderTracer tracer;
+    private final Supplier<String> orderIds;
 
     public OrderManagementService(OrderRepository orderRepository,
                                   CustomerRepository customerRepository,
                                   ProductRepository productRepository,
                                   PricingEngine pricingEngine,
                                   InventoryManager inventoryManager) {
+        this(orderRepository, customerRepository, productRepository, pricingEngine, inventoryManager, null);
+    }
+
+    /**
+     * Publishes an OrderEvent to eventBus for every order created and every status transition.
+     */
+    public OrderManagementService(OrderRepository orderRepository,
+                                  CustomerRepository customerRepository,
+                                  ProductRepository productRepository,
+                                  PricingEngine pricingEngine,
+                                  InventoryManager inventoryManager,
+                                  OrderEventBus eventBus) {
+        this(orderRepository, customerRepository, productRepository, pricingEngine, inventoryManager, eventBus,
+                OrderStateMachine.standard().build());
+    }
+
+    /**
+     * Applies transitions and hooks from stateMachine. The service adds its own hooks ahead of
+     * them: entering PAID deducts the order's stock and uses its held credit, entering CANCELLED
+     * before payment gives both back.
+     */
+    public OrderManagementService(OrderRepository orderRepository,
+                                  CustomerRepository customerRepository,
+                                  ProductRepository productRepository,
+                                  PricingEngine pricingEngine,
+                                  InventoryManager inventoryManager,
+                                  OrderEventBus eventBus,
+                                  OrderStateMachine stateMachine) {
+        this(orderRepository, customerRepository, productRepository, pricingEngine, inventoryManager, eventBus,
+                stateMachine, OrderMetrics.disabled());
+    }
+
+    /**
+     * Records stage latencies, validation failures and repository sizes in metrics. Pass the same
+     * OrderMetrics to the InventoryManager to add reservation timings and lock contention.
+     */
+    public OrderManagementService(OrderRepository orderRepository,
+                                  CustomerRepository customerRepository,
+                                  ProductRepository productRepository,
+                                  PricingEngine pricingEngine,
+                                  InventoryManager inventoryManager,
+                                  OrderEventBus eventBus,
+                                  OrderStateMachine stateMachine,
+                                  OrderMetrics metrics) {
+        this(orderRepository, customerRepository, productRepository, pricingEngine, inventoryManager, eventBus,
+                stateMachine, metrics, new OrderIdGenerator(Integer.getInteger("oms.node", 0)));
+    }
+
+    /**
+     * Gives new orders the ids orderIds supplies, which must never repeat. The other constructors
+     * use an OrderIdGenerator whose node is read from the oms.node system property, default 0.
+     */
+    public OrderManagementService(OrderRepository orderRepository,
+                                  CustomerRepository customerRepository,
+                                  ProductRepository productRepository,
+                                  PricingEngine pricingEngine,
+                                  InventoryManager inventoryManager,
+                                  OrderEventBus eventBus,
+                                  OrderStateMachine stateMachine,
+                                  OrderMetrics metrics,
+                                  Supplier<String> orderIds) {
+        this(orderRepository, customerRepository, productRepository, pricingEngine, inventoryManager, eventBus,
+                stateMachine, metrics, orderIds, true);
+    }
+
+    // A shard of ShardedOrderService isn't standalone: the sharded service registers one expiry
+    // listener and one set of gauges for all of its shards
+    OrderManagementService(OrderRepository orderRepository,
+                           CustomerRepository customerRepository,
+                           ProductRepository productRepository,
+                           PricingEngine pricingEngine,
+                           InventoryManager inventoryManager,
+                           OrderEventBus eventBus,
+                           OrderStateMachine stateMachine,
+                           OrderMetrics metrics,
+                           Supplier<String> orderIds,
+                           boolean standalone) {
+        this.eventBus = eventBus;
+        this.orderIds = orderIds;
+        this.metrics = metrics;
+        this.tracer = metrics.getTracer();
         this.orderRepository = orderRepository;
         this.customerRepository = customerRepository;
         this.productRepository = productRepository;
         this.pricingEngine = pricingEngine;
         this.inventoryManager = inventoryManager;
+        CreditLedger creditLedger = new CreditLedger(customerRepository);
+        this.creditLedger = creditLedger;
+        this.stateMachine = OrderStateMachine.builder()
+                .onEntry(OrderStatus.PAID, (order, from, to) -> {
+                    // processOrder holds credit and reserves stock together. A hold without a
+                    // reservation means the reservation expired while the payment was on its way,
+                    // so no stock is held for the order: capture nothing and cancel it. An order
+                    // moved to VALIDATED by hand holds neither and is paid as before.
+                    if (!inventoryManager.confirmStock(order.getOrderId())
+                            && creditLedger.isHeld(order.getOrderId())) {
+                        creditLedger.release(order.getOrderId());
+                        cancelExpiredOrder(order.getOrderId());
+                        throw new InvalidStateTransitionException("Order " + order.getOrderId()
+                                + " can't be paid: its stock reservation expired; the order was cancelled");
+                    }
+                    creditLedger.capture(order.getOrderId());
+                })
+                .onEntry(OrderStatus.CANCELLED, (order, from, to) -> {
+                    // A paid order's stock and credit are spent, and its PAID hook may still be
+                    // running on another thread; releasing here would race it and undo the capture
+                    if (from != OrderStatus.PAID) {
+                        inventoryManager.releaseStock(order.getOrderId());
+                        creditLedger.release(order.getOrderId());
+                    }
+                })
+                .include(stateMachine)
+                .build();
+        if (standalone) {
+            inventoryManager.addExpiryListener(this::cancelExpiredOrder);
+            metrics.registerGauge("orders", orderRepository::size);
+            metrics.registerGauge("customers", customerRepository::size);
+            metrics.registerGauge("products", productRepository::size);
+        }
     }
 
     public Order createOrder(String customerId, List<Item> items, String shippingAddress) {
-        String orderId = UUID.randomUUID().toString();
+        long start = metrics.startTimer();
+        try {
+            return create(customerId, items, shippingAddress);
+        } finally {
+            metrics.recordStage(Stage.CREATE_ORDER, start);
+        }
+    }
 
-        // Items with product prices
+    private Order create(String customerId, List<Item> items, String shippingAddress) {
+        String orderId = orderIds.get();
+
+        // Items with product prices, all from one version of the catalog
+        Catalog catalog = productRepository.getCatalog();
         for (Item item : items) {
-            Product product = productRepository.findById(item.getProductId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Product " + item.getProductId() + " not found"));
+            CatalogProduct product = catalog.find(item.getProductId());
+            if (product == null) {
+                throw new ResourceNotFoundException("Product " + item.getProductId() + " not found");
+            }
             item.setUnitPrice(product.getPrice());
             item.setLinePrice(product.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
         }
 
         Order order = new Order(orderId, customerId, items, shippingAddress);
-        return orderRepository.save(order);
+        order.setCatalogVersion(catalog.getVersion());
+        long span = tracer.startTrace(orderId);
+        Order saved;
+        try {
+            saved = orderRepository.save(order);
+        } finally {
+            tracer.endSpan("saveOrder", span);
+        }
+        publish(saved, null);
+        return saved;
     }
 
     public ValidationResult validateOrder(String orderId) {
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new ResourceNotFoundException("Order " + orderId + " not found"));
+        Order order = findOrder(orderId);
 
-        // Products exist and are active
-        for (Item item : order.getItems()) {
-            Product product = productRepository.findById(item.getProductId()).orElse(null);
-            if (product == null || !product.isActive()) {
-                return ValidationResult.failure("Product " + item.getProductId() + " is not available");
+        return validate(order, productRepository.getCatalog()::find,
+                customerId -> customerRepository.findById(customerId).orElse(null));
+    }
+
+    public Order processOrder(String orderId) {
+        long span = tracer.startTrace(orderId);
+        long start = metrics.startTimer();
+        try {
+            return process(orderId);
+        } finally {
+            metrics.recordStage(Stage.PROCESS_ORDER, start);
+            tracer.endSpan("processOrder", span);
+        }
+    }
+
+    private Order process(String orderId) {
+        Order order = findOrder(orderId);
+
+        order = transition(order, OrderStatus.PENDING_VALIDATION);
+
+        ValidationContext context = load(order, productRepository.getCatalog()::find,
+                customerId -> customerRepository.findById(customerId).orElse(null));
+        ValidationResult validationResult = validate(context);
+        order = context.getOrder();
+
+        if (!validationResult.isValid()) {
+            transition(order, OrderStatus.CANCELLED);
+            throw new OrderValidationException(validationResult.getFirstError());
+        }
+
+        // The credit check above can race with other orders; the hold is the one that counts
+        if (!creditLedger.tryHold(context.getCustomer(), orderId, order.getTotalAmount())) {
+            metrics.recordValidationFailure(ValidationFailure.CREDIT_LIMIT_EXCEEDED);
+            transition(order, OrderStatus.CANCELLED);
+            throw new OrderValidationException(CREDIT_LIMIT_EXCEEDED);
+        }
+
+        // Reserve stock
+        try {
+            inventoryManager.reserveStock(orderId, context.getItems());
+        } catch (RuntimeException e) {
+            creditLedger.release(orderId);
+            throw e;
+        }
+
+        // Transition to VALIDATED
+        return transition(order, OrderStatus.VALIDATED);
+    }
+
+    /**
+     * Creates many orders in one call, all priced from the same version of the catalog.
+     * Results are returned in request order; a request referring to an unknown product fails on its own.
+     */
+    public List<BatchOrderResult> createOrders(List<OrderRequest> requests) {
+        Catalog catalog = productRepository.getCatalog();
+        List<BatchOrderResult> results = new ArrayList<>(requests.size());
+
+        for (OrderRequest request : requests) {
+            List<Item> items = request.getItems();
+            String missingProductId = null;
+
+            // Items with product prices
+            for (Item item : items) {
+                CatalogProduct product = catalog.find(item.getProductId());
+                if (product == null) {
+                    missingProductId = item.getProductId();
+                    break;
+                }
+                item.setUnitPrice(product.getPrice());
+                item.setLinePrice(product.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+            }
+
+            if (missingProductId != null) {
+                results.add(BatchOrderResult.failure(null, null, "Product " + missingProductId + " not found"));
+                continue;
+            }
+
+            Order order = new Order(orderIds.get(), request.getCustomerId(), items,
+                    request.getShippingAddress());
+            order.setCatalogVersion(catalog.getVersion());
+            Order saved = orderRepository.save(order);
+            publish(saved, null);
+            results.add(BatchOrderResult.success(saved));
+        }
+        return results;
+    }
+
+    /**
+     * Processes many orders in one call. Products are read from one catalog and customers are
+     * resolved once per batch, and stock for every order that passes validation is reserved in a
+     * single coordinated pass. Orders that fail validation or reservation are cancelled and
+     * reported individually.
+     */
+    public List<BatchOrderResult> processOrders(List<String> orderIds) {
+        Map<String, Customer> customers = new HashMap<>();
+        Function<String, CatalogProduct> productLookup = productRepository.getCatalog()::find;
+        Function<String, Customer> customerLookup = customerId -> customers.computeIfAbsent(customerId,
+                id -> customerRepository.findById(id).orElse(null));
+
+        BatchOrderResult[] results = new BatchOrderResult[orderIds.size()];
+        // Orders that passed validation and hold credit, with their positions and item snapshots
+        List<Integer> positions = new ArrayList<>();
+        List<Order> validated = new ArrayList<>();
+        List<String> validatedIds = new ArrayList<>();
+        List<OrderView> snapshots = new ArrayList<>();
+
+        for (int i = 0; i < orderIds.size(); i++) {
+            String orderId = orderIds.get(i);
+            Order order = orderRepository.findById(orderId).orElse(null);
+            if (order == null) {
+                results[i] = BatchOrderResult.failure(orderId, null, "Order " + orderId + " not found");
+                continue;
+            }
+
+            try {
+                order = transition(order, OrderStatus.PENDING_VALIDATION);
+            } catch (InvalidStateTransitionException e) {
+                results[i] = BatchOrderResult.failure(orderId, order, e.getMessage());
+                continue;
+            }
+
+            ValidationContext context = load(order, productLookup, customerLookup);
+            ValidationResult validationResult = validate(context);
+            order = context.getOrder();
+            if (!validationResult.isValid()) {
+                order = transition(order, OrderStatus.CANCELLED);
+                results[i] = BatchOrderResult.failure(orderId, order, validationResult.getFirstError());
+                continue;
+            }
+
+            if (!creditLedger.tryHold(context.getCustomer(), orderId, order.getTotalAmount())) {
+                metrics.recordValidationFailure(ValidationFailure.CREDIT_LIMIT_EXCEEDED);
+                order = transition(order, OrderStatus.CANCELLED);
+                results[i] = BatchOrderResult.failure(orderId, order, CREDIT_LIMIT_EXCEEDED);
+                continue;
             }
+
+            positions.add(i);
+            validated.add(order);
+            validatedIds.add(orderId);
+            snapshots.add(context.getItems());
         }
 
-        // Quantities are valid (1-100)
-        for (Item item : order.getItems()) {
-            if (item.getQuantity() < MIN_QUANTITY || item.getQuantity() > MAX_QUANTITY) {
-                return ValidationResult.failure("Invalid quantity for product " + item.getProductId());
+        Map<String, String> reservationFailures = inventoryManager.reserveStockBatch(validatedIds, snapshots);
+
+        for (int v = 0; v < validated.size(); v++) {
+            Order order = validated.get(v);
+            String reservationFailure = reservationFailures.get(validatedIds.get(v));
+
+            if (reservationFailure != null) {
+                // Cancelling releases the credit hold
+                order = transition(order, OrderStatus.CANCELLED);
+                results[positions.get(v)] = BatchOrderResult.failure(validatedIds.get(v), order, reservationFailure);
+            } else {
+                // Transition to VALIDATED
+                order = transition(order, OrderStatus.VALIDATED);
+                results[positions.get(v)] = BatchOrderResult.success(order);
             }
         }
+        return Arrays.asList(results);
+    }
+
+    public Order updateOrderStatus(String orderId, OrderStatus newStatus) {
+        return transition(findOrder(orderId), newStatus);
+    }
+
+    /**
+     * Applies update to a copy of the stored order and saves the copy only if nobody else saved
+     * the order in the meantime. On a conflict it starts again from a fresh copy, so update may
+     * run more than once and must have no other side effects. Status changes belong in
+     * updateOrderStatus, which also checks the transition and runs its hooks.
+     */
+    public Order updateOrder(String orderId, Consumer<Order> update) {
+        return update(findOrder(orderId), update);
+    }
+
+    public CreditLedger getCreditLedger() {
+        return creditLedger;
+    }
+
+    public List<Order> findOrdersByCustomer(String customerId) {
+        return orderRepository.findByCustomerId(customerId);
+    }
+
+    public List<Order> findOrdersByStatus(OrderStatus status, Instant updatedFrom, Instant updatedTo,
+                                          int offset, int limit) {
+        return orderRepository.findByStatus(status, updatedFrom, updatedTo, offset, limit);
+    }
+
+    public Stream<Order> streamOrdersByStatus(OrderStatus status, Instant updatedFrom, Instant updatedTo) {
+        return orderRepository.streamByStatus(status, updatedFrom, updatedTo);
+    }
+
+    private ValidationResult validate(Order order,
+                                      Function<String, CatalogProduct> productLookup,
+                                      Function<String, Customer> customerLookup) {
+        return validate(load(order, productLookup, customerLookup));
+    }
+
+    private ValidationContext load(Order order,
+                                   Function<String, CatalogProduct> productLookup,
+                                   Function<String, Customer> customerLookup) {
+        long span = tracer.startTrace(order.getOrderId());
+        try {
+            return ValidationContext.load(order, productLookup, customerLookup);
+        } finally {
+            tracer.endSpan("loadProductsAndCustomer", span);
+        }
+    }
+
+    /**
+     * Runs every rule in one pass over the items and reports all failures. Errors keep the
+     * rule order (product, quantity, stock, customer, credit, minimum value), so the first
+     * error is the same one the rules would stop at when checked one by one.
+     */
+    private ValidationResult validate(ValidationContext context) {
+        long span = tracer.startTrace(context.getOrder().getOrderId());
+        long start = metrics.startTimer();
+        try {
+            return applyRules(context);
+        } finally {
+            metrics.recordStage(Stage.VALIDATE_ORDER, start);
+            tracer.endSpan("validateOrder", span);
+        }
+    }
+
+    private ValidationResult applyRules(ValidationContext context) {
+        Order order = context.getOrder();
+        List<String> productErrors = new ArrayList<>();
+        List<String> quantityErrors = new ArrayList<>();
+        List<String> stockErrors = new ArrayList<>();
+
+        OrderView items = context.getItems();
+        for (int i = 0; i < items.getItemCount(); i++) {
+            String productId = items.getProductId(i);
+            int quantity = items.getQuantity(i);
+
+            // Products exist and are active
+            CatalogProduct product = context.getProduct(productId);
+            if (product == null || !product.isActive()) {
+                productErrors.add("Product " + productId + " is not available");
+                continue;
+            }
 
-        //Stock is available
-        for (Item item : order.getItems()) {
-            if (!inventoryManager.checkAvailability(item.getProductId(), item.getQuantity())) {
-                return ValidationResult.failure("Insufficient stock for product " + item.getProductId());
+            // Quantities are valid (1-100)
+            if (quantity < MIN_QUANTITY || quantity > MAX_QUANTITY) {
+                quantityErrors.add("Invalid quantity for product " + productId);
+            }
+
+            //Stock is available
+            if (!inventoryManager.checkAvailability(product, quantity)) {
+                stockErrors.add("Insufficient stock for product " + productId);
             }
         }
 
+        List<String> errors = new ArrayList<>(productErrors);
+        errors.addAll(quantityErrors);
+        errors.addAll(stockErrors);
+        recordFailureIf(!productErrors.isEmpty(), ValidationFailure.PRODUCT_UNAVAILABLE);
+        recordFailureIf(!quantityErrors.isEmpty(), ValidationFailure.INVALID_QUANTITY);
+        recordFailureIf(!stockErrors.isEmpty(), ValidationFailure.INSUFFICIENT_STOCK);
+
         //Customer exists
-        Customer customer = customerRepository.findById(order.getCustomerId()).orElse(null);
+        Customer customer = context.getCustomer();
         if (customer == null) {
-            return ValidationResult.failure("Customer not found");
+            errors.add("Customer not found");
+            metrics.recordValidationFailure(ValidationFailure.CUSTOMER_NOT_FOUND);
+            return ValidationResult.failure(errors);
+        }
+
+        // Totals are only meaningful once every line passed the item rules
+        if (!errors.isEmpty()) {
+            return ValidationResult.failure(errors);
         }
 
         // Calculate pricing before credit and minimum value checks
+        long pricingSpan = tracer.startSpan();
+        long pricingStart = metrics.startTimer();
         PricingResult pricing = pricingEngine.calculatePricing(order, customer);
-        order.setTotalAmount(pricing.getTotalAmount());
-        order.setVatAmount(pricing.getVatAmount());
-        orderRepository.save(order);
+        metrics.recordStage(Stage.CALCULATE_PRICING, pricingStart);
+        tracer.endSpan("calculatePricing", pricingSpan);
+        order = update(order, priced -> {
+            priced.setTotalAmount(pricing.getTotalAmount());
+            priced.setVatAmount(pricing.getVatAmount());
+        });
+        context.setOrder(order);
 
-        //Credit limit not exceeded
-        if (customer.getAvailableCredit().compareTo(order.getTotalAmount()) < 0) {
-            return ValidationResult.failure("Order exceeds customer credit limit");
+        //Credit limit not exceeded, counting credit held by other unpaid orders
+        if (creditLedger.getAvailableCredit(customer).compareTo(order.getTotalAmount()) < 0) {
+            errors.add(CREDIT_LIMIT_EXCEEDED);
+            metrics.recordValidationFailure(ValidationFailure.CREDIT_LIMIT_EXCEEDED);
         }
 
         //Minimum order value 100 SEK (including VAT)
         if (order.getTotalAmount().compareTo(MIN_ORDER_VALUE) < 0) {
-            return ValidationResult.failure("Order total is below minimum value of 100 SEK");
+            errors.add("Order total is below minimum value of 100 SEK");
+            metrics.recordValidationFailure(ValidationFailure.BELOW_MINIMUM_VALUE);
         }
 
-        return ValidationResult.success();
+        return errors.isEmpty() ? ValidationResult.success() : ValidationResult.failure(errors);
     }
 
-    public Order processOrder(String orderId) {
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new ResourceNotFoundException("Order " + orderId + " not found"));
-
-        updateOrderStatus(orderId, OrderStatus.PENDING_VALIDATION);
-
-        ValidationResult validationResult = validateOrder(orderId);
-
-        if (!validationResult.isValid()) {
-            updateOrderStatus(orderId, OrderStatus.CANCELLED);
-            throw new OrderValidationException(validationResult.getFirstError());
+    // Counts a kind of failure once per validation, however many lines it hit
+    private void recordFailureIf(boolean failed, ValidationFailure reason) {
+        if (failed) {
+            metrics.recordValidationFailure(reason);
         }
-
-        // Reserve stock
-        inventoryManager.reserveStock(orderId, order.getItems());
-
-        // Transition to VALIDATED
-        updateOrderStatus(orderId, OrderStatus.VALIDATED);
-
-        return orderRepository.findById(orderId).get();
     }
 
-    public Order updateOrderStatus(String orderId, OrderStatus newStatus) {
-        Order order = orderRepository.findById(orderId)
+    private Order findOrder(String orderId) {
+        return orderRepository.findById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Order " + orderId + " not found"));
+    }
 
-        OrderStatus currentStatus = order.getStatus();
-
-        if (!isValidTransition(currentStatus, newStatus)) {
-            throw new InvalidStateTransitionException(
-                    "Invalid status transition from " + currentStatus + " to " + newStatus);
+    // Copy, change, compare-and-swap save; on a lost race re-read the order and go again
+    private Order update(Order current, Consumer<Order> update) {
+        while (true) {
+            Order updated = new Order(current);
+            update.accept(updated);
+            if (save(updated, current.getVersion())) {
+                return updated;
+            }
+            current = findOrder(current.getOrderId());
         }
+    }
 
-        order.setStatus(newStatus);
-        return orderRepository.save(order);
+    private boolean save(Order order, long expectedVersion) {
+        long span = tracer.startTrace(order.getOrderId());
+        try {
+            return orderRepository.saveIfVersion(order, expectedVersion);
+        } finally {
+            tracer.endSpan("saveOrder", span);
+        }
     }
 
-    public List<Order> findOrdersByCustomer(String customerId) {
-        return orderRepository.findByCustomerId(customerId);
+    private Order transition(Order order, OrderStatus newStatus) {
+        long span = tracer.startTrace(order.getOrderId());
+        try {
+            return applyTransition(order, newStatus);
+        } finally {
+            tracer.endSpan("updateOrderStatus", span);
+        }
     }
 
-    private boolean isValidTransition(OrderStatus from, OrderStatus to) {
-        // Any status → CANCELLED (except from FULFILLED)
-        if (to == OrderStatus.CANCELLED && from != OrderStatus.FULFILLED) {
-            return true;
+    private Order applyTransition(Order order, OrderStatus newStatus) {
+        Order current = order;
+        while (true) {
+            OrderStatus currentStatus = current.getStatus();
+            if (!stateMachine.canTransition(currentStatus, newStatus)) {
+                throw new InvalidStateTransitionException(
+                        "Invalid status transition from " + currentStatus + " to " + newStatus);
+            }
+
+            Order updated = new Order(current);
+            updated.setStatus(newStatus);
+            // Of two concurrent updates from one version only one saves; the other re-checks
+            // its transition against what the winner saved
+            if (save(updated, current.getVersion())) {
+                try {
+                    stateMachine.runHooks(updated, currentStatus, newStatus);
+                } finally {
+                    publish(updated, currentStatus);
+                }
+                return updated;
+            }
+            current = findOrder(order.getOrderId());
         }
+    }
 
-        // Valid forward transitions
-        switch (from) {
-            case CREATED:
-                return to == OrderStatus.PENDING_VALIDATION;
-            case PENDING_VALIDATION:
-                return to == OrderStatus.VALIDATED || to == OrderStatus.CANCELLED;
-            case VALIDATED:
-                return to == OrderStatus.PAID;
-            case PAID:
-                return to == OrderStatus.FULFILLED;
-            default:
-                return false;
+    private void publish(Order order, OrderStatus previousStatus) {
+        if (eventBus != null) {
+            eventBus.publish(new OrderEvent(order.getOrderId(), order.getCustomerId(), previousStatus,
+                    order.getStatus(), order.getVersion(), order.getUpdatedOn()));
         }
     }
-}
\ No newline at end of file
+
+    // The order's stock reservation ran out before payment, or before its PAID hook confirmed it;
+    // its stock is already released
+    void cancelExpiredOrder(String orderId) {
+        orderRepository.findById(orderId).ifPresent(order -> {
+            if (order.getStatus() == OrderStatus.CANCELLED) {
+                return;
+            }
+            try {
+                transition(order, OrderStatus.CANCELLED);
+            } catch (InvalidStateTransitionException e) {
+                // Fulfilled in the meantime; nothing to cancel
+            }
+        });
+    }
+}
@@ -0,0 +1,30 @@
+package com.oms.service;
+
+import com.oms.model.Item;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class OrderRequest {
+    private final String customerId;
+    private final List<Item> items;
+    private final String shippingAddress;
+
+    public OrderRequest(String customerId, List<Item> items, String shippingAddress) {
+        this.customerId = customerId;
+        this.items = new ArrayList<>(items);
+        this.shippingAddress = shippingAddress;
+    }
+
+    public String getCustomerId() {
+        return customerId;
+    }
+
+    public List<Item> getItems() {
+        return new ArrayList<>(items);
+    }
+
+    public String getShippingAddress() {
+        return shippingAddress;
+    }
+}
@@ -0,0 +1,164 @@
+package com.oms.service;
+
+import com.oms.model.Order;
+import com.oms.model.OrderStatus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Which status transitions an order may make, and what runs when it makes them.
+ *
+ * Transitions are a precomputed table with one bitmask of allowed targets per status, so checking
+ * a transition is an array read and a bit test. Exit hooks of the old status and then entry hooks
+ * of the new one run in registration order. Instances are immutable; build them with a Builder.
+ *
+ * A new status only needs an OrderStatus constant and its transitions here; the service applies
+ * whatever table it is given.
+ */
+public final class OrderStateMachine {
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+    private static final TransitionHook[] NO_HOOKS = new TransitionHook[0];
+
+    // allowed[from.ordinal()] has bit to.ordinal() set for every permitted transition; fits 64 statuses
+    private final long[] allowed;
+    private final TransitionHook[][] entryHooks;
+    private final TransitionHook[][] exitHooks;
+
+    private OrderStateMachine(Builder builder) {
+        this.allowed = builder.allowed.clone();
+        this.entryHooks = toArrays(builder.entryHooks);
+        this.exitHooks = toArrays(builder.exitHooks);
+    }
+
+    /**
+     * The standard lifecycle, without hooks:
+     * CREATED → PENDING_VALIDATION → VALIDATED → PAID → (PARTIALLY_FULFILLED →) FULFILLED,
+     * and CANCELLED from any status except FULFILLED.
+     */
+    public static Builder standard() {
+        Builder builder = new Builder()
+                .allow(OrderStatus.CREATED, OrderStatus.PENDING_VALIDATION)
+                .allow(OrderStatus.PENDING_VALIDATION, OrderStatus.VALIDATED)
+                .allow(OrderStatus.VALIDATED, OrderStatus.PAID)
+                .allow(OrderStatus.PAID, OrderStatus.PARTIALLY_FULFILLED, OrderStatus.FULFILLED)
+                .allow(OrderStatus.PARTIALLY_FULFILLED, OrderStatus.FULFILLED);
+        for (OrderStatus status : STATUSES) {
+            if (status != OrderStatus.FULFILLED) {
+                builder.allow(status, OrderStatus.CANCELLED);
+            }
+        }
+        return builder;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // Starts from this machine's transitions and hooks
+    public Builder toBuilder() {
+        return new Builder().include(this);
+    }
+
+    public boolean canTransition(OrderStatus from, OrderStatus to) {
+        return (allowed[from.ordinal()] & (1L << to.ordinal())) != 0;
+    }
+
+    public Set<OrderStatus> getAllowedTargets(OrderStatus from) {
+        Set<OrderStatus> targets = EnumSet.noneOf(OrderStatus.class);
+        for (OrderStatus to : STATUSES) {
+            if (canTransition(from, to)) {
+                targets.add(to);
+            }
+        }
+        return targets;
+    }
+
+    // Runs the exit hooks of from, then the entry hooks of to
+    void runHooks(Order order, OrderStatus from, OrderStatus to) {
+        for (TransitionHook hook : exitHooks[from.ordinal()]) {
+            hook.onTransition(order, from, to);
+        }
+        for (TransitionHook hook : entryHooks[to.ordinal()]) {
+            hook.onTransition(order, from, to);
+        }
+    }
+
+    private static TransitionHook[][] toArrays(List<List<TransitionHook>> hooksByStatus) {
+        TransitionHook[][] arrays = new TransitionHook[hooksByStatus.size()][];
+        for (int i = 0; i < arrays.length; i++) {
+            List<TransitionHook> hooks = hooksByStatus.get(i);
+            arrays[i] = hooks.isEmpty() ? NO_HOOKS : hooks.toArray(NO_HOOKS);
+        }
+        return arrays;
+    }
+
+    /**
+     * Called for a transition after the order's status has changed, on the thread that changed it.
+     */
+    public interface TransitionHook {
+        void onTransition(Order order, OrderStatus from, OrderStatus to);
+    }
+
+    public static final class Builder {
+        private final long[] allowed = new long[STATUSES.length];
+        private final List<List<TransitionHook>> entryHooks = emptyLists();
+        private final List<List<TransitionHook>> exitHooks = emptyLists();
+
+        private Builder() {
+        }
+
+        public Builder allow(OrderStatus from, OrderStatus... targets) {
+            for (OrderStatus to : targets) {
+                allowed[from.ordinal()] |= 1L << to.ordinal();
+            }
+            return this;
+        }
+
+        public Builder disallow(OrderStatus from, OrderStatus... targets) {
+            for (OrderStatus to : targets) {
+                allowed[from.ordinal()] &= ~(1L << to.ordinal());
+            }
+            return this;
+        }
+
+        // Runs whenever an order enters status
+        public Builder onEntry(OrderStatus status, TransitionHook hook) {
+            entryHooks.get(status.ordinal()).add(hook);
+            return this;
+        }
+
+        // Runs whenever an order leaves status
+        public Builder onExit(OrderStatus status, TransitionHook hook) {
+            exitHooks.get(status.ordinal()).add(hook);
+            return this;
+        }
+
+        /**
+         * Adds machine's transitions, and its hooks after any already registered.
+         */
+        public Builder include(OrderStateMachine machine) {
+            for (int i = 0; i < STATUSES.length; i++) {
+                allowed[i] |= machine.allowed[i];
+                entryHooks.get(i).addAll(Arrays.asList(machine.entryHooks[i]));
+                exitHooks.get(i).addAll(Arrays.asList(machine.exitHooks[i]));
+            }
+            return this;
+        }
+
+        public OrderStateMachine build() {
+            return new OrderStateMachine(this);
+        }
+
+        private static List<List<TransitionHook>> emptyLists() {
+            List<List<TransitionHook>> lists = new ArrayList<>(STATUSES.length);
+            for (int i = 0; i < STATUSES.length; i++) {
+                lists.add(new ArrayList<>());
+            }
+            return lists;
+        }
+    }
+}
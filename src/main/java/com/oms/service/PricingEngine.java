@@ -1,23 +1,19 @@
 package com.oms.service;
 
 import com.oms.model.Customer;
-import com.oms.model.Item;
 import com.oms.model.Order;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 
 public class PricingEngine {
-    private static final BigDecimal VAT_RATE = new BigDecimal("0.25");
-    private static final BigDecimal VAT_MULTIPLIER = new BigDecimal("1.25");
-    private static final BigDecimal BULK_DISCOUNT_RATE = new BigDecimal("0.03");
-    private static final BigDecimal BULK_DISCOUNT_THRESHOLD = new BigDecimal("5000");
+    static final BigDecimal VAT_RATE = new BigDecimal("0.25");
+    static final BigDecimal VAT_MULTIPLIER = new BigDecimal("1.25");
+    static final BigDecimal BULK_DISCOUNT_RATE = new BigDecimal("0.03");
+    static final BigDecimal BULK_DISCOUNT_THRESHOLD = new BigDecimal("5000");
 
     public PricingResult calculatePricing(Order order, Customer customer) {
-        // Calculate base total (sum of all line items with VAT included)
-        BigDecimal baseTotal = BigDecimal.ZERO;
-        for (Item item : order.getItems()) {
-            baseTotal = baseTotal.add(item.getLinePrice());
-        }
+        // Base total: sum of all line items with VAT included, precomputed by the snapshot
+        BigDecimal baseTotal = order.snapshot().getItemsTotal();
 
         // Apply customer type discount on the total INCLUDING VAT
         BigDecimal customerDiscount = customer.getType().getDiscountRate();
@@ -0,0 +1,39 @@
+package com.oms.service;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background thread that runs InventoryManager.expireReservations at a fixed interval.
+ */
+public class ReservationExpiryScheduler implements AutoCloseable {
+    private final ScheduledExecutorService executor;
+
+    private ReservationExpiryScheduler(InventoryManager inventoryManager, Duration interval) {
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reservation-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                inventoryManager.expireReservations();
+            } catch (RuntimeException e) {
+                // Keep the schedule alive; anything missed is picked up on the next run
+                System.err.println("Reservation expiry failed: " + e.getMessage());
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    public static ReservationExpiryScheduler start(InventoryManager inventoryManager, Duration interval) {
+        return new ReservationExpiryScheduler(inventoryManager, interval);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
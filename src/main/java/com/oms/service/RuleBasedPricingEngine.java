@@ -0,0 +1,61 @@
+package com.oms.service;
+
+import com.oms.model.Customer;
+import com.oms.model.Order;
+import com.oms.service.pricing.CustomerTierDiscountRule;
+import com.oms.service.pricing.PricingPlan;
+import com.oms.service.pricing.PricingRule;
+import com.oms.service.pricing.VatRule;
+import com.oms.service.pricing.VolumeDiscountRule;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * PricingEngine driven by a compiled PricingPlan. updateRules compiles a new plan and swaps it in
+ * atomically; each calculation reads the current plan once, so it never mixes old and new rules.
+ */
+public class RuleBasedPricingEngine extends PricingEngine {
+    private final AtomicReference<PricingPlan> plan;
+
+    public RuleBasedPricingEngine() {
+        this(defaultRules());
+    }
+
+    public RuleBasedPricingEngine(List<? extends PricingRule> rules) {
+        this.plan = new AtomicReference<>(PricingPlan.compile(1, rules));
+    }
+
+    /**
+     * The rules PricingEngine has built in: customer tier, bulk discount, then VAT.
+     */
+    public static List<PricingRule> defaultRules() {
+        return Arrays.asList(
+                CustomerTierDiscountRule.fromCustomerTypes(),
+                new VolumeDiscountRule(BULK_DISCOUNT_THRESHOLD, BULK_DISCOUNT_RATE),
+                new VatRule(VAT_MULTIPLIER));
+    }
+
+    @Override
+    public PricingResult calculatePricing(Order order, Customer customer) {
+        return plan.get().evaluate(order, customer);
+    }
+
+    /**
+     * Compiles the rules and makes them current. Returns the new plan.
+     */
+    public PricingPlan updateRules(List<? extends PricingRule> rules) {
+        while (true) {
+            PricingPlan current = plan.get();
+            PricingPlan next = PricingPlan.compile(current.getVersion() + 1, rules);
+            if (plan.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    public PricingPlan getPlan() {
+        return plan.get();
+    }
+}
@@ -0,0 +1,245 @@
+package com.oms.service;
+
+import com.oms.exception.ResourceNotFoundException;
+import com.oms.metrics.OrderMetrics;
+import com.oms.model.Item;
+import com.oms.model.Order;
+import com.oms.model.OrderId;
+import com.oms.model.OrderStatus;
+import com.oms.repository.CustomerRepository;
+import com.oms.repository.OrderRepository;
+import com.oms.repository.ProductRepository;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Sharded deployment of the order service: orders are partitioned by a hash of customerId over
+ * independent shards, each with its own OrderRepository, OrderManagementService and credit ledger,
+ * and a thread of its own. Every call for a shard runs on that thread, so each shard has a single
+ * writer and shards never contend on order state. Stock is global, so all shards share one
+ * InventoryManager, which only locks the products an order touches.
+ *
+ * Each shard generates its orderIds with node baseNode * shardCount + shard, so calls by orderId go
+ * straight to the right shard, and instances with different base nodes never issue the same id.
+ * Like oms.node for a single service, every running instance needs a base node of its own; the
+ * constructors without one read it from the oms.node system property, default 0. Queries that
+ * span customers fan out to every shard in parallel and merge the results.
+ * Calls return futures completed on the shard thread; don't block a shard thread on another
+ * shard's future. Reservation expiry, when enabled, cancels orders from the expiry thread instead;
+ * versioned saves keep that safe alongside the shard's own writes. One expiry listener routes each
+ * expired order to its shard, and the "orders" gauge counts the orders of every shard.
+ */
+public class ShardedOrderService implements AutoCloseable {
+    private static final Comparator<Order> BY_UPDATED_ON = Comparator.comparing(Order::getUpdatedOn)
+            .thenComparing(Order::getOrderId);
+
+    private final Shard[] shards;
+    // OrderId node of shard 0; shard i uses firstNode + i
+    private final int firstNode;
+
+    public ShardedOrderService(int shardCount,
+                               CustomerRepository customerRepository,
+                               ProductRepository productRepository,
+                               PricingEngine pricingEngine,
+                               InventoryManager inventoryManager) {
+        this(shardCount, customerRepository, productRepository, pricingEngine, inventoryManager,
+                OrderMetrics.disabled());
+    }
+
+    public ShardedOrderService(int shardCount,
+                               CustomerRepository customerRepository,
+                               ProductRepository productRepository,
+                               PricingEngine pricingEngine,
+                               InventoryManager inventoryManager,
+                               OrderMetrics metrics) {
+        this(shardCount, Integer.getInteger("oms.node", 0), customerRepository, productRepository,
+                pricingEngine, inventoryManager, metrics);
+    }
+
+    /**
+     * @param baseNode this instance's node number; its shards use OrderId nodes
+     *                 baseNode * shardCount to baseNode * shardCount + shardCount - 1
+     */
+    public ShardedOrderService(int shardCount,
+                               int baseNode,
+                               CustomerRepository customerRepository,
+                               ProductRepository productRepository,
+                               PricingEngine pricingEngine,
+                               InventoryManager inventoryManager,
+                               OrderMetrics metrics) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("shardCount must be at least 1");
+        }
+        long lastNode = ((long) baseNode + 1) * shardCount - 1;
+        if (baseNode < 0 || lastNode > OrderId.MAX_NODE) {
+            throw new IllegalArgumentException("baseNode " + baseNode + " with " + shardCount
+                    + " shards needs OrderId nodes up to " + lastNode + "; the maximum is " + OrderId.MAX_NODE);
+        }
+        this.firstNode = baseNode * shardCount;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            OrderRepository orderRepository = new OrderRepository();
+            OrderManagementService service = new OrderManagementService(orderRepository, customerRepository,
+                    productRepository, pricingEngine, inventoryManager, null, OrderStateMachine.standard().build(),
+                    metrics, new OrderIdGenerator(firstNode + i), false);
+            shards[i] = new Shard(i, orderRepository, service);
+        }
+
+        // Once for all shards: each expired reservation goes to the shard that owns the order
+        inventoryManager.addExpiryListener(orderId -> {
+            int shard = shardOfOrder(orderId);
+            if (shard >= 0) {
+                shards[shard].service.cancelExpiredOrder(orderId);
+            }
+        });
+        metrics.registerGauge("orders", () -> {
+            long total = 0;
+            for (Shard shard : shards) {
+                total += shard.orderRepository.size();
+            }
+            return total;
+        });
+        metrics.registerGauge("customers", customerRepository::size);
+        metrics.registerGauge("products", productRepository::size);
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    public int shardOf(String customerId) {
+        int hash = customerId.hashCode() * 0x9E3779B9;
+        return ((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % shards.length;
+    }
+
+    public CompletableFuture<Order> createOrder(String customerId, List<Item> items, String shippingAddress) {
+        return forCustomer(customerId, service -> service.createOrder(customerId, items, shippingAddress));
+    }
+
+    public CompletableFuture<ValidationResult> validateOrder(String orderId) {
+        return forOrder(orderId, service -> service.validateOrder(orderId));
+    }
+
+    public CompletableFuture<Order> processOrder(String orderId) {
+        return forOrder(orderId, service -> service.processOrder(orderId));
+    }
+
+    public CompletableFuture<Order> updateOrderStatus(String orderId, OrderStatus newStatus) {
+        return forOrder(orderId, service -> service.updateOrderStatus(orderId, newStatus));
+    }
+
+    // All of a customer's orders live on one shard, so this asks only that one
+    public CompletableFuture<List<Order>> findOrdersByCustomer(String customerId) {
+        return forCustomer(customerId, service -> service.findOrdersByCustomer(customerId));
+    }
+
+    /**
+     * Orders in status across every shard, oldest updatedOn first, as
+     * OrderManagementService.findOrdersByStatus. Each shard returns its first offset + limit
+     * matches in parallel, and the merged result is paged here.
+     */
+    public CompletableFuture<List<Order>> findOrdersByStatus(OrderStatus status, Instant updatedFrom,
+                                                             Instant updatedTo, int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit must not be negative");
+        }
+        int perShard = (int) Math.min(Integer.MAX_VALUE, (long) offset + limit);
+        List<CompletableFuture<List<Order>>> parts = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            parts.add(shard.submit(service ->
+                    service.findOrdersByStatus(status, updatedFrom, updatedTo, 0, perShard)));
+        }
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            List<Order> merged = new ArrayList<>();
+            for (CompletableFuture<List<Order>> part : parts) {
+                merged.addAll(part.join());
+            }
+            merged.sort(BY_UPDATED_ON);
+            int from = Math.min(offset, merged.size());
+            return new ArrayList<>(merged.subList(from, Math.min(merged.size(), from + limit)));
+        });
+    }
+
+    // Orders stored on every shard together
+    public CompletableFuture<Integer> countOrders() {
+        List<CompletableFuture<Integer>> parts = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            parts.add(shard.submit(service -> shard.orderRepository.size()));
+        }
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            int total = 0;
+            for (CompletableFuture<Integer> part : parts) {
+                total += part.join();
+            }
+            return total;
+        });
+    }
+
+    /**
+     * Stops the shard threads after the calls already submitted have run.
+     */
+    @Override
+    public void close() {
+        for (Shard shard : shards) {
+            shard.executor.shutdown();
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.executor.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private <T> CompletableFuture<T> forCustomer(String customerId, Function<OrderManagementService, T> call) {
+        return shards[shardOf(customerId)].submit(call);
+    }
+
+    private <T> CompletableFuture<T> forOrder(String orderId, Function<OrderManagementService, T> call) {
+        int shard = shardOfOrder(orderId);
+        if (shard < 0) {
+            return CompletableFuture.failedFuture(new ResourceNotFoundException("Order " + orderId + " not found"));
+        }
+        return shards[shard].submit(call);
+    }
+
+    // -1 for an orderId no shard of this instance could have issued
+    private int shardOfOrder(String orderId) {
+        OrderId parsed = OrderId.parse(orderId);
+        if (parsed == null) {
+            return -1;
+        }
+        int shard = parsed.getNode() - firstNode;
+        return shard >= 0 && shard < shards.length ? shard : -1;
+    }
+
+    private static final class Shard {
+        private final OrderRepository orderRepository;
+        private final OrderManagementService service;
+        private final ExecutorService executor;
+
+        private Shard(int index, OrderRepository orderRepository, OrderManagementService service) {
+            this.orderRepository = orderRepository;
+            this.service = service;
+            this.executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "order-shard-" + index);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        private <T> CompletableFuture<T> submit(Function<OrderManagementService, T> call) {
+            return CompletableFuture.supplyAsync(() -> call.apply(service), executor);
+        }
+    }
+}
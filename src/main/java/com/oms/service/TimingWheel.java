@@ -0,0 +1,205 @@
+package com.oms.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel for large numbers of timeouts.
+ *
+ * Time is counted in ticks of tickMillis. Level 0 has one slot per tick for the next wheelSize
+ * ticks; each higher level has slots wheelSize times wider. A timeout goes into the lowest level
+ * whose span covers its deadline. When a level's slot comes due, its timeouts are moved down a
+ * level, and level 0 slots expire as the clock reaches them. Scheduling, cancelling and expiring
+ * a timeout are each O(1); each timeout is moved down at most once per level. Deadlines beyond
+ * the top level's span wait there and are re-filed each time their slot comes round.
+ *
+ * The wheel has no thread of its own: the owner calls advanceTo with the current time.
+ * All methods are thread-safe.
+ */
+public final class TimingWheel<T> {
+    private static final int MAX_LEVELS = 8;
+
+    private final long tickMillis;
+    private final int bits;
+    private final int mask;
+    private final int levelCount;
+    // levels[level][slot] is the head of a doubly linked list; levels are created on first use
+    private final Timeout<T>[][] levels;
+    private long currentTick;
+    private int size;
+
+    /**
+     * @param wheelSize slots per level, rounded up to a power of two
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0 || wheelSize < 2) {
+            throw new IllegalArgumentException("tickMillis must be positive and wheelSize at least 2");
+        }
+        this.tickMillis = tickMillis;
+        this.bits = 32 - Integer.numberOfLeadingZeros(wheelSize - 1);
+        this.mask = (1 << bits) - 1;
+        // Enough levels to span every long tick count, but no shift ever reaches 64 bits
+        this.levelCount = Math.min(MAX_LEVELS, (63 + bits - 1) / bits);
+        this.levels = new Timeout[levelCount][];
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * Schedules payload to expire at deadlineMillis, rounded up to the next tick.
+     * A deadline that has already passed expires on the next advanceTo.
+     */
+    public synchronized Timeout<T> schedule(T payload, long deadlineMillis) {
+        long deadlineTick = Math.max(ceilDiv(deadlineMillis, tickMillis), currentTick + 1);
+        Timeout<T> timeout = new Timeout<>(this, payload, deadlineTick);
+        insert(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Moves the clock forward to nowMillis and returns the payloads of every timeout that came due,
+     * earliest tick first.
+     */
+    public synchronized List<T> advanceTo(long nowMillis) {
+        long targetTick = nowMillis / tickMillis;
+        List<T> expired = new ArrayList<>();
+        while (currentTick < targetTick) {
+            if (size == 0) {
+                // Nothing can come due; skip the empty ticks
+                currentTick = targetTick;
+                break;
+            }
+            currentTick++;
+            cascade();
+            expireSlot(expired);
+        }
+        return expired;
+    }
+
+    // Number of scheduled, not yet expired or cancelled timeouts
+    public synchronized int size() {
+        return size;
+    }
+
+    private synchronized boolean cancel(Timeout<T> timeout) {
+        if (timeout.level < 0) {
+            return false;
+        }
+        unlink(timeout);
+        size--;
+        return true;
+    }
+
+    private void insert(Timeout<T> timeout) {
+        long delta = timeout.deadlineTick - currentTick;
+        int level = 0;
+        while (level < levelCount - 1 && delta >= 1L << (bits * (level + 1))) {
+            level++;
+        }
+        if (levels[level] == null) {
+            @SuppressWarnings("unchecked")
+            Timeout<T>[] slots = new Timeout[mask + 1];
+            levels[level] = slots;
+        }
+        int slot = (int) ((timeout.deadlineTick >>> (bits * level)) & mask);
+
+        Timeout<T>[] slots = levels[level];
+        timeout.level = level;
+        timeout.slot = slot;
+        timeout.prev = null;
+        timeout.next = slots[slot];
+        if (slots[slot] != null) {
+            slots[slot].prev = timeout;
+        }
+        slots[slot] = timeout;
+    }
+
+    private void unlink(Timeout<T> timeout) {
+        Timeout<T>[] slots = levels[timeout.level];
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            slots[timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.level = -1;
+    }
+
+    // On entering a new slot of a higher level, re-insert its timeouts into the levels below
+    private void cascade() {
+        for (int level = 1; level < levelCount; level++) {
+            if ((currentTick & ((1L << (bits * level)) - 1)) != 0) {
+                return;
+            }
+            Timeout<T>[] slots = levels[level];
+            if (slots == null) {
+                continue;
+            }
+            int slot = (int) ((currentTick >>> (bits * level)) & mask);
+            Timeout<T> timeout = slots[slot];
+            slots[slot] = null;
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+                // Lands in a lower level, or in level 0's current slot if due on this very tick
+                insert(timeout);
+                timeout = next;
+            }
+        }
+    }
+
+    private void expireSlot(List<T> expired) {
+        Timeout<T>[] slots = levels[0];
+        if (slots == null) {
+            return;
+        }
+        int slot = (int) (currentTick & mask);
+        Timeout<T> timeout = slots[slot];
+        while (timeout != null) {
+            Timeout<T> next = timeout.next;
+            unlink(timeout);
+            size--;
+            expired.add(timeout.payload);
+            timeout = next;
+        }
+    }
+
+    private static long ceilDiv(long value, long divisor) {
+        return -Math.floorDiv(-value, divisor);
+    }
+
+    /**
+     * Handle to a scheduled timeout.
+     */
+    public static final class Timeout<T> {
+        private final TimingWheel<T> wheel;
+        private final T payload;
+        private final long deadlineTick;
+        // -1 once expired or cancelled; guarded by the wheel's lock
+        private int level = -1;
+        private int slot;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+
+        private Timeout(TimingWheel<T> wheel, T payload, long deadlineTick) {
+            this.wheel = wheel;
+            this.payload = payload;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T getPayload() {
+            return payload;
+        }
+
+        /**
+         * Returns true if the timeout was still pending and will now never expire.
+         */
+        public boolean cancel() {
+            return wheel.cancel(this);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.oms.service;
+
+import com.oms.model.CatalogProduct;
+import com.oms.model.Customer;
+import com.oms.model.Order;
+import com.oms.model.OrderView;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Everything validation needs for one order, loaded once: a snapshot of the order's items,
+ * its customer and the catalog entry of each distinct product. A missing customer or product is held as null.
+ */
+final class ValidationContext {
+    // Replaced by the saved copy once validation prices the order
+    private Order order;
+    private final OrderView items;
+    private final Customer customer;
+    private final Map<String, CatalogProduct> products;
+
+    private ValidationContext(Order order, OrderView items, Customer customer, Map<String, CatalogProduct> products) {
+        this.order = order;
+        this.items = items;
+        this.customer = customer;
+        this.products = products;
+    }
+
+    static ValidationContext load(Order order,
+                                  Function<String, CatalogProduct> productLookup,
+                                  Function<String, Customer> customerLookup) {
+        OrderView items = order.snapshot();
+        Map<String, CatalogProduct> products = new HashMap<>();
+        for (int i = 0; i < items.getItemCount(); i++) {
+            String productId = items.getProductId(i);
+            if (!products.containsKey(productId)) {
+                products.put(productId, productLookup.apply(productId));
+            }
+        }
+        return new ValidationContext(order, items, customerLookup.apply(order.getCustomerId()), products);
+    }
+
+    Order getOrder() {
+        return order;
+    }
+
+    void setOrder(Order order) {
+        this.order = order;
+    }
+
+    // The items as they were when validation started; pricing doesn't change them
+    OrderView getItems() {
+        return items;
+    }
+
+    Customer getCustomer() {
+        return customer;
+    }
+
+    CatalogProduct getProduct(String productId) {
+        return products.get(productId);
+    }
+}
@@ -0,0 +1,39 @@
+package com.oms.service.pricing;
+
+import com.oms.model.Customer;
+import com.oms.model.CustomerType;
+
+import java.math.BigDecimal;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Percentage discount on the order total by customer type. Types without a rate pay full price.
+ */
+public final class CustomerTierDiscountRule implements OrderPricingRule {
+    // (1 - rate) per CustomerType ordinal, precomputed so apply() is a single multiply
+    private final BigDecimal[] multipliers = new BigDecimal[CustomerType.values().length];
+
+    public CustomerTierDiscountRule(Map<CustomerType, BigDecimal> discountRates) {
+        for (CustomerType type : CustomerType.values()) {
+            BigDecimal rate = discountRates.getOrDefault(type, BigDecimal.ZERO);
+            multipliers[type.ordinal()] = BigDecimal.ONE.subtract(rate);
+        }
+    }
+
+    /**
+     * The discount rates built into CustomerType.
+     */
+    public static CustomerTierDiscountRule fromCustomerTypes() {
+        Map<CustomerType, BigDecimal> rates = new EnumMap<>(CustomerType.class);
+        for (CustomerType type : CustomerType.values()) {
+            rates.put(type, type.getDiscountRate());
+        }
+        return new CustomerTierDiscountRule(rates);
+    }
+
+    @Override
+    public BigDecimal apply(Customer customer, BigDecimal total) {
+        return total.multiply(multipliers[customer.getType().ordinal()]);
+    }
+}
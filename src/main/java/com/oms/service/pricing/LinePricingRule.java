@@ -0,0 +1,12 @@
+package com.oms.service.pricing;
+
+import com.oms.model.Item;
+
+import java.math.BigDecimal;
+
+/**
+ * Adjusts a single line's VAT-inclusive amount before lines are summed.
+ */
+public interface LinePricingRule extends PricingRule {
+    BigDecimal apply(Item item, BigDecimal lineAmount);
+}
@@ -0,0 +1,12 @@
+package com.oms.service.pricing;
+
+import com.oms.model.Customer;
+
+import java.math.BigDecimal;
+
+/**
+ * Adjusts the running VAT-inclusive order total, after all line rules have run.
+ */
+public interface OrderPricingRule extends PricingRule {
+    BigDecimal apply(Customer customer, BigDecimal total);
+}
@@ -0,0 +1,95 @@
+package com.oms.service.pricing;
+
+import com.oms.model.Customer;
+import com.oms.model.Item;
+import com.oms.model.Order;
+import com.oms.model.OrderView;
+import com.oms.service.PricingResult;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An immutable, compiled list of pricing rules. Evaluation runs line rules on every item,
+ * sums the lines, runs order rules on the total, then extracts VAT. Rounding matches
+ * PricingEngine: HALF_UP to two decimals for the net, the total and the VAT amount.
+ */
+public final class PricingPlan {
+    private final long version;
+    private final LinePricingRule[] lineRules;
+    private final OrderPricingRule[] orderRules;
+    private final BigDecimal vatMultiplier;
+
+    private PricingPlan(long version, LinePricingRule[] lineRules, OrderPricingRule[] orderRules,
+                        BigDecimal vatMultiplier) {
+        this.version = version;
+        this.lineRules = lineRules;
+        this.orderRules = orderRules;
+        this.vatMultiplier = vatMultiplier;
+    }
+
+    /**
+     * Compiles rules into a plan. The list must end with exactly one VatRule.
+     */
+    public static PricingPlan compile(long version, List<? extends PricingRule> rules) {
+        if (rules.isEmpty() || !(rules.get(rules.size() - 1) instanceof VatRule)) {
+            throw new IllegalArgumentException("A pricing plan must end with a VatRule");
+        }
+
+        List<LinePricingRule> lineRules = new ArrayList<>();
+        List<OrderPricingRule> orderRules = new ArrayList<>();
+        for (int i = 0; i < rules.size() - 1; i++) {
+            PricingRule rule = rules.get(i);
+            if (rule instanceof LinePricingRule) {
+                lineRules.add((LinePricingRule) rule);
+            } else if (rule instanceof OrderPricingRule) {
+                orderRules.add((OrderPricingRule) rule);
+            } else if (rule instanceof VatRule) {
+                throw new IllegalArgumentException("A pricing plan must contain exactly one VatRule");
+            } else {
+                throw new IllegalArgumentException("Unsupported pricing rule " + rule.getClass().getName());
+            }
+        }
+
+        VatRule vat = (VatRule) rules.get(rules.size() - 1);
+        return new PricingPlan(version,
+                lineRules.toArray(new LinePricingRule[0]),
+                orderRules.toArray(new OrderPricingRule[0]),
+                vat.getMultiplier());
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public PricingResult evaluate(Order order, Customer customer) {
+        // Base total: sum of all line items with VAT included, read from the order's cached
+        // snapshot, so evaluating copies neither the item list nor the items
+        OrderView items = order.snapshot();
+        BigDecimal total;
+        if (lineRules.length == 0) {
+            // No line to adjust, so the snapshot's precomputed sum is the base total
+            total = items.getItemsTotal();
+        } else {
+            total = BigDecimal.ZERO;
+            for (int i = 0; i < items.getItemCount(); i++) {
+                Item item = order.getItem(i);
+                BigDecimal line = items.getLinePrice(i);
+                for (LinePricingRule rule : lineRules) {
+                    line = rule.apply(item, line);
+                }
+                total = total.add(line);
+            }
+        }
+
+        for (OrderPricingRule rule : orderRules) {
+            total = rule.apply(customer, total);
+        }
+
+        BigDecimal vatAmount = total.subtract(total.divide(vatMultiplier, 2, RoundingMode.HALF_UP));
+
+        return new PricingResult(total.setScale(2, RoundingMode.HALF_UP), vatAmount.setScale(2, RoundingMode.HALF_UP));
+    }
+}
@@ -0,0 +1,8 @@
+package com.oms.service.pricing;
+
+/**
+ * A step in a pricing plan. Rules are one of LinePricingRule, OrderPricingRule or VatRule;
+ * PricingPlan.compile sorts them into the matching stage, keeping their relative order.
+ */
+public interface PricingRule {
+}
@@ -0,0 +1,29 @@
+package com.oms.service.pricing;
+
+import com.oms.model.Item;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Percentage discount on the lines of specific products, e.g. a campaign on a few SKUs.
+ */
+public final class ProductPromotionRule implements LinePricingRule {
+    // productId -> (1 - rate), copied so later changes to the caller's map can't leak in
+    private final Map<String, BigDecimal> multipliers;
+
+    public ProductPromotionRule(Map<String, BigDecimal> discountRatesByProduct) {
+        Map<String, BigDecimal> copy = new HashMap<>();
+        for (Map.Entry<String, BigDecimal> entry : discountRatesByProduct.entrySet()) {
+            copy.put(entry.getKey(), BigDecimal.ONE.subtract(entry.getValue()));
+        }
+        this.multipliers = copy;
+    }
+
+    @Override
+    public BigDecimal apply(Item item, BigDecimal lineAmount) {
+        BigDecimal multiplier = multipliers.get(item.getProductId());
+        return multiplier == null ? lineAmount : lineAmount.multiply(multiplier);
+    }
+}
@@ -0,0 +1,22 @@
+package com.oms.service.pricing;
+
+import java.math.BigDecimal;
+
+/**
+ * Extracts VAT from the final VAT-inclusive total: VAT = total - total / multiplier.
+ * Every plan ends with exactly one VatRule.
+ */
+public final class VatRule implements PricingRule {
+    private final BigDecimal multiplier;
+
+    public VatRule(BigDecimal multiplier) {
+        if (multiplier.signum() <= 0) {
+            throw new IllegalArgumentException("VAT multiplier must be positive");
+        }
+        this.multiplier = multiplier;
+    }
+
+    BigDecimal getMultiplier() {
+        return multiplier;
+    }
+}
@@ -0,0 +1,23 @@
+package com.oms.service.pricing;
+
+import com.oms.model.Customer;
+
+import java.math.BigDecimal;
+
+/**
+ * Percentage discount when the running total is strictly above a threshold.
+ */
+public final class VolumeDiscountRule implements OrderPricingRule {
+    private final BigDecimal threshold;
+    private final BigDecimal multiplier;
+
+    public VolumeDiscountRule(BigDecimal threshold, BigDecimal discountRate) {
+        this.threshold = threshold;
+        this.multiplier = BigDecimal.ONE.subtract(discountRate);
+    }
+
+    @Override
+    public BigDecimal apply(Customer customer, BigDecimal total) {
+        return total.compareTo(threshold) > 0 ? total.multiply(multiplier) : total;
+    }
+}
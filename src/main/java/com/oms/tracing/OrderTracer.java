@@ -0,0 +1,222 @@
+package com.oms.tracing;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Per-order trace spans, kept in a bounded lock-free ring buffer that always holds the most
+ * recent spans.
+ *
+ * An order is sampled or not by a hash of its orderId, so every span of a sampled order is kept
+ * and the rest cost one hash and a comparison. A trace follows the order on the current thread:
+ * startTrace opens it, and startSpan inside it records child steps that don't know the orderId,
+ * such as checking one product's stock. Recording a span claims a slot with one atomic increment
+ * and never waits; once the buffer is full, new spans overwrite the oldest.
+ *
+ * exportChromeTrace writes the spans in the Chrome trace event format, which chrome://tracing
+ * and Perfetto open directly.
+ */
+public final class OrderTracer {
+    // Returned by startTrace and startSpan when the current thread isn't tracing
+    public static final long NOT_TRACED = Long.MIN_VALUE;
+
+    private static final OrderTracer DISABLED = new OrderTracer(0, 1);
+
+    private final long sampleThreshold;
+    private final AtomicReferenceArray<TraceSpan> ring;
+    private final int mask;
+    private final AtomicLong recorded = new AtomicLong();
+    private final long originNanos = System.nanoTime();
+    private final ThreadLocal<TraceContext> context = ThreadLocal.withInitial(TraceContext::new);
+
+    /**
+     * Traces about sampleRate (0 to 1) of all orders, keeping the latest capacity spans;
+     * capacity is rounded up to a power of two.
+     */
+    public OrderTracer(double sampleRate, int capacity) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("Sample rate must be between 0 and 1: " + sampleRate);
+        }
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        // Hashes are compared as unsigned 32-bit values
+        this.sampleThreshold = (long) (sampleRate * (1L << 32));
+        this.ring = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    // Traces nothing
+    public static OrderTracer disabled() {
+        return DISABLED;
+    }
+
+    public boolean isSampled(String orderId) {
+        if (sampleThreshold == 0) {
+            return false;
+        }
+        int hash = orderId.hashCode() * 0x9E3779B9;
+        return ((hash ^ (hash >>> 16)) & 0xFFFFFFFFL) < sampleThreshold;
+    }
+
+    /**
+     * Starts a span for orderId on this thread, making it the current trace if there is none.
+     * Inside another order's trace, or for an order that isn't sampled, returns NOT_TRACED.
+     * Pass the result to endSpan.
+     */
+    public long startTrace(String orderId) {
+        if (sampleThreshold == 0) {
+            return NOT_TRACED;
+        }
+        TraceContext current = context.get();
+        if (current.orderId == null) {
+            if (orderId == null || !isSampled(orderId)) {
+                return NOT_TRACED;
+            }
+            current.orderId = orderId;
+        } else if (!current.orderId.equals(orderId)) {
+            return NOT_TRACED;
+        }
+        current.depth++;
+        return System.nanoTime();
+    }
+
+    /**
+     * Starts a child span of the current trace; NOT_TRACED if this thread isn't tracing.
+     */
+    public long startSpan() {
+        if (sampleThreshold == 0) {
+            return NOT_TRACED;
+        }
+        TraceContext current = context.get();
+        if (current.orderId == null) {
+            return NOT_TRACED;
+        }
+        current.depth++;
+        return System.nanoTime();
+    }
+
+    /**
+     * Records the span started at startNanos under name. The trace ends with its outermost span.
+     */
+    public void endSpan(String name, long startNanos) {
+        if (startNanos == NOT_TRACED) {
+            return;
+        }
+        long end = System.nanoTime();
+        TraceContext current = context.get();
+        int depth = --current.depth;
+        Thread thread = Thread.currentThread();
+        record(new TraceSpan(current.orderId, name, startNanos - originNanos, end - startNanos,
+                thread.getId(), thread.getName(), depth));
+        if (depth == 0) {
+            current.orderId = null;
+        }
+    }
+
+    // Spans recorded since the tracer was created, including any since overwritten
+    public long getRecordedCount() {
+        return recorded.get();
+    }
+
+    /**
+     * The spans still in the buffer, oldest first.
+     */
+    public List<TraceSpan> getSpans() {
+        List<TraceSpan> spans = new ArrayList<>(ring.length());
+        for (int i = 0; i < ring.length(); i++) {
+            TraceSpan span = ring.get(i);
+            if (span != null) {
+                spans.add(span);
+            }
+        }
+        spans.sort(Comparator.comparingLong(TraceSpan::getStartNanos));
+        return spans;
+    }
+
+    // All spans of orderId still in the buffer, oldest first
+    public List<TraceSpan> getSpans(String orderId) {
+        List<TraceSpan> spans = new ArrayList<>();
+        for (TraceSpan span : getSpans()) {
+            if (span.getOrderId().equals(orderId)) {
+                spans.add(span);
+            }
+        }
+        return spans;
+    }
+
+    /**
+     * Writes the buffered spans to file as Chrome trace events: one complete ("X") event per
+     * span, on a track per thread, with the orderId as an argument.
+     */
+    public void exportChromeTrace(Path file) throws IOException {
+        List<TraceSpan> spans = getSpans();
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("{\"displayTimeUnit\":\"ns\",\"traceEvents\":[");
+            Set<Long> namedThreads = new HashSet<>();
+            boolean first = true;
+            for (TraceSpan span : spans) {
+                if (namedThreads.add(span.getThreadId())) {
+                    first = separate(out, first);
+                    out.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":" + span.getThreadId()
+                            + ",\"args\":{\"name\":" + quote(span.getThreadName()) + "}}");
+                }
+                first = separate(out, first);
+                out.write("{\"name\":" + quote(span.getName())
+                        + ",\"cat\":\"order\",\"ph\":\"X\",\"pid\":1,\"tid\":" + span.getThreadId()
+                        + ",\"ts\":" + micros(span.getStartNanos())
+                        + ",\"dur\":" + micros(span.getDurationNanos())
+                        + ",\"args\":{\"orderId\":" + quote(span.getOrderId()) + "}}");
+            }
+            out.write("]}\n");
+        }
+    }
+
+    private void record(TraceSpan span) {
+        ring.set((int) (recorded.getAndIncrement() & mask), span);
+    }
+
+    private static boolean separate(BufferedWriter out, boolean first) throws IOException {
+        if (!first) {
+            out.write(",\n");
+        }
+        return false;
+    }
+
+    // Trace event times are microseconds; keep nanosecond precision as a fraction
+    private static String micros(long nanos) {
+        return String.format("%d.%03d", nanos / 1000, nanos % 1000);
+    }
+
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    // The trace open on one thread, if any
+    private static final class TraceContext {
+        private String orderId;
+        private int depth;
+    }
+}
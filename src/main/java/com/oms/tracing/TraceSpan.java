@@ -0,0 +1,36 @@
+package com.oms.tracing;
+
+/**
+ * One timed step in processing an order. Times are nanoseconds since the tracer was created.
+ * Spans of one order on one thread nest by time: a span lies within the span that was open on
+ * that thread when it started.
+ */
+public final class TraceSpan {
+    private final String orderId;
+    private final String name;
+    private final long startNanos;
+    private final long durationNanos;
+    private final long threadId;
+    private final String threadName;
+    // 0 for the span that started the trace on its thread
+    private final int depth;
+
+    TraceSpan(String orderId, String name, long startNanos, long durationNanos,
+              long threadId, String threadName, int depth) {
+        this.orderId = orderId;
+        this.name = name;
+        this.startNanos = startNanos;
+        this.durationNanos = durationNanos;
+        this.threadId = threadId;
+        this.threadName = threadName;
+        this.depth = depth;
+    }
+
+    public String getOrderId() { return orderId; }
+    public String getName() { return name; }
+    public long getStartNanos() { return startNanos; }
+    public long getDurationNanos() { return durationNanos; }
+    public long getThreadId() { return threadId; }
+    public String getThreadName() { return threadName; }
+    public int getDepth() { return depth; }
+}
@@ -0,0 +1,290 @@
+package com.oms.codec;
+
+import com.oms.exception.CodecException;
+import com.oms.model.*;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModelCodecTest {
+
+    @Test
+    void testOrderRoundTrip() {
+        ModelCodec codec = new ModelCodec(new ProductIdDictionary());
+        Order order = new Order("O-1", "C001", Arrays.asList(
+                new Item("P001", 3, new BigDecimal("1234.50")),
+                new Item("P002", 1, new BigDecimal("0.99")),
+                new Item("P001", 100, new BigDecimal("7"))), "Storgatan 1, Göteborg");
+        order.setStatus(OrderStatus.PAID);
+        order.setCreatedOn(Instant.parse("2024-03-01T10:15:30.123456Z"));
+        order.setUpdatedOn(Instant.parse("2024-03-02T08:00:00Z"));
+        order.setTotalAmount(new BigDecimal("3800.47"));
+        order.setVatAmount(new BigDecimal("760.09"));
+
+        Order decoded = roundTrip(codec, order);
+
+        assertEquals("O-1", decoded.getOrderId());
+        assertEquals("C001", decoded.getCustomerId());
+        assertEquals(OrderStatus.PAID, decoded.getStatus());
+        assertEquals(order.getCreatedOn(), decoded.getCreatedOn());
+        assertEquals(order.getUpdatedOn(), decoded.getUpdatedOn());
+        assertEquals(new BigDecimal("3800.47"), decoded.getTotalAmount());
+        assertEquals(new BigDecimal("760.09"), decoded.getVatAmount());
+        assertEquals("Storgatan 1, Göteborg", decoded.getShippingAddress());
+        assertEquals(3, decoded.getItems().size());
+        for (int i = 0; i < 3; i++) {
+            Item expected = order.getItems().get(i);
+            Item actual = decoded.getItems().get(i);
+            assertEquals(expected.getProductId(), actual.getProductId());
+            assertEquals(expected.getQuantity(), actual.getQuantity());
+            // equals, not compareTo: the scale must survive too
+            assertEquals(expected.getUnitPrice(), actual.getUnitPrice());
+            assertEquals(expected.getLinePrice(), actual.getLinePrice());
+        }
+        assertEquals(2, codec.getDictionary().size());
+    }
+
+    @Test
+    void testNullsAndEdgeValuesRoundTrip() {
+        ModelCodec codec = new ModelCodec(new ProductIdDictionary());
+        Item empty = new Item();
+        Item negative = new Item("P😀", Integer.MIN_VALUE);
+        negative.setUnitPrice(new BigDecimal("-92233720368547758.08"));
+        negative.setLinePrice(new BigDecimal("1E+5"));
+        Order order = new Order(null, null, Arrays.asList(empty, negative), null);
+        order.setStatus(null);
+        order.setCreatedOn(Instant.parse("1960-01-01T00:00:00.000001Z"));
+        order.setUpdatedOn(null);
+
+        Order decoded = roundTrip(codec, order);
+
+        assertNull(decoded.getOrderId());
+        assertNull(decoded.getCustomerId());
+        assertNull(decoded.getStatus());
+        assertNull(decoded.getShippingAddress());
+        assertNull(decoded.getTotalAmount());
+        assertEquals(order.getCreatedOn(), decoded.getCreatedOn());
+        assertNull(decoded.getUpdatedOn());
+        Item decodedEmpty = decoded.getItems().get(0);
+        assertNull(decodedEmpty.getProductId());
+        assertNull(decodedEmpty.getQuantity());
+        assertNull(decodedEmpty.getUnitPrice());
+        Item decodedNegative = decoded.getItems().get(1);
+        assertEquals("P😀", decodedNegative.getProductId());
+        assertEquals(Integer.MIN_VALUE, decodedNegative.getQuantity());
+        assertEquals(new BigDecimal("-92233720368547758.08"), decodedNegative.getUnitPrice());
+        assertEquals(new BigDecimal("1E+5"), decodedNegative.getLinePrice());
+    }
+
+    @Test
+    void testInstantsKeepMicrosecondPrecision() {
+        ModelCodec codec = new ModelCodec(new ProductIdDictionary());
+        Order order = new Order("O-1", "C001", new ArrayList<>(), "Address");
+        order.setCreatedOn(Instant.parse("2024-03-01T10:15:30.123456789Z"));
+
+        assertEquals(Instant.parse("2024-03-01T10:15:30.123456Z"), roundTrip(codec, order).getCreatedOn());
+    }
+
+    @Test
+    void testCustomerAndProductRoundTrip() {
+        ModelCodec codec = new ModelCodec(new ProductIdDictionary());
+        Customer customer = new Customer("C001", CustomerType.GOLD, new BigDecimal("50000.00"));
+        customer.setUsedCredit(new BigDecimal("1234.56"));
+        Product product = new Product("P001", "Hammare", new BigDecimal("249.00"), 42);
+        product.setActive(false);
+
+        ByteBuffer buffer = ByteBuffer.allocate(codec.sizeOf(customer) + codec.sizeOf(product));
+        codec.write(customer, buffer);
+        codec.write(product, buffer);
+        assertFalse(buffer.hasRemaining());
+        buffer.flip();
+
+        Customer decodedCustomer = codec.readCustomer(buffer);
+        Product decodedProduct = codec.readProduct(buffer);
+        assertEquals("C001", decodedCustomer.getCustomerId());
+        assertEquals(CustomerType.GOLD, decodedCustomer.getType());
+        assertEquals(new BigDecimal("50000.00"), decodedCustomer.getCreditLimit());
+        assertEquals(new BigDecimal("1234.56"), decodedCustomer.getUsedCredit());
+        assertEquals("P001", decodedProduct.getId());
+        assertEquals("Hammare", decodedProduct.getName());
+        assertEquals(new BigDecimal("249.00"), decodedProduct.getPrice());
+        assertEquals(42, decodedProduct.getStockQuantity());
+        assertFalse(decodedProduct.isActive());
+    }
+
+    @Test
+    void testDirectAndReadOnlyBuffers() {
+        ModelCodec codec = new ModelCodec(new ProductIdDictionary());
+        Order order = new Order("O-1", "C001", Arrays.asList(new Item("P001", 2, new BigDecimal("10.50"))), "Adress");
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(codec.sizeOf(order));
+        codec.write(order, direct);
+        direct.flip();
+
+        Order decoded = codec.readOrder(direct.asReadOnlyBuffer());
+        assertEquals("Adress", decoded.getShippingAddress());
+        assertEquals("P001", decoded.getItems().get(0).getProductId());
+    }
+
+    @Test
+    void testDictionaryEntriesCarryIdsToAnotherReader() {
+        List<String> published = new ArrayList<>();
+        ModelCodec writer = new ModelCodec(new ProductIdDictionary((id, productId) -> published.add(id + "=" + productId)));
+        ModelCodec reader = new ModelCodec(new ProductIdDictionary());
+        Order order = new Order("O-1", "C001", Arrays.asList(
+                new Item("P007", 1, new BigDecimal("1.00")), new Item("P003", 1, new BigDecimal("2.00"))), "A");
+
+        ByteBuffer record = ByteBuffer.allocate(writer.sizeOf(order));
+        writer.write(order, record);
+        record.flip();
+        assertEquals(List.of("0=P007", "1=P003"), published);
+
+        // Without the dictionary the ids mean nothing
+        assertThrows(CodecException.class, () -> reader.readOrder(record.duplicate()));
+
+        String[] entries = writer.getDictionary().entries();
+        for (int id = 0; id < entries.length; id++) {
+            ByteBuffer entry = ByteBuffer.allocate(writer.sizeOfDictionaryEntry(id, entries[id]));
+            writer.writeDictionaryEntry(id, entries[id], entry);
+            entry.flip();
+            reader.readDictionaryEntry(entry);
+        }
+        assertEquals("P003", reader.readOrder(record).getItems().get(1).getProductId());
+    }
+
+    @Test
+    void testDictionaryRejectsConflictingDefinitions() {
+        ProductIdDictionary dictionary = new ProductIdDictionary();
+        dictionary.define(0, "P001");
+        dictionary.define(0, "P001");
+
+        assertThrows(CodecException.class, () -> dictionary.define(0, "P002"));
+        assertThrows(CodecException.class, () -> dictionary.define(1, "P001"));
+        assertEquals(1, dictionary.intern("P002"));
+    }
+
+    @Test
+    void testReadsOrdersWrittenInOlderFormats() {
+        ModelCodec codec = new ModelCodec(new ProductIdDictionary());
+        Order order = new Order("O-1", "C001", new ArrayList<>(), "Address");
+        order.setVersion(7);
+        order.setCatalogVersion(300);
+        ByteBuffer encoded = ByteBuffer.allocate(codec.sizeOf(order));
+        codec.write(order, encoded);
+        encoded.flip();
+        Order current = codec.readOrder(encoded.duplicate());
+        assertEquals(7, current.getVersion());
+        assertEquals(300, current.getCatalogVersion());
+
+        // Format 2 is the same record without the trailing catalog version
+        order.setCatalogVersion(0);
+        ByteBuffer withoutCatalog = ByteBuffer.allocate(codec.sizeOf(order));
+        codec.write(order, withoutCatalog);
+        withoutCatalog.flip();
+        withoutCatalog.put(0, (byte) 2);
+        withoutCatalog.limit(withoutCatalog.limit() - 1);
+
+        Order decodedV2 = codec.readOrder(withoutCatalog);
+        assertEquals(7, decodedV2.getVersion());
+        assertEquals(0, decodedV2.getCatalogVersion());
+        assertFalse(withoutCatalog.hasRemaining());
+
+        // Format 1 has neither trailing version
+        order.setVersion(0);
+        ByteBuffer legacy = ByteBuffer.allocate(codec.sizeOf(order));
+        codec.write(order, legacy);
+        legacy.flip();
+        legacy.put(0, (byte) 1);
+        legacy.limit(legacy.limit() - 2);
+
+        Order decoded = codec.readOrder(legacy);
+        assertEquals(0, decoded.getVersion());
+        assertEquals("Address", decoded.getShippingAddress());
+        assertFalse(legacy.hasRemaining());
+    }
+
+    @Test
+    void testStockLevelRoundTrip() {
+        ModelCodec codec = new ModelCodec(new ProductIdDictionary());
+        ByteBuffer buffer = ByteBuffer.allocate(codec.sizeOfStockLevel("P001", -3)
+                + codec.sizeOfStockLevel("P002", Integer.MAX_VALUE));
+        codec.writeStockLevel("P001", -3, buffer);
+        codec.writeStockLevel("P002", Integer.MAX_VALUE, buffer);
+        buffer.flip();
+
+        List<String> levels = new ArrayList<>();
+        codec.readStockLevel(buffer, (productId, quantity) -> levels.add(productId + "=" + quantity));
+        codec.readStockLevel(buffer, (productId, quantity) -> levels.add(productId + "=" + quantity));
+        assertEquals(List.of("P001=-3", "P002=" + Integer.MAX_VALUE), levels);
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    void testRejectsBadInput() {
+        ModelCodec codec = new ModelCodec(new ProductIdDictionary());
+        Order order = new Order("O-1", "C001", new ArrayList<>(), "Address");
+
+        assertThrows(CodecException.class, () -> codec.write(order, ByteBuffer.allocate(codec.sizeOf(order) - 1)));
+
+        ByteBuffer encoded = ByteBuffer.allocate(codec.sizeOf(order));
+        codec.write(order, encoded);
+        encoded.flip();
+        ByteBuffer truncated = encoded.duplicate();
+        truncated.limit(encoded.limit() - 3);
+        assertThrows(CodecException.class, () -> codec.readOrder(truncated));
+
+        ByteBuffer futureVersion = encoded.duplicate();
+        futureVersion.put(0, (byte) (ModelCodec.FORMAT_VERSION + 1));
+        assertThrows(CodecException.class, () -> codec.readOrder(futureVersion));
+
+        Product huge = new Product("P001", "Huge", new BigDecimal("1E+200"), 1);
+        assertThrows(CodecException.class, () -> codec.sizeOf(huge));
+    }
+
+    // Round-trip speed is measured by CodecBenchmark
+    @Test
+    void testRoundTripsReuseOneBuffer() {
+        ModelCodec codec = new ModelCodec(new ProductIdDictionary());
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            items.add(new Item("P00" + i, i + 1, new BigDecimal("199.90")));
+        }
+        Order order = new Order("9f1c2a7e-3b4d-4c5e-8f6a-7b8c9d0e1f2a", "C042", items, "Storgatan 1, 411 38 Göteborg");
+        order.setTotalAmount(new BigDecimal("2998.50"));
+        order.setVatAmount(new BigDecimal("599.70"));
+
+        // sizeOf is exact, so one buffer of that size serves every round trip
+        int size = codec.sizeOf(order);
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (int i = 0; i < 1_000; i++) {
+            buffer.clear();
+            codec.write(order, buffer);
+            assertEquals(size, buffer.position());
+            buffer.flip();
+            Order decoded = codec.readOrder(buffer);
+            assertFalse(buffer.hasRemaining());
+            assertEquals(order.getOrderId(), decoded.getOrderId());
+            assertEquals(order.getShippingAddress(), decoded.getShippingAddress());
+            assertEquals(order.getTotalAmount(), decoded.getTotalAmount());
+            assertEquals(5, decoded.getItems().size());
+            assertEquals(new BigDecimal("199.90"), decoded.getItems().get(4).getUnitPrice());
+        }
+    }
+
+    private static Order roundTrip(ModelCodec codec, Order order) {
+        ByteBuffer buffer = ByteBuffer.allocate(codec.sizeOf(order));
+        codec.write(order, buffer);
+        assertFalse(buffer.hasRemaining());
+        buffer.flip();
+        Order decoded = codec.readOrder(buffer);
+        assertFalse(buffer.hasRemaining());
+        return decoded;
+    }
+}
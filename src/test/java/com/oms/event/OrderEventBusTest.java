@@ -0,0 +1,210 @@
+package com.oms.event;
+
+import com.oms.model.OrderStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderEventBusTest {
+
+    @Test
+    void testEverySubscriberSeesEveryEventInPublishOrder() {
+        List<OrderEvent> first = Collections.synchronizedList(new ArrayList<>());
+        List<OrderEvent> second = Collections.synchronizedList(new ArrayList<>());
+        try (OrderEventBus bus = new OrderEventBus(8)) {
+            bus.subscribe("first", first::addAll);
+            bus.subscribe("second", second::addAll);
+
+            // Many more events than slots, so publishers wrap the ring repeatedly
+            for (int i = 0; i < 1_000; i++) {
+                bus.publish(event("O" + i, null, OrderStatus.CREATED));
+            }
+        }
+
+        assertEquals(1_000, first.size());
+        assertEquals(first, second);
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals("O" + i, first.get(i).getOrderId());
+        }
+    }
+
+    @Test
+    void testConcurrentPublishersLoseNothingAndKeepPerThreadOrder() throws Exception {
+        int threads = 4;
+        int perThread = 20_000;
+        List<OrderEvent> received = new ArrayList<>();
+        OrderEventBus bus = new OrderEventBus(64);
+        // Only the subscriber thread touches received until close() has joined it
+        bus.subscribe("collector", received::addAll);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String prefix = "T" + t + "-";
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    bus.publish(event(prefix + i, null, OrderStatus.CREATED));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        bus.close();
+
+        assertEquals(threads * perThread, received.size());
+        Map<String, Integer> nextByThread = new HashMap<>();
+        for (OrderEvent event : received) {
+            String[] parts = event.getOrderId().split("-");
+            int expected = nextByThread.getOrDefault(parts[0], 0);
+            assertEquals(expected, Integer.parseInt(parts[1]), "events of one publisher out of order");
+            nextByThread.put(parts[0], expected + 1);
+        }
+    }
+
+    @Test
+    void testSlowSubscriberReceivesBatchesAndHoldsPublishersBack() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        OrderEventBus bus = new OrderEventBus(4);
+        bus.subscribe("slow", batch -> {
+            batchSizes.add(batch.size());
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        Thread publisher = new Thread(() -> {
+            for (int i = 0; i < 100; i++) {
+                bus.publish(event("O" + i, null, OrderStatus.CREATED));
+            }
+        });
+        publisher.start();
+        publisher.join(200);
+        // The subscriber is stuck on its first batch, so the ring fills and the publisher waits
+        assertTrue(publisher.isAlive());
+
+        release.countDown();
+        publisher.join(10_000);
+        assertFalse(publisher.isAlive());
+        bus.close();
+
+        assertEquals(100, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(batchSizes.stream().anyMatch(size -> size > 1), "events were never batched: " + batchSizes);
+    }
+
+    @Test
+    void testFailingHandlerDoesNotStopDelivery() {
+        List<OrderEvent> received = new ArrayList<>();
+        try (OrderEventBus bus = new OrderEventBus(4)) {
+            bus.subscribe("flaky", batch -> {
+                received.addAll(batch);
+                throw new IllegalStateException("boom");
+            });
+            for (int i = 0; i < 20; i++) {
+                bus.publish(event("O" + i, null, OrderStatus.CREATED));
+            }
+        }
+
+        assertEquals(20, received.size());
+    }
+
+    @Test
+    void testPublishAfterCloseFails() {
+        OrderEventBus bus = new OrderEventBus(4);
+        bus.close();
+
+        assertThrows(IllegalStateException.class, () -> bus.publish(event("O1", null, OrderStatus.CREATED)));
+        assertThrows(IllegalStateException.class, () -> bus.subscribe("late", batch -> { }));
+    }
+
+    @Test
+    void testCapacityRoundsUpToPowerOfTwo() {
+        assertEquals(1, new OrderEventBus(1).getCapacity());
+        assertEquals(8, new OrderEventBus(5).getCapacity());
+        assertEquals(1024, new OrderEventBus(1024).getCapacity());
+        assertThrows(IllegalArgumentException.class, () -> new OrderEventBus(0));
+    }
+
+    @Test
+    void testHistoryKeepsAndReplaysEachOrdersEvents() {
+        OrderEventHistory history = new OrderEventHistory();
+        try (OrderEventBus bus = new OrderEventBus(16)) {
+            bus.subscribe("history", history);
+            bus.publish(event("O1", null, OrderStatus.CREATED, 1));
+            bus.publish(event("O2", null, OrderStatus.CREATED, 1));
+            bus.publish(event("O1", OrderStatus.CREATED, OrderStatus.PENDING_VALIDATION, 2));
+            bus.publish(event("O1", OrderStatus.PENDING_VALIDATION, OrderStatus.VALIDATED, 4));
+        }
+
+        List<OrderStatus> replayed = new ArrayList<>();
+        history.replay("O1", event -> replayed.add(event.getStatus()));
+
+        assertEquals(List.of(OrderStatus.CREATED, OrderStatus.PENDING_VALIDATION, OrderStatus.VALIDATED), replayed);
+        assertEquals(1, history.getHistory("O2").size());
+        assertTrue(history.getHistory("missing").isEmpty());
+        assertEquals(2, history.getOrderCount());
+    }
+
+    @Test
+    void testHistoryOrdersEventsByVersionAndDropsDuplicates() {
+        OrderEventHistory history = new OrderEventHistory();
+        history.onEvents(List.of(
+                event("O1", null, OrderStatus.CREATED, 1),
+                event("O1", OrderStatus.VALIDATED, OrderStatus.PAID, 4),
+                event("O1", OrderStatus.PAID, OrderStatus.CANCELLED, 5)));
+        // Published after the transitions that committed after them
+        history.onEvents(List.of(
+                event("O1", OrderStatus.PENDING_VALIDATION, OrderStatus.VALIDATED, 3),
+                event("O1", OrderStatus.CREATED, OrderStatus.PENDING_VALIDATION, 2),
+                event("O1", OrderStatus.VALIDATED, OrderStatus.PAID, 4)));
+
+        List<Long> versions = new ArrayList<>();
+        history.replay("O1", event -> versions.add(event.getVersion()));
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), versions);
+    }
+
+    @Test
+    void testSustainedPublishingDeliversEveryEvent() {
+        int events = 1_000_000;
+        long[] delivered = new long[1];
+        try (OrderEventBus bus = new OrderEventBus(1 << 14)) {
+            // Only the subscriber thread writes delivered until close() has joined it
+            bus.subscribe("counter", batch -> delivered[0] += batch.size());
+            OrderEvent event = event("O1", OrderStatus.CREATED, OrderStatus.PENDING_VALIDATION);
+
+            for (int i = 0; i < events; i++) {
+                bus.publish(event);
+            }
+        }
+
+        assertEquals(events, delivered[0]);
+    }
+
+    private static OrderEvent event(String orderId, OrderStatus from, OrderStatus to) {
+        return event(orderId, from, to, 1);
+    }
+
+    private static OrderEvent event(String orderId, OrderStatus from, OrderStatus to, long version) {
+        return new OrderEvent(orderId, "C001", from, to, version, Instant.now());
+    }
+}
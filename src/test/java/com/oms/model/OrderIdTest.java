@@ -0,0 +1,62 @@
+package com.oms.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderIdTest {
+
+    @Test
+    void testStringFormRoundTrips() {
+        OrderId id = OrderId.of(OrderId.MAX_TIMESTAMP, OrderId.MAX_NODE, 0xABCDEF, (1L << 40) - 1);
+        String text = id.toString();
+
+        assertEquals(OrderId.LENGTH, text.length());
+        assertEquals(id, OrderId.parse(text));
+        assertEquals(OrderId.MAX_TIMESTAMP, id.getTimestampMillis());
+        assertEquals(OrderId.MAX_NODE, id.getNode());
+        assertEquals(0xABCDEF, id.getThreadSlot());
+        assertEquals((1L << 40) - 1, id.getSequence());
+        assertEquals("00000000000000000000000000", OrderId.of(0, 0, 0, 0).toString());
+    }
+
+    @Test
+    void testParseAcceptsOnlyCanonicalStrings() {
+        String text = OrderId.of(1_700_000_000_000L, 3, 1, 42).toString();
+
+        assertNull(OrderId.parse(text.toLowerCase()));
+        assertNull(OrderId.parse(text.substring(1)));
+        assertNull(OrderId.parse("8" + text.substring(1)));
+        assertNull(OrderId.parse(text.substring(0, 25) + "U"));
+        assertNull(OrderId.parse("6f1c1c52-0e9f-4a4f-9c5e-0d5a2b9e1f3a"));
+        assertNull(OrderId.parse(null));
+    }
+
+    @Test
+    void testIdsAndTheirStringsSortByTimeThenNode() {
+        List<OrderId> ids = new ArrayList<>();
+        ids.add(OrderId.of(2_000, 0, 0, 0));
+        ids.add(OrderId.of(1_000, 9, 5, 7));
+        ids.add(OrderId.of(1_000, 9, 5, 8));
+        ids.add(OrderId.of(1_000, 2, 0, 1L << 39));
+        ids.add(OrderId.of(1L << 47, 0, 0, 0));
+        List<String> texts = new ArrayList<>();
+        for (OrderId id : ids) {
+            texts.add(id.toString());
+        }
+
+        Collections.sort(ids);
+        Collections.sort(texts);
+
+        assertEquals(1_000, ids.get(0).getTimestampMillis());
+        assertEquals(2, ids.get(0).getNode());
+        assertEquals(1L << 47, ids.get(4).getTimestampMillis());
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(ids.get(i).toString(), texts.get(i));
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.oms.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderViewTest {
+
+    @Test
+    void testSnapshotFlattensItems() {
+        Item unpriced = new Item("P002", 3);
+        unpriced.setUnitPrice(new BigDecimal("10.50"));
+        Order order = new Order("O1", "C1", Arrays.asList(new Item("P001", 2, new BigDecimal("100")), unpriced),
+                "Address");
+
+        OrderView view = order.snapshot();
+
+        assertEquals(2, view.getItemCount());
+        assertEquals("P001", view.getProductId(0));
+        assertEquals(2, view.getQuantity(0));
+        assertEquals(new BigDecimal("200"), view.getLinePrice(0));
+        // No line price on the item: computed from unit price and quantity
+        assertEquals(new BigDecimal("31.50"), view.getLinePrice(1));
+        assertEquals(new BigDecimal("231.50"), view.getItemsTotal());
+        assertNull(new Order("O2", "C1", Arrays.asList(new Item("P001", 1)), "Address").snapshot().getItemsTotal());
+    }
+
+    @Test
+    void testSnapshotIsCachedUntilTheOrderChanges() {
+        Order order = new Order("O1", "C1", Arrays.asList(new Item("P001", 1, new BigDecimal("100"))), "Address");
+        OrderView first = order.snapshot();
+        assertSame(first, order.snapshot());
+
+        order.setStatus(OrderStatus.PAID);
+        OrderView paid = order.snapshot();
+        assertNotSame(first, paid);
+        assertEquals(OrderStatus.CREATED, first.getStatus());
+        assertEquals(OrderStatus.PAID, paid.getStatus());
+        assertEquals(first.getItemsTotal(), paid.getItemsTotal());
+
+        order.setItems(Arrays.asList(new Item("P003", 4, new BigDecimal("5"))));
+        assertEquals("P003", order.snapshot().getProductId(0));
+        assertEquals(new BigDecimal("20"), order.snapshot().getItemsTotal());
+    }
+
+    @Test
+    void testCopySharesItemsButNotHeader() {
+        Order order = new Order("O1", "C1", Arrays.asList(new Item("P001", 1, new BigDecimal("100"))), "Address");
+        order.snapshot();
+
+        Order copy = new Order(order);
+        copy.setTotalAmount(new BigDecimal("125"));
+        copy.setItems(Arrays.asList(new Item("P002", 1, new BigDecimal("1"))));
+
+        assertNull(order.snapshot().getTotalAmount());
+        assertEquals("P001", order.snapshot().getProductId(0));
+        assertEquals("P002", copy.snapshot().getProductId(0));
+        assertEquals(new BigDecimal("125"), copy.snapshot().getTotalAmount());
+    }
+}
@@ -0,0 +1,347 @@
+package com.oms.persistence;
+
+import com.oms.exception.PersistenceException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void testAppendAndReplay() {
+        try (Journal journal = Journal.open(directory, 1024 * 1024, true)) {
+            journal.append((byte) 1, bytes("first"));
+            journal.append((byte) 2, bytes("second"));
+        }
+
+        List<String> replayed = new ArrayList<>();
+        try (Journal journal = Journal.open(directory, 1024 * 1024, true)) {
+            journal.replay(record -> replayed.add(record.getType() + ":" + text(record)));
+        }
+
+        assertEquals(List.of("1:first", "2:second"), replayed);
+    }
+
+    @Test
+    void testRollsOverToNewSegments() throws IOException {
+        try (Journal journal = Journal.open(directory, 256, false)) {
+            for (int i = 0; i < 100; i++) {
+                journal.append((byte) 1, bytes("record-" + i));
+            }
+        }
+
+        assertTrue(Journal.listSegments(directory).size() > 1);
+
+        List<String> replayed = new ArrayList<>();
+        try (Journal journal = Journal.open(directory, 256, false)) {
+            journal.replay(record -> replayed.add(text(record)));
+        }
+        assertEquals(100, replayed.size());
+        assertEquals("record-0", replayed.get(0));
+        assertEquals("record-99", replayed.get(99));
+    }
+
+    @Test
+    void testTornTailIsTruncatedOnOpen() throws IOException {
+        try (Journal journal = Journal.open(directory, 1024 * 1024, true)) {
+            journal.append((byte) 1, bytes("complete"));
+        }
+
+        // Simulate a crash halfway through writing a second record
+        ByteBuffer torn = Journal.encode((byte) 1, bytes("never finished"));
+        torn.limit(torn.limit() - 5);
+        try (FileChannel channel = FileChannel.open(Journal.segmentPath(directory, 1), StandardOpenOption.APPEND)) {
+            channel.write(torn);
+        }
+
+        List<String> replayed = new ArrayList<>();
+        try (Journal journal = Journal.open(directory, 1024 * 1024, true)) {
+            journal.replay(record -> replayed.add(text(record)));
+            journal.append((byte) 1, bytes("after crash"));
+        }
+        assertEquals(List.of("complete"), replayed);
+
+        replayed.clear();
+        try (Journal journal = Journal.open(directory, 1024 * 1024, true)) {
+            journal.replay(record -> replayed.add(text(record)));
+        }
+        assertEquals(List.of("complete", "after crash"), replayed);
+    }
+
+    @Test
+    void testCorruptRecordStopsReplay() throws IOException {
+        try (Journal journal = Journal.open(directory, 1024 * 1024, true)) {
+            journal.append((byte) 1, bytes("good"));
+            journal.append((byte) 1, bytes("flipped"));
+        }
+
+        // Flip a payload byte of the second record
+        try (FileChannel channel = FileChannel.open(Journal.segmentPath(directory, 1), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'X'}), channel.size() - 1);
+        }
+
+        List<String> replayed = new ArrayList<>();
+        try (Journal journal = Journal.open(directory, 1024 * 1024, true)) {
+            journal.replay(record -> replayed.add(text(record)));
+        }
+        assertEquals(List.of("good"), replayed);
+    }
+
+    @Test
+    void testConcurrentAppendsAreAllDurable() throws Exception {
+        int threads = 8;
+        int perThread = 500;
+        try (Journal journal = Journal.open(directory, 64 * 1024, true)) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    final int worker = t;
+                    futures.add(executor.submit(() -> {
+                        for (int i = 0; i < perThread; i++) {
+                            journal.append((byte) 1, bytes(worker + "-" + i));
+                        }
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        Set<String> replayed = new HashSet<>();
+        try (Journal journal = Journal.open(directory, 64 * 1024, true)) {
+            journal.replay(record -> replayed.add(text(record)));
+        }
+        assertEquals(threads * perThread, replayed.size());
+    }
+
+    @Test
+    void testAppendsRacingCloseFailInsteadOfHanging() throws Exception {
+        Journal journal = Journal.open(directory, 64 * 1024, false);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    int appended = 0;
+                    try {
+                        while (true) {
+                            journal.append((byte) 1, bytes("record"));
+                            appended++;
+                        }
+                    } catch (PersistenceException e) {
+                        return appended;
+                    }
+                }));
+            }
+            Thread.sleep(20);
+            journal.close();
+
+            // Every appender sees the close, however its last append lined up with it
+            for (Future<Integer> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testAppendAsyncCompletesOnceWritten() {
+        try (Journal journal = Journal.open(directory, 1024 * 1024, true)) {
+            byte[] payload = bytes("queued");
+            CompletableFuture<Void> written = journal.appendAsync((byte) 1, payload.length, buffer -> buffer.put(payload));
+            Journal.await(written);
+            assertTrue(written.isDone());
+        }
+
+        List<String> replayed = new ArrayList<>();
+        try (Journal journal = Journal.open(directory, 1024 * 1024, true)) {
+            journal.replay(record -> replayed.add(text(record)));
+            journal.close();
+            assertThrows(PersistenceException.class, () -> journal.appendAsync((byte) 1, 0, buffer -> { }));
+        }
+        assertEquals(List.of("queued"), replayed);
+    }
+
+    @Test
+    void testWriteFailureFailsEveryLaterAppend() throws IOException {
+        FailingChannel[] channels = new FailingChannel[1];
+        Journal journal = Journal.open(directory, 1024 * 1024, true, segment -> channels[0] = new FailingChannel(
+                FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)));
+        try {
+            journal.append((byte) 1, bytes("first"));
+
+            // The next write stops halfway through the record, and the one after it throws
+            channels[0].tearNextWrite = true;
+            assertThrows(PersistenceException.class, () -> journal.append((byte) 1, bytes("second")));
+
+            // The channel works again, but nothing may follow the torn record
+            assertThrows(PersistenceException.class, () -> journal.append((byte) 1, bytes("third")));
+            assertThrows(PersistenceException.class, () -> journal.appendAsync((byte) 1, 0, buffer -> { }));
+            assertThrows(PersistenceException.class, journal::rollSegment);
+        } finally {
+            journal.close();
+        }
+        assertEquals(Journal.HEADER_BYTES + bytes("first").length, Files.size(Journal.segmentPath(directory, 1)));
+
+        List<String> replayed = new ArrayList<>();
+        try (Journal reopened = Journal.open(directory, 1024 * 1024, true)) {
+            reopened.replay(record -> replayed.add(text(record)));
+            reopened.append((byte) 1, bytes("fourth"));
+        }
+        try (Journal reopened = Journal.open(directory, 1024 * 1024, true)) {
+            replayed.clear();
+            reopened.replay(record -> replayed.add(text(record)));
+        }
+        assertEquals(List.of("first", "fourth"), replayed);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(JournalRecord record) {
+        ByteBuffer payload = record.getPayload();
+        byte[] bytes = new byte[payload.remaining()];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static final class FailingChannel extends FileChannel {
+        private final FileChannel delegate;
+        private volatile boolean tearNextWrite;
+        private boolean torn;
+
+        private FailingChannel(FileChannel delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            if (torn) {
+                torn = false;
+                throw new IOException("No space left on device");
+            }
+            if (tearNextWrite) {
+                tearNextWrite = false;
+                torn = true;
+                ByteBuffer half = srcs[offset].duplicate();
+                half.limit(half.position() + half.remaining() / 2);
+                int written = delegate.write(half);
+                srcs[offset].position(srcs[offset].position() + written);
+                return written;
+            }
+            return delegate.write(srcs, offset, length);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return delegate.write(src);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return delegate.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return delegate.read(dsts, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            delegate.force(metaData);
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return delegate.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            return delegate.transferFrom(src, position, count);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return delegate.read(dst, position);
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            return delegate.write(src, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return delegate.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return delegate.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return delegate.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            delegate.close();
+        }
+    }
+}
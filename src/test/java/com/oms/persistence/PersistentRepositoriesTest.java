@@ -0,0 +1,277 @@
+package com.oms.persistence;
+
+import com.oms.exception.PersistenceException;
+import com.oms.model.*;
+import com.oms.repository.ProductRepository;
+import com.oms.service.CreditLedger;
+import com.oms.service.InventoryManager;
+import com.oms.service.OrderManagementService;
+import com.oms.service.PricingEngine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentRepositoriesTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void testRecoversRepositoriesAfterRestart() {
+        String validatedId;
+        String paidId;
+        String cancelledId;
+        try (PersistentRepositories repositories = PersistentRepositories.open(directory)) {
+            OrderManagementService orderService = newService(repositories, new InventoryManager(
+                    repositories.getProductRepository()));
+            repositories.getCustomerRepository().save(
+                    new Customer("C001", CustomerType.GOLD, new BigDecimal("100000")));
+            repositories.getProductRepository().save(new Product("P001", "Laptop", new BigDecimal("5000"), 10));
+            repositories.getProductRepository().save(new Product("P002", "Mouse", new BigDecimal("200"), 5));
+
+            validatedId = orderService.processOrder(orderService.createOrder("C001",
+                    Arrays.asList(new Item("P001", 2)), "Address 1").getOrderId()).getOrderId();
+            paidId = orderService.processOrder(orderService.createOrder("C001",
+                    Arrays.asList(new Item("P002", 3)), "Address 2").getOrderId()).getOrderId();
+            orderService.updateOrderStatus(paidId, OrderStatus.PAID);
+            cancelledId = orderService.createOrder("C001", Arrays.asList(new Item("P001", 1)), "Address 3")
+                    .getOrderId();
+            orderService.updateOrderStatus(cancelledId, OrderStatus.CANCELLED);
+        }
+
+        try (PersistentRepositories repositories = PersistentRepositories.open(directory)) {
+            Order validated = repositories.getOrderRepository().findById(validatedId).get();
+            assertEquals(OrderStatus.VALIDATED, validated.getStatus());
+            assertEquals(new BigDecimal("8730.00"), validated.getTotalAmount());
+            assertEquals(new BigDecimal("1746.00"), validated.getVatAmount());
+            assertEquals(new BigDecimal("10000"), validated.getItems().get(0).getLinePrice());
+            assertEquals("Address 1", validated.getShippingAddress());
+
+            assertEquals(OrderStatus.PAID, repositories.getOrderRepository().findById(paidId).get().getStatus());
+            // Created, pending, priced, validated, paid
+            assertEquals(5, repositories.getOrderRepository().findById(paidId).get().getVersion());
+            assertEquals(OrderStatus.CANCELLED,
+                    repositories.getOrderRepository().findById(cancelledId).get().getStatus());
+            assertEquals(3, repositories.getOrderRepository().findByCustomerId("C001").size());
+
+            Customer customer = repositories.getCustomerRepository().findById("C001").get();
+            assertEquals(CustomerType.GOLD, customer.getType());
+            assertEquals(new BigDecimal("100000"), customer.getCreditLimit());
+
+            InventoryManager inventoryManager = new InventoryManager(repositories.getProductRepository());
+            repositories.restoreReservations(inventoryManager);
+
+            // The validated order still holds its reservation; the paid order already took its stock
+            assertTrue(inventoryManager.checkAvailability("P001", 8));
+            assertFalse(inventoryManager.checkAvailability("P001", 9));
+            assertTrue(inventoryManager.checkAvailability("P002", 2));
+            assertFalse(inventoryManager.checkAvailability("P002", 3));
+
+            // Paid credit comes back as usedCredit, the validated order's credit as a hold
+            CreditLedger creditLedger = new CreditLedger(repositories.getCustomerRepository());
+            repositories.restoreCreditHolds(creditLedger);
+            BigDecimal paidTotal = repositories.getOrderRepository().findById(paidId).get().getTotalAmount();
+            assertEquals(0, paidTotal.compareTo(customer.getUsedCredit()));
+            assertEquals(new BigDecimal("100000").subtract(paidTotal).subtract(validated.getTotalAmount()),
+                    creditLedger.getAvailableCredit(customer));
+        }
+    }
+
+    @Test
+    void testRecoveredStockReflectsConfirmedOrders() {
+        try (PersistentRepositories repositories = PersistentRepositories.open(directory)) {
+            repositories.getProductRepository().save(new Product("P001", "Laptop", new BigDecimal("5000"), 10));
+            InventoryManager inventoryManager = new InventoryManager(repositories.getProductRepository());
+            inventoryManager.reserveStock("O001", Arrays.asList(new Item("P001", 4)));
+            inventoryManager.confirmStock("O001");
+        }
+
+        try (PersistentRepositories repositories = PersistentRepositories.open(directory)) {
+            assertEquals(6, repositories.getProductRepository().getStock("P001"));
+        }
+    }
+
+    @Test
+    void testStockAndCatalogSurviveSnapshotAndResave() {
+        try (PersistentRepositories repositories = PersistentRepositories.open(directory, 4096, false)) {
+            ProductRepository products = repositories.getProductRepository();
+            Product product = new Product("P001", "Laptop", new BigDecimal("5000"), 10);
+            products.save(product);
+            products.adjustStock("P001", -3);
+            repositories.snapshot();
+
+            // The product still says 10; saving it again must not bring that back
+            product.setPrice(new BigDecimal("4500"));
+            products.save(product);
+            products.adjustStock("P001", -2);
+        }
+
+        try (PersistentRepositories repositories = PersistentRepositories.open(directory, 4096, false)) {
+            ProductRepository products = repositories.getProductRepository();
+            assertEquals(5, products.getStock("P001"));
+            assertEquals(new BigDecimal("4500"), products.getCatalog().find("P001").getPrice());
+        }
+    }
+
+    @Test
+    void testSnapshotPlusJournalTailRecoversState() throws Exception {
+        try (PersistentRepositories repositories = PersistentRepositories.open(directory, 4096, false)) {
+            repositories.getCustomerRepository().save(new Customer("C001", CustomerType.SILVER, new BigDecimal("500")));
+            for (int i = 0; i < 200; i++) {
+                repositories.getOrderRepository().save(newOrder("O" + i));
+            }
+
+            repositories.snapshot();
+
+            // Changes after the snapshot live only in the journal tail
+            Order changed = repositories.getOrderRepository().findById("O7").get();
+            changed.setStatus(OrderStatus.PENDING_VALIDATION);
+            repositories.getOrderRepository().save(changed);
+            repositories.getOrderRepository().save(newOrder("O-after"));
+        }
+
+        assertEquals(1, Snapshots.list(directory).size());
+        // Segments before the snapshot were compacted away
+        assertTrue(Journal.listSegments(directory).get(0) > 1);
+
+        try (PersistentRepositories repositories = PersistentRepositories.open(directory, 4096, false)) {
+            assertEquals(201, repositories.getOrderRepository().size());
+            assertEquals(OrderStatus.PENDING_VALIDATION,
+                    repositories.getOrderRepository().findById("O7").get().getStatus());
+            assertTrue(repositories.getOrderRepository().findById("O-after").isPresent());
+            assertEquals(CustomerType.SILVER, repositories.getCustomerRepository().findById("C001").get().getType());
+        }
+    }
+
+    @Test
+    void testProductDictionarySurvivesCompaction() {
+        try (PersistentRepositories repositories = PersistentRepositories.open(directory, 4096, false)) {
+            repositories.getOrderRepository().save(new Order("O1", "C001",
+                    Arrays.asList(new Item("P001", 1, new BigDecimal("1.00")), new Item("P002", 1, new BigDecimal("2.00"))), "A"));
+            // The segments defining P001 and P002 are deleted here
+            repositories.snapshot();
+            repositories.getOrderRepository().save(new Order("O2", "C001",
+                    Arrays.asList(new Item("P002", 1, new BigDecimal("2.00")), new Item("P003", 1, new BigDecimal("3.00"))), "A"));
+        }
+
+        try (PersistentRepositories repositories = PersistentRepositories.open(directory, 4096, false)) {
+            repositories.getOrderRepository().save(new Order("O3", "C001",
+                    Arrays.asList(new Item("P004", 1, new BigDecimal("4.00")), new Item("P001", 1, new BigDecimal("1.00"))), "A"));
+        }
+
+        try (PersistentRepositories repositories = PersistentRepositories.open(directory, 4096, false)) {
+            assertEquals("P002", repositories.getOrderRepository().findById("O1").get().getItems().get(1).getProductId());
+            assertEquals("P003", repositories.getOrderRepository().findById("O2").get().getItems().get(1).getProductId());
+            assertEquals("P004", repositories.getOrderRepository().findById("O3").get().getItems().get(0).getProductId());
+            assertEquals("P001", repositories.getOrderRepository().findById("O3").get().getItems().get(1).getProductId());
+        }
+    }
+
+    @Test
+    void testSnapshotWhileWritersKeepSaving() throws Exception {
+        int writers = 4;
+        int perWriter = 2_000;
+        try (PersistentRepositories repositories = PersistentRepositories.open(directory, 64 * 1024, false)) {
+            ExecutorService executor = Executors.newFixedThreadPool(writers);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int w = 0; w < writers; w++) {
+                    final int writer = w;
+                    futures.add(executor.submit(() -> {
+                        for (int i = 0; i < perWriter; i++) {
+                            Order order = newOrder("W" + writer + "-" + i);
+                            repositories.getOrderRepository().save(order);
+                            order.setStatus(OrderStatus.PENDING_VALIDATION);
+                            repositories.getOrderRepository().save(order);
+                        }
+                    }));
+                }
+                for (int s = 0; s < 5; s++) {
+                    repositories.snapshot();
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        try (PersistentRepositories repositories = PersistentRepositories.open(directory, 64 * 1024, false)) {
+            assertEquals(writers * perWriter, repositories.getOrderRepository().size());
+            assertEquals(writers * perWriter,
+                    repositories.getOrderRepository().countByStatus(OrderStatus.PENDING_VALIDATION));
+        }
+    }
+
+    @Test
+    void testOrderWhoseJournalWriteFailsIsNotStored() {
+        Journal journal = Journal.open(directory, 1024 * 1024, false);
+        JournalingOrderRepository orders = new JournalingOrderRepository(journal);
+        Order stored = orders.save(new Order("O1", "C001", Arrays.asList(new Item("P001", 1)), "Address"));
+        journal.close();
+
+        Order update = new Order("O1", "C001", Arrays.asList(new Item("P001", 2)), "Address");
+        update.setVersion(stored.getVersion());
+        assertThrows(PersistenceException.class, () -> orders.saveIfVersion(update, stored.getVersion()));
+        assertThrows(PersistenceException.class,
+                () -> orders.save(new Order("O2", "C001", Arrays.asList(new Item("P001", 1)), "Address")));
+
+        // Neither failed save is visible, and the versions left behind are the journaled ones
+        assertSame(stored, orders.findById("O1").get());
+        assertEquals(1, stored.getVersion());
+        assertEquals(1, update.getVersion());
+        assertFalse(orders.findById("O2").isPresent());
+    }
+
+    @Test
+    void testScheduledSnapshots() throws Exception {
+        try (PersistentRepositories repositories = PersistentRepositories.open(directory, 4096, false)) {
+            repositories.getOrderRepository().save(newOrder("O1"));
+            repositories.scheduleSnapshots(Duration.ofMillis(20));
+
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (Snapshots.list(directory).isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertFalse(Snapshots.list(directory).isEmpty());
+        }
+    }
+
+    @Test
+    void testCorruptSnapshotIsRejected() throws Exception {
+        try (PersistentRepositories repositories = PersistentRepositories.open(directory, 4096, false)) {
+            repositories.getOrderRepository().save(newOrder("O1"));
+            repositories.snapshot();
+        }
+
+        Path snapshot = Snapshots.list(directory).get(0);
+        byte[] bytes = Files.readAllBytes(snapshot);
+        bytes[bytes.length / 2] ^= 0x55;
+        Files.write(snapshot, bytes);
+
+        assertThrows(PersistenceException.class, () -> PersistentRepositories.open(directory, 4096, false));
+    }
+
+    private static Order newOrder(String orderId) {
+        return new Order(orderId, "C001", Arrays.asList(new Item("P001", 2, new BigDecimal("10.50"))), "Address");
+    }
+
+    private static OrderManagementService newService(PersistentRepositories repositories,
+                                                     InventoryManager inventoryManager) {
+        return new OrderManagementService(repositories.getOrderRepository(),
+                repositories.getCustomerRepository(), repositories.getProductRepository(),
+                new PricingEngine(), inventoryManager);
+    }
+}
@@ -0,0 +1,194 @@
+package com.oms.replication;
+
+import com.oms.model.Item;
+import com.oms.model.Product;
+import com.oms.repository.ProductRepository;
+import com.oms.service.InventoryManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InventoryNodeTest {
+    private static final List<String> MEMBERS = Arrays.asList("node-a", "node-b", "node-c");
+
+    private LoopbackTransport transport;
+    private final Map<String, ProductRepository> repositories = new LinkedHashMap<>();
+    private final Map<String, InventoryNode> nodes = new LinkedHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        transport = new LoopbackTransport();
+        for (String member : MEMBERS) {
+            ProductRepository productRepository = new ProductRepository();
+            for (int p = 0; p < 12; p++) {
+                productRepository.save(new Product("P" + p, "Product " + p, new BigDecimal("100"), 10));
+            }
+            repositories.put(member, productRepository);
+            nodes.put(member, new InventoryNode(member, MEMBERS, new InventoryManager(productRepository),
+                    productRepository, transport, Duration.ofSeconds(2)));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (InventoryNode node : nodes.values()) {
+            node.close();
+        }
+        transport.close();
+    }
+
+    @Test
+    void testEveryNodeAgreesOnOwners() {
+        Set<String> owners = new HashSet<>();
+        for (int p = 0; p < 12; p++) {
+            String owner = nodes.get("node-a").ownerOf("P" + p);
+            for (InventoryNode node : nodes.values()) {
+                assertEquals(owner, node.ownerOf("P" + p));
+            }
+            owners.add(owner);
+        }
+        assertEquals(3, owners.size());
+    }
+
+    @Test
+    void testConcurrentReservationsFromEveryNodeDoNotOversell() {
+        String productId = ownedBy("node-b");
+        List<CompletableFuture<Void>> attempts = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            InventoryNode node = nodes.get(MEMBERS.get(i % MEMBERS.size()));
+            attempts.add(node.reserveStock("O" + i, Arrays.asList(new Item(productId, 1))));
+        }
+
+        int reserved = 0;
+        for (CompletableFuture<Void> attempt : attempts) {
+            try {
+                attempt.join();
+                reserved++;
+            } catch (CompletionException e) {
+                assertTrue(e.getCause().getMessage().contains("Insufficient stock"));
+            }
+        }
+        assertEquals(10, reserved);
+        assertEquals(0, nodes.get("node-b").getAvailableStock(productId));
+    }
+
+    @Test
+    void testFailedOwnerReleasesTheOtherOwnersParts() {
+        String onA = ownedBy("node-a");
+        String onB = ownedBy("node-b");
+        String onC = ownedBy("node-c");
+
+        CompletionException failure = assertThrows(CompletionException.class, () -> nodes.get("node-a")
+                .reserveStock("O1", Arrays.asList(new Item(onA, 4), new Item(onB, 4), new Item(onC, 11))).join());
+        assertTrue(failure.getCause().getMessage().contains("Insufficient stock for product " + onC));
+
+        awaitAvailable("node-b", onB, 10);
+        assertEquals(10, nodes.get("node-a").getAvailableStock(onA));
+        assertEquals(10, nodes.get("node-c").getAvailableStock(onC));
+    }
+
+    @Test
+    void testConfirmDeductsStockOnEveryOwner() {
+        String onA = ownedBy("node-a");
+        String onC = ownedBy("node-c");
+        InventoryNode node = nodes.get("node-a");
+
+        node.reserveStock("O1", Arrays.asList(new Item(onA, 2), new Item(onC, 3))).join();
+        node.confirmStock("O1").join();
+
+        assertEquals(8, repositories.get("node-a").getStock(onA));
+        assertEquals(7, repositories.get("node-c").getStock(onC));
+        assertThrows(CompletionException.class, () -> node.confirmStock("O1").join());
+    }
+
+    @Test
+    void testOwnersReplicateAvailableStockToTheOtherNodes() {
+        String onC = ownedBy("node-c");
+        assertEquals(0, nodes.get("node-a").getAvailableStock(onC));
+
+        for (InventoryNode node : nodes.values()) {
+            node.publishStockLevels();
+        }
+        awaitAvailable("node-a", onC, 10);
+
+        nodes.get("node-b").reserveStock("O1", Arrays.asList(new Item(onC, 6))).join();
+        awaitAvailable("node-a", onC, 4);
+        awaitAvailable("node-b", onC, 4);
+
+        nodes.get("node-b").releaseStock("O1");
+        awaitAvailable("node-a", onC, 10);
+    }
+
+    @Test
+    void testMessagesAreSentInBatches() {
+        String onB = ownedBy("node-b");
+        List<CompletableFuture<Void>> reservations = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            reservations.add(nodes.get("node-a").reserveStock("O" + i, Arrays.asList(new Item(onB, 0))));
+        }
+        CompletableFuture.allOf(reservations.toArray(new CompletableFuture<?>[0])).join();
+
+        assertTrue(transport.getMessageCount() > transport.getBatchCount());
+    }
+
+    @Test
+    void testRequestsToAnUnreachableOwnerTimeOut() {
+        ProductRepository productRepository = repositories.get("node-a");
+        try (LoopbackTransport partitioned = new LoopbackTransport();
+             InventoryNode node = new InventoryNode("node-x", Arrays.asList("node-x", "node-y"),
+                     new InventoryManager(productRepository), productRepository, partitioned, Duration.ofMillis(50))) {
+            String onY = null;
+            for (int p = 0; onY == null; p++) {
+                onY = node.owns("P" + p) ? null : "P" + p;
+            }
+            String productId = onY;
+
+            // node-y never bound, so its batches are dropped
+            CompletionException failure = assertThrows(CompletionException.class,
+                    () -> node.reserveStock("O1", Arrays.asList(new Item(productId, 1))).join());
+            assertTrue(failure.getCause() instanceof TimeoutException);
+            assertTrue(partitioned.getDroppedCount() > 0);
+        }
+    }
+
+    private String ownedBy(String nodeId) {
+        for (int p = 0; p < 12; p++) {
+            if (nodes.get(nodeId).owns("P" + p)) {
+                return "P" + p;
+            }
+        }
+        throw new IllegalStateException("Node " + nodeId + " owns no product");
+    }
+
+    // Replication is asynchronous, so followers converge shortly after the owner
+    private void awaitAvailable(String nodeId, String productId, int expected) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (nodes.get(nodeId).getAvailableStock(productId) != expected && System.nanoTime() < deadline) {
+            sleep(1);
+        }
+        assertEquals(expected, nodes.get(nodeId).getAvailableStock(productId));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
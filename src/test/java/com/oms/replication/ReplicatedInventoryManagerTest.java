@@ -0,0 +1,263 @@
+package com.oms.replication;
+
+import com.oms.exception.InvalidStateTransitionException;
+import com.oms.exception.OrderValidationException;
+import com.oms.model.*;
+import com.oms.repository.CustomerRepository;
+import com.oms.repository.OrderRepository;
+import com.oms.repository.ProductRepository;
+import com.oms.service.BatchOrderResult;
+import com.oms.service.InventoryManager;
+import com.oms.service.OrderManagementService;
+import com.oms.service.PricingEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicatedInventoryManagerTest {
+    private static final List<String> MEMBERS = Arrays.asList("node-a", "node-b");
+
+    // Reservations only expire when a test calls expireReservations
+    private static final Duration TTL = Duration.ofMillis(50);
+
+    private LoopbackTransport transport;
+    private final Map<String, ProductRepository> repositories = new LinkedHashMap<>();
+    private final Map<String, InventoryManager> managers = new LinkedHashMap<>();
+    private final Map<String, OrderRepository> orderRepositories = new LinkedHashMap<>();
+    private final Map<String, CustomerRepository> customers = new LinkedHashMap<>();
+    private final Map<String, ReplicatedInventoryManager> replicatedManagers = new LinkedHashMap<>();
+    private final Map<String, InventoryNode> nodes = new LinkedHashMap<>();
+    private final Map<String, OrderManagementService> services = new LinkedHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        transport = new LoopbackTransport();
+        for (String member : MEMBERS) {
+            ProductRepository productRepository = new ProductRepository();
+            for (int p = 0; p < 8; p++) {
+                productRepository.save(new Product("P" + p, "Product " + p, new BigDecimal("100"), 10));
+            }
+            CustomerRepository customerRepository = new CustomerRepository();
+            customerRepository.save(new Customer("C001", CustomerType.REGULAR, new BigDecimal("1000000")));
+
+            InventoryManager manager = new InventoryManager(productRepository, TTL);
+            InventoryNode node = new InventoryNode(member, MEMBERS, manager, productRepository, transport,
+                    Duration.ofSeconds(2));
+            repositories.put(member, productRepository);
+            managers.put(member, manager);
+            nodes.put(member, node);
+            OrderRepository orderRepository = new OrderRepository();
+            ReplicatedInventoryManager replicated = new ReplicatedInventoryManager(node, productRepository);
+            orderRepositories.put(member, orderRepository);
+            customers.put(member, customerRepository);
+            replicatedManagers.put(member, replicated);
+            services.put(member, new OrderManagementService(orderRepository, customerRepository,
+                    productRepository, new PricingEngine(), replicated));
+        }
+        for (InventoryNode node : nodes.values()) {
+            node.publishStockLevels();
+        }
+        for (int p = 0; p < 8; p++) {
+            awaitAvailable("node-a", "P" + p, 10);
+            awaitAvailable("node-b", "P" + p, 10);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (InventoryNode node : nodes.values()) {
+            node.close();
+        }
+        transport.close();
+    }
+
+    @Test
+    void testOrderIsReservedAndPaidOnTheProductsOwner() {
+        String onB = ownedBy("node-b");
+        OrderManagementService service = services.get("node-a");
+
+        Order order = service.processOrder(service.createOrder("C001",
+                Arrays.asList(new Item(onB, 3), new Item(ownedBy("node-a"), 1)), "Address").getOrderId());
+        assertEquals(OrderStatus.VALIDATED, order.getStatus());
+        assertEquals(7, nodes.get("node-b").getAvailableStock(onB));
+
+        service.updateOrderStatus(order.getOrderId(), OrderStatus.PAID);
+        assertEquals(7, repositories.get("node-b").getStock(onB));
+        // node-a's own copy of a product it doesn't own is never touched
+        assertEquals(10, repositories.get("node-a").getStock(onB));
+    }
+
+    @Test
+    void testNodesTogetherNeverOversellAProduct() {
+        String onB = ownedBy("node-b");
+        int validated = 0;
+        for (int i = 0; i < 16; i++) {
+            OrderManagementService service = services.get(MEMBERS.get(i % MEMBERS.size()));
+            String orderId = service.createOrder("C001", Arrays.asList(new Item(onB, 1)), "Address").getOrderId();
+            try {
+                service.processOrder(orderId);
+                validated++;
+            } catch (OrderValidationException | IllegalStateException e) {
+                assertTrue(e.getMessage().contains("Insufficient stock"), e.getMessage());
+            }
+        }
+        assertEquals(10, validated);
+        assertEquals(0, nodes.get("node-b").getAvailableStock(onB));
+    }
+
+    @Test
+    void testCancelAndFailedBatchOrdersReleaseOnTheOwner() {
+        String onB = ownedBy("node-b");
+        OrderManagementService service = services.get("node-a");
+
+        Order cancelled = service.processOrder(service.createOrder("C001",
+                Arrays.asList(new Item(onB, 4)), "Address").getOrderId());
+        service.updateOrderStatus(cancelled.getOrderId(), OrderStatus.CANCELLED);
+        awaitAvailable("node-b", onB, 10);
+
+        List<String> orderIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            orderIds.add(service.createOrder("C001", Arrays.asList(new Item(onB, 4)), "Address").getOrderId());
+        }
+        List<BatchOrderResult> results = service.processOrders(orderIds);
+
+        assertTrue(results.get(0).isSuccess());
+        assertTrue(results.get(1).isSuccess());
+        assertEquals("Insufficient stock for product " + onB, results.get(2).getError());
+        assertEquals(OrderStatus.CANCELLED, results.get(2).getOrder().getStatus());
+        assertEquals(2, nodes.get("node-b").getAvailableStock(onB));
+    }
+
+    @Test
+    void testExpiryOnAnOwnerCancelsTheOrderWhereItWasPlaced() {
+        String onA = ownedBy("node-a");
+        String onB = ownedBy("node-b");
+        OrderManagementService service = services.get("node-a");
+        Order order = service.processOrder(service.createOrder("C001",
+                Arrays.asList(new Item(onB, 3), new Item(onA, 2)), "Address").getOrderId());
+        assertEquals(OrderStatus.VALIDATED, order.getStatus());
+
+        // Only node-b's reservation runs out; node-a hears of it and releases its own part
+        assertEquals(1, expireOn("node-b"));
+
+        awaitStatus("node-a", order.getOrderId(), OrderStatus.CANCELLED);
+        awaitAvailable("node-a", onA, 10);
+        awaitAvailable("node-b", onB, 10);
+        assertEquals(0, service.getCreditLedger().getHeldCredit(order.getOrderId()).signum());
+        assertThrows(InvalidStateTransitionException.class,
+                () -> service.updateOrderStatus(order.getOrderId(), OrderStatus.PAID));
+    }
+
+    @Test
+    void testConfirmFailingOnOneOwnerPutsBackTheOthersStock() {
+        String onA = ownedBy("node-a");
+        String onB = ownedBy("node-b");
+        OrderManagementService service = services.get("node-a");
+        Order order = service.processOrder(service.createOrder("C001",
+                Arrays.asList(new Item(onB, 3), new Item(onA, 2)), "Address").getOrderId());
+        // node-b loses its part without telling anyone, e.g. it restarted without recovering it
+        managers.get("node-b").releaseStock(order.getOrderId());
+
+        assertThrows(InvalidStateTransitionException.class,
+                () -> service.updateOrderStatus(order.getOrderId(), OrderStatus.PAID));
+
+        // node-a deducted its part, then put it back; nothing is captured
+        assertEquals(OrderStatus.CANCELLED, orderRepositories.get("node-a").findById(order.getOrderId()).get().getStatus());
+        assertEquals(10, repositories.get("node-a").getStock(onA));
+        assertEquals(10, repositories.get("node-b").getStock(onB));
+        awaitAvailable("node-a", onA, 10);
+        awaitAvailable("node-b", onB, 10);
+        assertEquals(0, customers.get("node-a").findById("C001").get().getUsedCredit().signum());
+        assertEquals(0, service.getCreditLedger().getHeldCredit(order.getOrderId()).signum());
+    }
+
+    @Test
+    void testRestoredReservationIsHeldOnEveryOwnerAndCanBePaid() {
+        String onA = ownedBy("node-a");
+        String onB = ownedBy("node-b");
+        OrderManagementService service = services.get("node-a");
+        List<Item> items = Arrays.asList(new Item(onB, 3), new Item(onA, 2));
+        Order order = service.processOrder(service.createOrder("C001", items, "Address").getOrderId());
+        // Both owners lose the reservation, as after a restart
+        managers.get("node-a").releaseStock(order.getOrderId());
+        managers.get("node-b").releaseStock(order.getOrderId());
+        awaitAvailable("node-b", onB, 10);
+
+        replicatedManagers.get("node-a").restoreReservation(order.getOrderId(), order.getItems());
+        assertEquals(7, nodes.get("node-b").getAvailableStock(onB));
+        assertEquals(8, nodes.get("node-a").getAvailableStock(onA));
+
+        service.updateOrderStatus(order.getOrderId(), OrderStatus.PAID);
+        assertEquals(7, repositories.get("node-b").getStock(onB));
+        assertEquals(8, repositories.get("node-a").getStock(onA));
+
+        // A restored reservation expires like any other and is reported to node-a
+        Order second = service.processOrder(service.createOrder("C001", items, "Address").getOrderId());
+        managers.get("node-b").releaseStock(second.getOrderId());
+        replicatedManagers.get("node-a").restoreReservation(second.getOrderId(), second.getItems());
+        assertEquals(1, expireOn("node-b"));
+        awaitStatus("node-a", second.getOrderId(), OrderStatus.CANCELLED);
+    }
+
+    private String ownedBy(String nodeId) {
+        for (int p = 0; p < 8; p++) {
+            if (nodes.get(nodeId).owns("P" + p)) {
+                return "P" + p;
+            }
+        }
+        throw new IllegalStateException("Node " + nodeId + " owns no product");
+    }
+
+    // Waits out the TTL, then expires what node's own InventoryManager holds
+    private int expireOn(String nodeId) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        int expired;
+        while ((expired = managers.get(nodeId).expireReservations()) == 0 && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return expired;
+    }
+
+    private void awaitStatus(String nodeId, String orderId, OrderStatus expected) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (status(nodeId, orderId) != expected && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        assertEquals(expected, status(nodeId, orderId));
+    }
+
+    private OrderStatus status(String nodeId, String orderId) {
+        return orderRepositories.get(nodeId).findById(orderId).get().getStatus();
+    }
+
+    // Replication is asynchronous, so followers converge shortly after the owner
+    private void awaitAvailable(String nodeId, String productId, int expected) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (nodes.get(nodeId).getAvailableStock(productId) != expected && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        assertEquals(expected, nodes.get(nodeId).getAvailableStock(productId));
+    }
+}
@@ -0,0 +1,242 @@
+package com.oms.repository;
+
+import com.oms.model.Item;
+import com.oms.model.Order;
+import com.oms.model.OrderStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderRepositoryTest {
+    private OrderRepository orderRepository;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository = new OrderRepository();
+    }
+
+    @Test
+    void testFindByCustomerIdUsesIndex() {
+        orderRepository.save(newOrder("O001", "C001"));
+        orderRepository.save(newOrder("O002", "C001"));
+        orderRepository.save(newOrder("O003", "C002"));
+
+        assertEquals(2, orderRepository.findByCustomerId("C001").size());
+        assertEquals(1, orderRepository.findByCustomerId("C002").size());
+        assertTrue(orderRepository.findByCustomerId("C999").isEmpty());
+    }
+
+    @Test
+    void testResavingOrderDoesNotDuplicateIndexEntry() {
+        Order order = newOrder("O001", "C001");
+        orderRepository.save(order);
+        orderRepository.save(order);
+
+        assertEquals(1, orderRepository.findByCustomerId("C001").size());
+    }
+
+    @Test
+    void testChangingCustomerMovesIndexEntry() {
+        orderRepository.save(newOrder("O001", "C001"));
+        orderRepository.save(newOrder("O001", "C002"));
+
+        assertTrue(orderRepository.findByCustomerId("C001").isEmpty());
+        assertEquals(1, orderRepository.findByCustomerId("C002").size());
+    }
+
+    @Test
+    void testConcurrentSavesKeepIndexConsistent() throws Exception {
+        int threads = 8;
+        int ordersPerThread = 2_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int worker = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < ordersPerThread; i++) {
+                        // Every thread writes to the same small set of customers
+                        orderRepository.save(newOrder("O-" + worker + "-" + i, "C" + (i % 10)));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int total = 0;
+        for (int c = 0; c < 10; c++) {
+            List<Order> customerOrders = orderRepository.findByCustomerId("C" + c);
+            assertEquals(threads * ordersPerThread / 10, customerOrders.size());
+            for (Order order : customerOrders) {
+                assertEquals("C" + c, order.getCustomerId());
+            }
+            total += customerOrders.size();
+        }
+        assertEquals(threads * ordersPerThread, total);
+    }
+
+    @Test
+    void testSaveIfVersionRejectsStaleWrites() {
+        Order order = newOrder("O001", "C001");
+        assertFalse(orderRepository.saveIfVersion(order, 1));
+        assertTrue(orderRepository.saveIfVersion(order, 0));
+        assertEquals(1, order.getVersion());
+
+        Order first = new Order(order);
+        Order second = new Order(order);
+        first.setStatus(OrderStatus.PENDING_VALIDATION);
+        second.setStatus(OrderStatus.CANCELLED);
+        assertTrue(orderRepository.saveIfVersion(first, 1));
+        assertFalse(orderRepository.saveIfVersion(second, 1));
+
+        Order stored = orderRepository.findById("O001").get();
+        assertSame(first, stored);
+        assertEquals(2, stored.getVersion());
+        assertEquals(1, orderRepository.countByStatus(OrderStatus.PENDING_VALIDATION));
+        assertEquals(0, orderRepository.countByStatus(OrderStatus.CANCELLED));
+
+        // A blind save always wins and moves the version on
+        orderRepository.save(second);
+        assertEquals(3, second.getVersion());
+    }
+
+    @Test
+    void testRestoreKeepsNewestVersion() {
+        Order newer = newOrder("O001", "C001");
+        newer.setStatus(OrderStatus.PAID);
+        newer.setVersion(5);
+        Order older = newOrder("O001", "C001");
+        older.setVersion(4);
+
+        assertTrue(orderRepository.restore(newer));
+        assertFalse(orderRepository.restore(older));
+        assertEquals(OrderStatus.PAID, orderRepository.findById("O001").get().getStatus());
+        assertEquals(5, orderRepository.findById("O001").get().getVersion());
+    }
+
+    @Test
+    void testConcurrentVersionedUpdatesLoseNothing() throws Exception {
+        orderRepository.save(newOrder("O001", "C001"));
+        int threads = 8;
+        int updatesPerThread = 500;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < updatesPerThread; i++) {
+                    while (true) {
+                        Order current = orderRepository.findById("O001").get();
+                        Order updated = new Order(current);
+                        List<Item> items = updated.getItems();
+                        items.add(new Item("T" + thread + "-" + i, 1));
+                        updated.setItems(items);
+                        if (orderRepository.saveIfVersion(updated, current.getVersion())) {
+                            break;
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        Order stored = orderRepository.findById("O001").get();
+        assertEquals(1 + threads * updatesPerThread, stored.getItems().size());
+        assertEquals(1 + threads * updatesPerThread, stored.getVersion());
+    }
+
+    @Test
+    void testStatusIndexFollowsStatusChanges() {
+        Order order = newOrder("O001", "C001");
+        orderRepository.save(order);
+        orderRepository.save(newOrder("O002", "C001"));
+
+        assertEquals(2, orderRepository.countByStatus(OrderStatus.CREATED));
+
+        order.setStatus(OrderStatus.PENDING_VALIDATION);
+        orderRepository.save(order);
+
+        assertEquals(1, orderRepository.countByStatus(OrderStatus.CREATED));
+        List<Order> pending = orderRepository.findByStatus(OrderStatus.PENDING_VALIDATION, null, null, 0, 10);
+        assertEquals(1, pending.size());
+        assertEquals("O001", pending.get(0).getOrderId());
+    }
+
+    @Test
+    void testFindByStatusOrdersByUpdatedOnWithPaging() {
+        Instant base = Instant.parse("2024-01-01T00:00:00Z");
+        for (int i = 0; i < 10; i++) {
+            Order order = newOrder("O" + i, "C001");
+            // Save newest first to prove ordering comes from updatedOn
+            order.setUpdatedOn(base.plusSeconds(60L * (10 - i)));
+            orderRepository.save(order);
+        }
+
+        List<Order> firstPage = orderRepository.findByStatus(OrderStatus.CREATED, null, null, 0, 3);
+        assertEquals(Arrays.asList("O9", "O8", "O7"), orderIds(firstPage));
+
+        List<Order> secondPage = orderRepository.findByStatus(OrderStatus.CREATED, null, null, 3, 3);
+        assertEquals(Arrays.asList("O6", "O5", "O4"), orderIds(secondPage));
+    }
+
+    @Test
+    void testFindByStatusWithTimeRange() {
+        Instant base = Instant.parse("2024-01-01T00:00:00Z");
+        for (int i = 0; i < 10; i++) {
+            Order order = newOrder("O" + i, "C001");
+            order.setUpdatedOn(base.plusSeconds(60L * i));
+            orderRepository.save(order);
+        }
+
+        // Older than base + 3 minutes
+        List<Order> stale = orderRepository.findByStatus(OrderStatus.CREATED, null, base.plusSeconds(180), 0, 100);
+        assertEquals(Arrays.asList("O0", "O1", "O2"), orderIds(stale));
+
+        List<Order> window = orderRepository.findByStatus(
+                OrderStatus.CREATED, base.plusSeconds(120), base.plusSeconds(300), 0, 100);
+        assertEquals(Arrays.asList("O2", "O3", "O4"), orderIds(window));
+
+        assertEquals(3, orderRepository.streamByStatus(OrderStatus.CREATED, base.plusSeconds(420), null).count());
+    }
+
+    private static List<String> orderIds(List<Order> orders) {
+        List<String> ids = new ArrayList<>();
+        for (Order order : orders) {
+            ids.add(order.getOrderId());
+        }
+        return ids;
+    }
+
+    private static Order newOrder(String orderId, String customerId) {
+        List<Item> items = Arrays.asList(new Item("P001", 1, new BigDecimal("100")));
+        return new Order(orderId, customerId, items, "Test Address");
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.oms.repository;
+
+import com.oms.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductRepositoryTest {
+    private ProductRepository productRepository;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = new ProductRepository();
+    }
+
+    @Test
+    void testCatalogVersionChangesOnlyWithCatalogFields() {
+        Product product = new Product("P001", "Lamp", new BigDecimal("100"), 10);
+        productRepository.save(product);
+        Catalog first = productRepository.getCatalog();
+        assertEquals(1, first.getVersion());
+        assertSame(first, productRepository.getCatalog());
+
+        // Saving unchanged catalog fields, or changing stock, publishes nothing
+        productRepository.save(product);
+        productRepository.adjustStock("P001", -4);
+        assertSame(first, productRepository.getCatalog());
+
+        product.setPrice(new BigDecimal("120"));
+        productRepository.save(product);
+        Catalog second = productRepository.getCatalog();
+        assertEquals(2, second.getVersion());
+        assertEquals(new BigDecimal("120"), second.find("P001").getPrice());
+        assertEquals(2, second.find("P001").getVersion());
+
+        // Earlier catalogs never change
+        assertEquals(new BigDecimal("100"), first.find("P001").getPrice());
+        assertNull(first.find("P002"));
+    }
+
+    @Test
+    void testStockIsSeededOnceThenKeptInCounters() {
+        Product product = new Product("P001", "Lamp", new BigDecimal("100"), 10);
+        productRepository.save(product);
+        assertEquals(7, productRepository.adjustStock("P001", -3));
+
+        // A later save of the same product doesn't reset its stock
+        productRepository.save(product);
+        assertEquals(7, productRepository.getStock("P001"));
+        assertEquals(10, product.getStockQuantity());
+
+        productRepository.setStock("P001", 25);
+        assertEquals(25, productRepository.getStock("P001"));
+        assertEquals(0, productRepository.getStock("P999"));
+    }
+
+    @Test
+    void testRestockingIsExplicitAndLookupsCarryCurrentStock() {
+        productRepository.save(new Product("P001", "Lamp", new BigDecimal("100"), 10));
+        productRepository.adjustStock("P001", -4);
+
+        // Saving never restocks, even with the quantity the product was first saved with
+        productRepository.save(new Product("P001", "Lamp", new BigDecimal("100"), 10));
+        assertEquals(6, productRepository.getStock("P001"));
+        productRepository.setStock("P001", 10);
+        assertEquals(10, productRepository.getStock("P001"));
+
+        Product stored = productRepository.findById("P001").get();
+        assertEquals(10, stored.getStockQuantity());
+        assertEquals(10, productRepository.findAll().get(0).getStockQuantity());
+
+        // A lookup is a copy: sales after it still count when it's saved back with a new price
+        productRepository.adjustStock("P001", -5);
+        assertEquals(5, productRepository.findById("P001").get().getStockQuantity());
+        stored.setPrice(new BigDecimal("90"));
+        productRepository.save(stored);
+        assertEquals(5, productRepository.getStock("P001"));
+        assertEquals(new BigDecimal("90"), productRepository.getCatalog().find("P001").getPrice());
+        assertTrue(productRepository.existsById("P001"));
+        assertFalse(productRepository.existsById("P999"));
+    }
+}
@@ -0,0 +1,131 @@
+package com.oms.service;
+
+import com.oms.exception.OrderValidationException;
+import com.oms.model.*;
+import com.oms.repository.CustomerRepository;
+import com.oms.repository.OrderRepository;
+import com.oms.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncOrderProcessorTest {
+    private OrderManagementService orderService;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        OrderRepository orderRepository = new OrderRepository();
+        CustomerRepository customerRepository = new CustomerRepository();
+        ProductRepository productRepository = new ProductRepository();
+
+        orderService = new OrderManagementService(
+                orderRepository, customerRepository, productRepository,
+                new PricingEngine(), new InventoryManager(productRepository));
+
+        customerRepository.save(new Customer("C001", CustomerType.REGULAR, new BigDecimal("1000000")));
+        productRepository.save(new Product("P001", "Laptop", new BigDecimal("5000"), 1000));
+
+        executor = OrderExecutors.defaultExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testProcessOrderAsync() throws Exception {
+        AsyncOrderProcessor processor = new AsyncOrderProcessor(orderService, executor, 16);
+        Order order = orderService.createOrder("C001", Arrays.asList(new Item("P001", 1)), "123 Main St");
+
+        Order processed = processor.processOrderAsync(order.getOrderId()).get(10, TimeUnit.SECONDS);
+
+        assertEquals(OrderStatus.VALIDATED, processed.getStatus());
+        assertEquals(16, processor.availablePermits());
+    }
+
+    @Test
+    void testValidationFailureCompletesExceptionally() {
+        AsyncOrderProcessor processor = new AsyncOrderProcessor(orderService, executor, 16);
+        Order order = orderService.createOrder("C001", Arrays.asList(new Item("P001", 500)), "123 Main St");
+
+        ExecutionException thrown = assertThrows(ExecutionException.class,
+                () -> processor.processOrderAsync(order.getOrderId()).get(10, TimeUnit.SECONDS));
+
+        assertTrue(thrown.getCause() instanceof OrderValidationException);
+        assertEquals(16, processor.availablePermits());
+    }
+
+    @Test
+    void testRejectsWhenTooManyOrdersInFlight() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        // Executor that parks every task until the test lets go
+        AsyncOrderProcessor processor = new AsyncOrderProcessor(orderService, task -> executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            task.run();
+        }), 2);
+
+        List<CompletableFuture<Order>> accepted = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Order order = orderService.createOrder("C001", Arrays.asList(new Item("P001", 1)), "Address " + i);
+            accepted.add(processor.processOrderAsync(order.getOrderId()));
+        }
+        Order overflow = orderService.createOrder("C001", Arrays.asList(new Item("P001", 1)), "Overflow");
+        CompletableFuture<Order> rejected = processor.processOrderAsync(overflow.getOrderId());
+
+        ExecutionException thrown = assertThrows(ExecutionException.class, rejected::get);
+        assertTrue(thrown.getCause() instanceof RejectedExecutionException);
+
+        release.countDown();
+        for (CompletableFuture<Order> future : accepted) {
+            assertEquals(OrderStatus.VALIDATED, future.get(10, TimeUnit.SECONDS).getStatus());
+        }
+        assertEquals(2, processor.availablePermits());
+    }
+
+    @Test
+    void testBoundedExecutorRejectsWhenQueueIsFull() throws Exception {
+        ExecutorService bounded = OrderExecutors.bounded(1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            Runnable blocker = () -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            };
+            bounded.execute(blocker);
+            bounded.execute(blocker);
+
+            AsyncOrderProcessor processor = new AsyncOrderProcessor(orderService, bounded, 16);
+            Order order = orderService.createOrder("C001", Arrays.asList(new Item("P001", 1)), "123 Main St");
+
+            ExecutionException thrown = assertThrows(ExecutionException.class,
+                    () -> processor.processOrderAsync(order.getOrderId()).get());
+            assertTrue(thrown.getCause() instanceof RejectedExecutionException);
+            assertEquals(16, processor.availablePermits());
+        } finally {
+            release.countDown();
+            bounded.shutdownNow();
+        }
+    }
+}
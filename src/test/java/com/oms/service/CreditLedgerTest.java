@@ -0,0 +1,104 @@
+package com.oms.service;
+
+import com.oms.model.Customer;
+import com.oms.model.CustomerType;
+import com.oms.repository.CustomerRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CreditLedgerTest {
+    private CustomerRepository customerRepository;
+    private CreditLedger creditLedger;
+    private Customer customer;
+
+    @BeforeEach
+    void setUp() {
+        customerRepository = new CustomerRepository();
+        creditLedger = new CreditLedger(customerRepository);
+        customer = new Customer("C001", CustomerType.REGULAR, new BigDecimal("1000"));
+        customer.setUsedCredit(new BigDecimal("100.00"));
+        customerRepository.save(customer);
+    }
+
+    @Test
+    void testHoldCaptureAndRelease() {
+        assertEquals(new BigDecimal("900.00"), creditLedger.getAvailableCredit(customer));
+
+        assertTrue(creditLedger.tryHold(customer, "O1", new BigDecimal("600.00")));
+        assertFalse(creditLedger.tryHold(customer, "O2", new BigDecimal("300.01")));
+        assertTrue(creditLedger.tryHold(customer, "O2", new BigDecimal("300.00")));
+        assertEquals(new BigDecimal("0.00"), creditLedger.getAvailableCredit(customer));
+
+        creditLedger.release("O2");
+        assertEquals(new BigDecimal("300.00"), creditLedger.getAvailableCredit(customer));
+        // Holds don't touch usedCredit; capturing does
+        assertEquals(new BigDecimal("100.00"), customer.getUsedCredit());
+
+        assertTrue(creditLedger.capture("O1"));
+        assertFalse(creditLedger.capture("O1"));
+        assertEquals(new BigDecimal("700.00"), customerRepository.findById("C001").get().getUsedCredit());
+        assertEquals(new BigDecimal("300.00"), creditLedger.getAvailableCredit(customer));
+    }
+
+    @Test
+    void testHoldingAgainReplacesEarlierHold() {
+        assertTrue(creditLedger.tryHold(customer, "O1", new BigDecimal("800.00")));
+        assertTrue(creditLedger.tryHold(customer, "O1", new BigDecimal("850.00")));
+
+        assertEquals(new BigDecimal("850.00"), creditLedger.getHeldCredit("O1"));
+        assertEquals(new BigDecimal("50.00"), creditLedger.getAvailableCredit(customer));
+    }
+
+    @Test
+    void testConcurrentHoldsNeverOverspend() throws Exception {
+        int threads = 8;
+        int attemptsPerThread = 20_000;
+        AtomicLong heldOre = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int thread = t;
+                futures.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < attemptsPerThread; i++) {
+                        String orderId = thread + "-" + i;
+                        long ore = random.nextLong(1, 5_000);
+                        if (creditLedger.tryHold(customer, orderId, BigDecimal.valueOf(ore, 2))) {
+                            heldOre.addAndGet(ore);
+                            // Churn: give some credit back so holds keep competing for it
+                            if (random.nextInt(4) != 0) {
+                                creditLedger.release(orderId);
+                                heldOre.addAndGet(-ore);
+                            } else if (random.nextBoolean()) {
+                                creditLedger.capture(orderId);
+                            }
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long available = creditLedger.getAvailableCredit(customer).movePointRight(2).longValueExact();
+        assertTrue(available >= 0, "overspent by " + -available + " öre");
+        assertEquals(90_000 - heldOre.get(), available);
+        BigDecimal used = customerRepository.findById("C001").get().getUsedCredit();
+        assertTrue(used.compareTo(new BigDecimal("1000")) <= 0);
+    }
+}
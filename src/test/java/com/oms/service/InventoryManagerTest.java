@@ -7,10 +7,17 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -73,13 +80,11 @@ class InventoryManagerTest {
         List<Item> items = Arrays.asList(new Item("P001", 3));
         inventoryManager.reserveStock("O001", items);
 
-        Product product = productRepository.findById("P001").get();
-        assertEquals(10, product.getStockQuantity()); // Not yet deducted
+        assertEquals(10, productRepository.getStock("P001")); // Not yet deducted
 
         inventoryManager.confirmStock("O001");
 
-        product = productRepository.findById("P001").get();
-        assertEquals(7, product.getStockQuantity()); // Now deducted
+        assertEquals(7, productRepository.getStock("P001")); // Now deducted
 
         // All 7 available (no reservation)
         assertTrue(inventoryManager.checkAvailability("P001", 7));
@@ -132,4 +137,273 @@ class InventoryManagerTest {
         assertEquals(1, successCount.get());
         assertEquals(1, failureCount.get());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testReservedQuantityTracksReleaseAndConfirm() {
+        productRepository.save(new Product("P002", "Other Product", new BigDecimal("50"), 20));
+
+        inventoryManager.reserveStock("O001", Arrays.asList(new Item("P001", 4), new Item("P002", 5)));
+        inventoryManager.reserveStock("O002", Arrays.asList(new Item("P002", 10)));
+
+        assertFalse(inventoryManager.checkAvailability("P002", 6));
+
+        inventoryManager.releaseStock("O002");
+        assertTrue(inventoryManager.checkAvailability("P002", 15));
+
+        inventoryManager.confirmStock("O001");
+        assertTrue(inventoryManager.checkAvailability("P001", 6));
+        assertFalse(inventoryManager.checkAvailability("P001", 7));
+        assertTrue(inventoryManager.checkAvailability("P002", 15));
+        assertFalse(inventoryManager.checkAvailability("P002", 16));
+
+        // Releasing an already confirmed order must not free stock twice
+        inventoryManager.releaseStock("O001");
+        assertFalse(inventoryManager.checkAvailability("P001", 7));
+    }
+
+    @Test
+    void testCheckAvailabilityDoesNotScaleWithOpenReservations() {
+        productRepository.save(new Product("P100", "Bulk Product", new BigDecimal("10"), 1_000_000));
+        productRepository.save(new Product("P200", "Probe Product", new BigDecimal("10"), 10));
+
+        long fewReservations = timeAvailabilityChecks("P200", 20_000);
+
+        // Pile up open reservations on an unrelated product
+        for (int i = 0; i < 50_000; i++) {
+            inventoryManager.reserveStock("BULK-" + i, Arrays.asList(new Item("P100", 1)));
+        }
+
+        long manyReservations = timeAvailabilityChecks("P200", 20_000);
+
+        assertTrue(inventoryManager.checkAvailability("P100", 950_000));
+        assertFalse(inventoryManager.checkAvailability("P100", 950_001));
+
+        // A linear scan over 50k reservations would be orders of magnitude slower
+        assertTrue(manyReservations < fewReservations * 10 + 50_000_000L,
+                "checkAvailability slowed down from " + fewReservations + "ns to " + manyReservations + "ns");
+    }
+
+    private long timeAvailabilityChecks(String productId, int iterations) {
+        // Warm up before measuring
+        for (int i = 0; i < iterations; i++) {
+            inventoryManager.checkAvailability(productId, 1);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            inventoryManager.checkAvailability(productId, 1);
+        }
+        return System.nanoTime() - start;
+    }
+
+    @Test
+    void testMultiItemReservationIsAllOrNothing() {
+        productRepository.save(new Product("P002", "Scarce Product", new BigDecimal("50"), 1));
+
+        assertThrows(IllegalStateException.class, () ->
+                inventoryManager.reserveStock("O001", Arrays.asList(new Item("P001", 5), new Item("P002", 2))));
+
+        // Nothing from the failed order may stay reserved
+        assertTrue(inventoryManager.checkAvailability("P001", 10));
+        assertTrue(inventoryManager.checkAvailability("P002", 1));
+    }
+
+    @Test
+    void testOpposingMultiItemReservationsDoNotDeadlock() {
+        productRepository.save(new Product("P002", "Second Product", new BigDecimal("50"), 1_000_000));
+        productRepository.save(new Product("P003", "Third Product", new BigDecimal("50"), 1_000_000));
+
+        assertTimeoutPreemptively(Duration.ofSeconds(20), () -> {
+            int threads = 8;
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    final boolean forward = t % 2 == 0;
+                    final int worker = t;
+                    futures.add(executor.submit(() -> {
+                        for (int i = 0; i < 5_000; i++) {
+                            String orderId = "O-" + worker + "-" + i;
+                            List<Item> items = forward
+                                    ? Arrays.asList(new Item("P002", 1), new Item("P003", 1))
+                                    : Arrays.asList(new Item("P003", 1), new Item("P002", 1));
+                            inventoryManager.reserveStock(orderId, items);
+                            inventoryManager.releaseStock(orderId);
+                        }
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        });
+
+        assertTrue(inventoryManager.checkAvailability("P002", 1_000_000));
+        assertTrue(inventoryManager.checkAvailability("P003", 1_000_000));
+    }
+
+    @Test
+    void testConcurrentReservationsNeverOversell() throws Exception {
+        productRepository.save(new Product("P002", "Hot Product", new BigDecimal("50"), 100));
+        AtomicInteger successCount = new AtomicInteger(0);
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int worker = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 50; i++) {
+                        try {
+                            inventoryManager.reserveStock("O-" + worker + "-" + i,
+                                    Arrays.asList(new Item("P002", 1)));
+                            successCount.incrementAndGet();
+                        } catch (IllegalStateException e) {
+                            // Sold out
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(100, successCount.get());
+        assertFalse(inventoryManager.checkAvailability("P002", 1));
+    }
+
+    // Throughput and scaling are measured by ReservationBenchmark with shared=false
+    @Test
+    void testDisjointProductsReserveAndReleaseConcurrently() throws Exception {
+        int threads = 8;
+        for (int t = 0; t < threads; t++) {
+            productRepository.save(new Product("SKU-" + t, "Product " + t, new BigDecimal("10"), 1_000));
+        }
+
+        runDisjointReservations(threads, 5_000);
+
+        // Every reservation was released, on the right product
+        assertEquals(threads * 5_000L, inventoryManager.getReleasedReservationCount());
+        for (int t = 0; t < threads; t++) {
+            assertEquals(1_000, inventoryManager.getAvailableStock("SKU-" + t));
+        }
+    }
+
+    private void runDisjointReservations(int threads, int opsPerThread) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final String productId = "SKU-" + t;
+                final String orderPrefix = "T" + t + "-";
+                futures.add(executor.submit(() -> {
+                    List<Item> items = Arrays.asList(new Item(productId, 1));
+                    start.await();
+                    for (int i = 0; i < opsPerThread; i++) {
+                        String orderId = orderPrefix + i;
+                        inventoryManager.reserveStock(orderId, items);
+                        inventoryManager.releaseStock(orderId);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testReservationExpiresAfterTtl() {
+        AtomicLong now = new AtomicLong(1_000_000);
+        InventoryManager expiring = new InventoryManager(productRepository, Duration.ofMinutes(15), now::get);
+        List<String> expiredOrders = new ArrayList<>();
+        expiring.addExpiryListener(expiredOrders::add);
+
+        expiring.reserveStock("O001", Arrays.asList(new Item("P001", 6)));
+        assertFalse(expiring.checkAvailability("P001", 5));
+
+        now.addAndGet(Duration.ofMinutes(14).toMillis());
+        assertEquals(0, expiring.expireReservations());
+        assertFalse(expiring.checkAvailability("P001", 5));
+
+        now.addAndGet(Duration.ofMinutes(1).toMillis());
+        assertEquals(1, expiring.expireReservations());
+        assertEquals(List.of("O001"), expiredOrders);
+        assertTrue(expiring.checkAvailability("P001", 10));
+        assertEquals(1, expiring.getExpiredReservationCount());
+        assertEquals(0, expiring.getPendingExpiryCount());
+
+        // Nothing left to confirm
+        assertFalse(expiring.confirmStock("O001"));
+        assertEquals(10, productRepository.getStock("P001"));
+    }
+
+    @Test
+    void testConfirmedAndReleasedReservationsDoNotExpire() {
+        AtomicLong now = new AtomicLong(0);
+        InventoryManager expiring = new InventoryManager(productRepository, Duration.ofSeconds(30), now::get);
+
+        expiring.reserveStock("O001", Arrays.asList(new Item("P001", 2)));
+        expiring.reserveStock("O002", Arrays.asList(new Item("P001", 3)));
+        expiring.reserveStock("O003", Arrays.asList(new Item("P001", 1)));
+        assertEquals(3, expiring.getPendingExpiryCount());
+
+        assertTrue(expiring.confirmStock("O001"));
+        expiring.releaseStock("O002");
+        assertEquals(1, expiring.getPendingExpiryCount());
+
+        now.set(Duration.ofMinutes(1).toMillis());
+        assertEquals(1, expiring.expireReservations());
+
+        assertEquals(1, expiring.getConfirmedReservationCount());
+        assertEquals(1, expiring.getReleasedReservationCount());
+        assertEquals(1, expiring.getExpiredReservationCount());
+        assertEquals(8, productRepository.getStock("P001"));
+        assertTrue(expiring.checkAvailability("P001", 8));
+    }
+
+    @Test
+    void testReReservingRestartsTheTtl() {
+        AtomicLong now = new AtomicLong(0);
+        InventoryManager expiring = new InventoryManager(productRepository, Duration.ofSeconds(30), now::get);
+
+        expiring.reserveStock("O001", Arrays.asList(new Item("P001", 2)));
+        now.set(20_000);
+        expiring.reserveStock("O001", Arrays.asList(new Item("P001", 4)));
+
+        now.set(40_000);
+        assertEquals(0, expiring.expireReservations());
+        assertTrue(expiring.checkAvailability("P001", 6));
+        assertFalse(expiring.checkAvailability("P001", 7));
+
+        now.set(50_000);
+        assertEquals(1, expiring.expireReservations());
+        assertTrue(expiring.checkAvailability("P001", 10));
+    }
+
+    @Test
+    void testExpirySchedulerReleasesAbandonedReservations() throws InterruptedException {
+        InventoryManager expiring = new InventoryManager(productRepository, Duration.ofMillis(50));
+        CountDownLatch expired = new CountDownLatch(1);
+        expiring.addExpiryListener(orderId -> expired.countDown());
+
+        try (ReservationExpiryScheduler scheduler = ReservationExpiryScheduler.start(expiring, Duration.ofMillis(10))) {
+            expiring.reserveStock("O001", Arrays.asList(new Item("P001", 10)));
+            assertTrue(expired.await(5, TimeUnit.SECONDS));
+        }
+        assertTrue(expiring.checkAvailability("P001", 10));
+    }
+}
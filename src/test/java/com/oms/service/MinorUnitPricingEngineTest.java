@@ -0,0 +1,107 @@
+package com.oms.service;
+
+import com.oms.model.*;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MinorUnitPricingEngineTest {
+    private final PricingEngine reference = new PricingEngine();
+    private final PricingEngine minorUnits = new MinorUnitPricingEngine();
+
+    @Test
+    void testMatchesReferenceOnKnownOrders() {
+        Order order = new Order("O001", "C001", Arrays.asList(
+                new Item("P001", 1, new BigDecimal("1000")),
+                new Item("P002", 2, new BigDecimal("500"))), "Test Address");
+
+        for (CustomerType type : CustomerType.values()) {
+            assertSamePricing(order, new Customer("C001", type, new BigDecimal("10000")));
+        }
+    }
+
+    @Test
+    void testBulkDiscountWithCustomerDiscount() {
+        Order order = new Order("O003", "C003", Arrays.asList(
+                new Item("P001", 10, new BigDecimal("600"))), "Test Address");
+        Customer customer = new Customer("C003", CustomerType.GOLD, new BigDecimal("20000"));
+
+        PricingResult result = minorUnits.calculatePricing(order, customer);
+
+        assertEquals(new BigDecimal("5238.00"), result.getTotalAmount());
+        assertEquals(new BigDecimal("1047.60"), result.getVatAmount());
+    }
+
+    @Test
+    void testMatchesReferenceAroundBulkThreshold() {
+        String[] prices = {"4999.99", "5000.00", "5000.01", "5263.15", "5263.16", "5555.55", "5555.56"};
+        for (String price : prices) {
+            Order order = new Order("O", "C", Arrays.asList(new Item("P", 1, new BigDecimal(price))), "A");
+            for (CustomerType type : CustomerType.values()) {
+                assertSamePricing(order, new Customer("C", type, BigDecimal.ZERO));
+            }
+        }
+    }
+
+    @Test
+    void testFallsBackForSubOreLinePrices() {
+        Order order = new Order("O", "C", Arrays.asList(new Item("P", 3, new BigDecimal("33.333"))), "A");
+
+        assertSamePricing(order, new Customer("C", CustomerType.SILVER, BigDecimal.ZERO));
+    }
+
+    @Test
+    void testMatchesReferenceOnRandomizedOrders() {
+        Random random = new Random(20240601L);
+        CustomerType[] types = CustomerType.values();
+
+        for (int n = 0; n < 100_000; n++) {
+            int itemCount = 1 + random.nextInt(20);
+            List<Item> items = new ArrayList<>(itemCount);
+            for (int i = 0; i < itemCount; i++) {
+                items.add(new Item("P" + i, 1 + random.nextInt(100), randomPrice(random)));
+            }
+            Order order = new Order("O" + n, "C", items, "A");
+            assertSamePricing(order, new Customer("C", types[random.nextInt(types.length)], BigDecimal.ZERO));
+        }
+    }
+
+    @Test
+    void testRoundHalfUpMatchesBigDecimal() {
+        long[] dividends = {0, 1, 4, 5, 6, 14, 15, 16, -4, -5, -6, -15, 49_999, 50_000, 50_001};
+        for (long dividend : dividends) {
+            long expected = BigDecimal.valueOf(dividend)
+                    .divide(BigDecimal.TEN, 0, RoundingMode.HALF_UP).longValueExact();
+            assertEquals(expected, MinorUnitPricingEngine.roundHalfUp(dividend, 10), "dividend " + dividend);
+        }
+    }
+
+    private static BigDecimal randomPrice(Random random) {
+        // Mix of whole kronor, one and two decimals, including prices near the bulk threshold
+        switch (random.nextInt(4)) {
+            case 0:
+                return BigDecimal.valueOf(1 + random.nextInt(20_000));
+            case 1:
+                return BigDecimal.valueOf(1 + random.nextInt(200_000), 1);
+            case 2:
+                return BigDecimal.valueOf(1 + random.nextInt(2_000_000), 2);
+            default:
+                return BigDecimal.valueOf(490_000 + random.nextInt(100_000), 2);
+        }
+    }
+
+    private void assertSamePricing(Order order, Customer customer) {
+        PricingResult expected = reference.calculatePricing(order, customer);
+        PricingResult actual = minorUnits.calculatePricing(order, customer);
+
+        assertEquals(expected.getTotalAmount(), actual.getTotalAmount(), "total for " + customer.getType());
+        assertEquals(expected.getVatAmount(), actual.getVatAmount(), "vat for " + customer.getType());
+    }
+}
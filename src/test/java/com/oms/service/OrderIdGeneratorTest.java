@@ -0,0 +1,126 @@
+package com.oms.service;
+
+import com.oms.model.OrderId;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderIdGeneratorTest {
+
+    @Test
+    void testIdsFromOneThreadAreOrderedEvenWhenTheClockStepsBack() throws Exception {
+        AtomicLong clock = new AtomicLong(5_000);
+        OrderIdGenerator generator = new OrderIdGenerator(7, clock::get);
+        List<OrderId> ids = new ArrayList<>();
+
+        // A fresh thread, so no earlier generator has moved its sequence past the test clock
+        runOnNewThread(() -> {
+            ids.add(generator.next());
+            ids.add(generator.next());
+            clock.set(4_000);
+            ids.add(generator.next());
+            clock.set(6_000);
+            ids.add(generator.next());
+        });
+
+        assertTrue(ids.get(0).compareTo(ids.get(1)) < 0);
+        assertTrue(ids.get(1).compareTo(ids.get(2)) < 0);
+        assertTrue(ids.get(2).compareTo(ids.get(3)) < 0);
+        assertEquals(5_000, ids.get(2).getTimestampMillis());
+        assertEquals(0, ids.get(3).getSequence());
+        assertEquals(7, ids.get(3).getNode());
+    }
+
+    @Test
+    void testGeneratorsWithTheSameNodeNeverShareIds() throws Exception {
+        AtomicLong clock = new AtomicLong(5_000);
+        OrderIdGenerator first = new OrderIdGenerator(0, clock::get);
+        OrderIdGenerator second = new OrderIdGenerator(0, clock::get);
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+
+        for (int t = 0; t < 2; t++) {
+            runOnNewThread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    ids.add(first.get());
+                    ids.add(second.get());
+                }
+            });
+        }
+
+        assertEquals(2_000, ids.size());
+    }
+
+    @Test
+    void testThreadsAndNodesNeverShareIds() throws Exception {
+        AtomicLong clock = new AtomicLong(5_000);
+        OrderIdGenerator nodeOne = new OrderIdGenerator(1, clock::get);
+        OrderIdGenerator nodeTwo = new OrderIdGenerator(2, clock::get);
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            OrderIdGenerator generator = t % 2 == 0 ? nodeOne : nodeTwo;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    ids.add(generator.get());
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Every thread generated all of its ids in the same millisecond
+        assertEquals(40_000, ids.size());
+    }
+
+    @Test
+    void testSlotOfAnEndedThreadIsReusedFromItsLastSequence() throws Exception {
+        AtomicLong clock = new AtomicLong(5_000);
+        OrderIdGenerator generator = new OrderIdGenerator(3, clock::get);
+        List<OrderId> first = new ArrayList<>();
+        runOnNewThread(() -> {
+            for (int i = 0; i < 3; i++) {
+                first.add(generator.next());
+            }
+        });
+        OrderId last = first.get(2);
+
+        // The slot is freed once the ended thread has been collected
+        OrderId reused = null;
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (reused == null && System.nanoTime() < deadline) {
+            System.gc();
+            List<OrderId> next = new ArrayList<>();
+            runOnNewThread(() -> next.add(generator.next()));
+            if (next.get(0).getThreadSlot() == last.getThreadSlot()) {
+                reused = next.get(0);
+            }
+        }
+
+        assertNotNull(reused, "slot was never recycled");
+        assertEquals(5_000, reused.getTimestampMillis());
+        assertTrue(reused.compareTo(last) > 0);
+    }
+
+    @Test
+    void testRejectsNodesOutsideTheIdLayout() {
+        assertThrows(IllegalArgumentException.class, () -> new OrderIdGenerator(-1));
+        assertThrows(IllegalArgumentException.class, () -> new OrderIdGenerator(OrderId.MAX_NODE + 1));
+    }
+
+    private static void runOnNewThread(Runnable body) throws InterruptedException {
+        Thread thread = new Thread(body);
+        thread.start();
+        thread.join();
+    }
+}
@@ -1,16 +1,32 @@
 package com.oms.service;
 
+import com.oms.event.OrderEvent;
+import com.oms.event.OrderEventBus;
+import com.oms.event.OrderEventHistory;
 import com.oms.exception.InvalidStateTransitionException;
 import com.oms.exception.OrderValidationException;
+import com.oms.metrics.MetricsSnapshot;
+import com.oms.metrics.OrderMetrics;
 import com.oms.model.*;
 import com.oms.repository.CustomerRepository;
 import com.oms.repository.OrderRepository;
 import com.oms.repository.ProductRepository;
+import com.oms.tracing.OrderTracer;
+import com.oms.tracing.TraceSpan;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -198,4 +214,617 @@ class OrderManagementServiceTest {
         List<Order> c002Orders = orderService.findOrdersByCustomer("C002");
         assertEquals(1, c002Orders.size());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testFindOrdersByStatus() {
+        List<Item> items = Arrays.asList(new Item("P001", 1));
+        Order first = orderService.createOrder("C001", items, "Address 1");
+        orderService.createOrder("C001", items, "Address 2");
+
+        orderService.processOrder(first.getOrderId());
+
+        List<Order> validated = orderService.findOrdersByStatus(OrderStatus.VALIDATED, null, null, 0, 10);
+        assertEquals(1, validated.size());
+        assertEquals(first.getOrderId(), validated.get(0).getOrderId());
+
+        assertEquals(1, orderService.findOrdersByStatus(OrderStatus.CREATED, null, null, 0, 10).size());
+        assertTrue(orderService.findOrdersByStatus(OrderStatus.PENDING_VALIDATION, null, null, 0, 10).isEmpty());
+    }
+
+    @Test
+    void testCreateOrdersInBatch() {
+        List<OrderRequest> requests = Arrays.asList(
+                new OrderRequest("C001", Arrays.asList(new Item("P001", 1)), "Address 1"),
+                new OrderRequest("C001", Arrays.asList(new Item("P999", 1)), "Address 2"),
+                new OrderRequest("C002", Arrays.asList(new Item("P001", 1), new Item("P002", 2)), "Address 3"));
+
+        List<BatchOrderResult> results = orderService.createOrders(requests);
+
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertTrue(results.get(1).getError().contains("P999"));
+        assertTrue(results.get(2).isSuccess());
+
+        Order created = results.get(2).getOrder();
+        assertEquals(new BigDecimal("400"), created.getItems().get(1).getLinePrice());
+        assertEquals(OrderStatus.CREATED, orderRepository.findById(created.getOrderId()).get().getStatus());
+    }
+
+    @Test
+    void testProcessOrdersInBatchReportsPerOrderResults() {
+        // P002 has 5 units: the first two orders fit, the third does not
+        Order first = orderService.createOrder("C001", Arrays.asList(new Item("P002", 2)), "Address 1");
+        Order second = orderService.createOrder("C001", Arrays.asList(new Item("P002", 2)), "Address 2");
+        Order third = orderService.createOrder("C001", Arrays.asList(new Item("P002", 2)), "Address 3");
+        Order inactive = orderService.createOrder("C001", Arrays.asList(new Item("P003", 1)), "Address 4");
+
+        List<BatchOrderResult> results = orderService.processOrders(Arrays.asList(
+                first.getOrderId(), second.getOrderId(), "missing", third.getOrderId(), inactive.getOrderId()));
+
+        assertEquals(5, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertTrue(results.get(1).isSuccess());
+        assertFalse(results.get(2).isSuccess());
+        assertTrue(results.get(2).getError().contains("not found"));
+        assertFalse(results.get(3).isSuccess());
+        assertTrue(results.get(3).getError().contains("Insufficient stock"));
+        assertFalse(results.get(4).isSuccess());
+        assertTrue(results.get(4).getError().contains("not available"));
+
+        assertEquals(OrderStatus.VALIDATED, orderRepository.findById(first.getOrderId()).get().getStatus());
+        assertEquals(OrderStatus.VALIDATED, orderRepository.findById(second.getOrderId()).get().getStatus());
+        assertEquals(OrderStatus.CANCELLED, orderRepository.findById(third.getOrderId()).get().getStatus());
+        assertEquals(OrderStatus.CANCELLED, orderRepository.findById(inactive.getOrderId()).get().getStatus());
+    }
+
+    @Test
+    void testBatchProcessingMatchesSingleCalls() {
+        BulkStack single = new BulkStack();
+        BulkStack batch = new BulkStack();
+        List<OrderRequest> requests = bulkRequests(60);
+
+        List<String> singleIds = new ArrayList<>();
+        List<String> singleErrors = new ArrayList<>();
+        for (OrderRequest request : requests) {
+            String orderId = single.service.createOrder(request.getCustomerId(), request.getItems(),
+                    request.getShippingAddress()).getOrderId();
+            singleIds.add(orderId);
+            try {
+                single.service.processOrder(orderId);
+                singleErrors.add(null);
+            } catch (OrderValidationException e) {
+                singleErrors.add(e.getMessage());
+            }
+        }
+
+        List<String> batchIds = new ArrayList<>();
+        for (BatchOrderResult result : batch.service.createOrders(requests)) {
+            batchIds.add(result.getOrderId());
+        }
+        List<BatchOrderResult> results = batch.service.processOrders(batchIds);
+
+        // Both stock and credit run out part way, and every order ends the same way on both paths
+        assertTrue(singleErrors.stream().anyMatch(e -> e != null && e.startsWith("Insufficient stock")));
+        assertTrue(singleErrors.stream().anyMatch(e -> e != null && e.contains("credit limit")));
+        for (int i = 0; i < requests.size(); i++) {
+            Order expected = single.orders.findById(singleIds.get(i)).get();
+            Order actual = batch.orders.findById(batchIds.get(i)).get();
+            assertEquals(expected.getStatus(), actual.getStatus());
+            assertEquals(singleErrors.get(i), results.get(i).getError());
+            if (expected.getStatus() == OrderStatus.VALIDATED) {
+                assertEquals(expected.getTotalAmount(), actual.getTotalAmount());
+            }
+        }
+        for (int p = 0; p < 5; p++) {
+            assertEquals(single.inventory.getAvailableStock("B" + p), batch.inventory.getAvailableStock("B" + p));
+        }
+        assertEquals(single.availableCredit("C900"), batch.availableCredit("C900"));
+        assertEquals(single.availableCredit("C901"), batch.availableCredit("C901"));
+    }
+
+    @Test
+    void testValidationCollectsEveryError() {
+        List<Item> items = Arrays.asList(new Item("P003", 1), new Item("P001", 150), new Item("P002", 10));
+        Order order = orderService.createOrder("C001", items, "123 Main St");
+
+        ValidationResult result = orderService.validateOrder(order.getOrderId());
+
+        assertFalse(result.isValid());
+        assertEquals(Arrays.asList(
+                "Product P003 is not available",
+                "Invalid quantity for product P001",
+                "Insufficient stock for product P001",
+                "Insufficient stock for product P002"), result.getErrors());
+    }
+
+    @Test
+    void testValidationReportsCreditAndMinimumTogether() {
+        customerRepository.save(new Customer("C003", CustomerType.REGULAR, new BigDecimal("10")));
+        productRepository.save(new Product("P004", "Cheap Item", new BigDecimal("50"), 10));
+        Order order = orderService.createOrder("C003", Arrays.asList(new Item("P004", 1)), "123 Main St");
+
+        ValidationResult result = orderService.validateOrder(order.getOrderId());
+
+        assertEquals(2, result.getErrors().size());
+        assertTrue(result.getFirstError().contains("credit limit"));
+        assertTrue(result.getErrors().get(1).contains("minimum value"));
+    }
+
+    @Test
+    void testProcessOrderLooksUpEachProductOnce() {
+        CountingProductRepository countingProducts = new CountingProductRepository();
+        countingProducts.save(new Product("P001", "Laptop", new BigDecimal("5000"), 10));
+        countingProducts.save(new Product("P002", "Mouse", new BigDecimal("200"), 5));
+        OrderManagementService service = new OrderManagementService(
+                orderRepository, customerRepository, countingProducts,
+                new PricingEngine(), new InventoryManager(countingProducts));
+
+        Order order = service.createOrder("C001",
+                Arrays.asList(new Item("P001", 1), new Item("P002", 2), new Item("P002", 1)), "123 Main St");
+        countingProducts.lookups = 0;
+
+        service.processOrder(order.getOrderId());
+
+        // Validation reads the catalog; reserving looks up each distinct product once
+        assertEquals(2, countingProducts.lookups);
+    }
+
+    @Test
+    void testOrdersRecordTheCatalogVersionTheyWerePricedFrom() {
+        long before = productRepository.getCatalog().getVersion();
+        Order order = orderService.createOrder("C001", Arrays.asList(new Item("P002", 2)), "123 Main St");
+        assertEquals(before, order.getCatalogVersion());
+
+        Product mouse = productRepository.findById("P002").get();
+        mouse.setPrice(new BigDecimal("250"));
+        productRepository.save(mouse);
+
+        Order repriced = orderService.createOrder("C001", Arrays.asList(new Item("P002", 2)), "123 Main St");
+        assertEquals(before + 1, repriced.getCatalogVersion());
+        assertEquals(new BigDecimal("500"), repriced.getItems().get(0).getLinePrice());
+
+        // The earlier order keeps the prices of its catalog version
+        Order processed = orderService.processOrder(order.getOrderId());
+        assertEquals(new BigDecimal("400"), processed.getItems().get(0).getLinePrice());
+        assertEquals(before, processed.getCatalogVersion());
+    }
+
+    @Test
+    void testMetricsRecordStagesFailuresAndSizes() {
+        OrderMetrics metrics = new OrderMetrics();
+        InventoryManager inventoryManager = new InventoryManager(productRepository, null, metrics);
+        OrderManagementService service = new OrderManagementService(orderRepository, customerRepository,
+                productRepository, new PricingEngine(), inventoryManager, null,
+                OrderStateMachine.standard().build(), metrics);
+
+        Order paid = service.createOrder("C001", Arrays.asList(new Item("P001", 1)), "123 Main St");
+        service.processOrder(paid.getOrderId());
+        Order invalid = service.createOrder("C001",
+                Arrays.asList(new Item("P003", 1), new Item("P002", 0), new Item("P002", 500)), "123 Main St");
+        assertThrows(OrderValidationException.class, () -> service.processOrder(invalid.getOrderId()));
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(2, snapshot.getStageLatency(OrderMetrics.Stage.CREATE_ORDER).getCount());
+        assertEquals(2, snapshot.getStageLatency(OrderMetrics.Stage.PROCESS_ORDER).getCount());
+        assertEquals(2, snapshot.getStageLatency(OrderMetrics.Stage.VALIDATE_ORDER).getCount());
+        assertEquals(1, snapshot.getStageLatency(OrderMetrics.Stage.CALCULATE_PRICING).getCount());
+        assertEquals(1, snapshot.getStageLatency(OrderMetrics.Stage.RESERVE_STOCK).getCount());
+        assertTrue(snapshot.getStageLatency(OrderMetrics.Stage.PROCESS_ORDER).getMax() > 0);
+
+        // One count per kind of failure, however many lines failed it
+        assertEquals(1, snapshot.getValidationFailures(OrderMetrics.ValidationFailure.PRODUCT_UNAVAILABLE));
+        assertEquals(1, snapshot.getValidationFailures(OrderMetrics.ValidationFailure.INVALID_QUANTITY));
+        assertEquals(1, snapshot.getValidationFailures(OrderMetrics.ValidationFailure.INSUFFICIENT_STOCK));
+        assertEquals(0, snapshot.getValidationFailures(OrderMetrics.ValidationFailure.CREDIT_LIMIT_EXCEEDED));
+
+        assertEquals(2L, snapshot.getGauge("orders"));
+        assertEquals(3L, snapshot.getGauge("products"));
+        assertEquals(1L, snapshot.getGauge("reservations"));
+    }
+
+    @Test
+    void testProcessOrderEmitsNestedSpans() {
+        OrderTracer tracer = new OrderTracer(1.0, 1024);
+        OrderMetrics metrics = new OrderMetrics(tracer);
+        OrderManagementService service = new OrderManagementService(orderRepository, customerRepository,
+                productRepository, new PricingEngine(), new InventoryManager(productRepository, null, metrics),
+                null, OrderStateMachine.standard().build(), metrics);
+
+        Order order = service.createOrder("C001", Arrays.asList(new Item("P001", 1), new Item("P002", 1)),
+                "123 Main St");
+        service.processOrder(order.getOrderId());
+
+        List<String> names = new ArrayList<>();
+        TraceSpan processSpan = null;
+        for (TraceSpan span : tracer.getSpans(order.getOrderId())) {
+            names.add(span.getName() + "@" + span.getDepth());
+            if (span.getName().equals("processOrder")) {
+                processSpan = span;
+            }
+        }
+        assertNotNull(processSpan);
+        assertEquals(0, processSpan.getDepth());
+        assertTrue(names.containsAll(Arrays.asList("saveOrder@0", "updateOrderStatus@1",
+                "loadProductsAndCustomer@1", "validateOrder@1", "checkAvailability@2",
+                "calculatePricing@2", "reserveStock@1")), names.toString());
+        assertEquals(2, names.stream().filter(name -> name.startsWith("updateOrderStatus")).count());
+        assertEquals(2, names.stream().filter(name -> name.startsWith("checkAvailability")).count());
+    }
+
+    @Test
+    void testDisabledMetricsRecordNothing() {
+        Order order = orderService.createOrder("C001", Arrays.asList(new Item("P001", 1)), "123 Main St");
+        orderService.processOrder(order.getOrderId());
+
+        MetricsSnapshot snapshot = OrderMetrics.disabled().snapshot();
+        assertNull(snapshot.getStageLatency(OrderMetrics.Stage.CREATE_ORDER));
+        assertTrue(snapshot.getGauges().isEmpty());
+    }
+
+    private static class CountingProductRepository extends ProductRepository {
+        private int lookups;
+
+        @Override
+        public Optional<Product> findById(String productId) {
+            lookups++;
+            return super.findById(productId);
+        }
+
+        @Override
+        public boolean existsById(String productId) {
+            lookups++;
+            return super.existsById(productId);
+        }
+    }
+
+    // B0 to B3 run short of stock for C900; B4 has plenty but C901's credit runs out on it
+    private static class BulkStack {
+        private final OrderRepository orders = new OrderRepository();
+        private final CustomerRepository customers = new CustomerRepository();
+        private final ProductRepository products = new ProductRepository();
+        private final InventoryManager inventory = new InventoryManager(products);
+        private final OrderManagementService service = new OrderManagementService(
+                orders, customers, products, new PricingEngine(), inventory);
+
+        private BulkStack() {
+            for (int p = 0; p < 4; p++) {
+                products.save(new Product("B" + p, "Bulk " + p, new BigDecimal("150"), 12));
+            }
+            products.save(new Product("B4", "Bulk 4", new BigDecimal("150"), 1_000));
+            customers.save(new Customer("C900", CustomerType.SILVER, new BigDecimal("100000000")));
+            customers.save(new Customer("C901", CustomerType.REGULAR, new BigDecimal("3000")));
+        }
+
+        private BigDecimal availableCredit(String customerId) {
+            return service.getCreditLedger().getAvailableCredit(customers.findById(customerId).get());
+        }
+    }
+
+    private static List<OrderRequest> bulkRequests(int count) {
+        List<OrderRequest> requests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            requests.add(i % 3 == 2
+                    ? new OrderRequest("C901", Arrays.asList(new Item("B4", 1 + i % 2)), "Bulk Address")
+                    : new OrderRequest("C900", Arrays.asList(new Item("B" + (i % 4), 1 + i % 3)), "Bulk Address"));
+        }
+        return requests;
+    }
+
+    @Test
+    void testExpiredReservationCancelsOrder() {
+        AtomicLong now = new AtomicLong(0);
+        InventoryManager expiring = new InventoryManager(productRepository, Duration.ofMinutes(10), now::get);
+        OrderManagementService service = new OrderManagementService(orderRepository, customerRepository,
+                productRepository, new PricingEngine(), expiring);
+
+        Order abandoned = service.processOrder(service.createOrder("C001",
+                Arrays.asList(new Item("P002", 4)), "123 Main St").getOrderId());
+        Order paid = service.processOrder(service.createOrder("C001",
+                Arrays.asList(new Item("P002", 1)), "123 Main St").getOrderId());
+        service.updateOrderStatus(paid.getOrderId(), OrderStatus.PAID);
+
+        now.set(Duration.ofMinutes(10).toMillis());
+        assertEquals(1, expiring.expireReservations());
+
+        assertEquals(OrderStatus.CANCELLED, orderRepository.findById(abandoned.getOrderId()).get().getStatus());
+        assertEquals(OrderStatus.PAID, orderRepository.findById(paid.getOrderId()).get().getStatus());
+        // The paid unit left stock; the abandoned four are available again
+        assertEquals(4, productRepository.getStock("P002"));
+        assertTrue(expiring.checkAvailability("P002", 4));
+        assertEquals(1, expiring.getConfirmedReservationCount());
+        assertEquals(1, expiring.getExpiredReservationCount());
+    }
+
+    @Test
+    void testPaymentRacingReservationExpiryCancelsInsteadOfCapturing() {
+        AtomicLong now = new AtomicLong(0);
+        // The reservation runs out after the order is saved as PAID but before its hook confirms it
+        InventoryManager expiring = new InventoryManager(productRepository, Duration.ofMinutes(10), now::get) {
+            @Override
+            public boolean confirmStock(String orderId) {
+                now.set(Duration.ofMinutes(10).toMillis());
+                expireReservations();
+                return super.confirmStock(orderId);
+            }
+        };
+        OrderManagementService service = new OrderManagementService(orderRepository, customerRepository,
+                productRepository, new PricingEngine(), expiring);
+        Customer customer = customerRepository.findById("C001").get();
+
+        Order order = service.processOrder(service.createOrder("C001",
+                Arrays.asList(new Item("P002", 4)), "123 Main St").getOrderId());
+        assertEquals(OrderStatus.VALIDATED, order.getStatus());
+
+        assertThrows(InvalidStateTransitionException.class,
+                () -> service.updateOrderStatus(order.getOrderId(), OrderStatus.PAID));
+
+        assertEquals(OrderStatus.CANCELLED, orderRepository.findById(order.getOrderId()).get().getStatus());
+        // No stock left inventory and no credit was captured or left held
+        assertEquals(5, productRepository.getStock("P002"));
+        assertTrue(expiring.checkAvailability("P002", 5));
+        assertEquals(0, customer.getUsedCredit().signum());
+        assertEquals(0, service.getCreditLedger().getHeldCredit(order.getOrderId()).signum());
+        assertEquals(0, new BigDecimal("10000").compareTo(service.getCreditLedger().getAvailableCredit(customer)));
+    }
+
+    @Test
+    void testCancellingValidatedOrderReleasesStock() {
+        Order order = orderService.processOrder(orderService.createOrder("C001",
+                Arrays.asList(new Item("P002", 5)), "123 Main St").getOrderId());
+        Order blocked = orderService.createOrder("C001", Arrays.asList(new Item("P002", 1)), "123 Main St");
+        assertFalse(orderService.validateOrder(blocked.getOrderId()).isValid());
+
+        orderService.updateOrderStatus(order.getOrderId(), OrderStatus.CANCELLED);
+
+        assertTrue(orderService.validateOrder(blocked.getOrderId()).isValid());
+    }
+
+    @Test
+    void testPaymentUsesCreditAndCancellationReleasesIt() {
+        Customer customer = customerRepository.findById("C001").get();
+        Order paid = orderService.processOrder(orderService.createOrder("C001",
+                Arrays.asList(new Item("P001", 1)), "123 Main St").getOrderId());
+        Order cancelled = orderService.processOrder(orderService.createOrder("C001",
+                Arrays.asList(new Item("P002", 2)), "123 Main St").getOrderId());
+        CreditLedger ledger = orderService.getCreditLedger();
+        assertEquals(new BigDecimal("10000").subtract(paid.getTotalAmount()).subtract(cancelled.getTotalAmount()),
+                ledger.getAvailableCredit(customer));
+
+        orderService.updateOrderStatus(paid.getOrderId(), OrderStatus.PAID);
+        orderService.updateOrderStatus(cancelled.getOrderId(), OrderStatus.CANCELLED);
+
+        assertEquals(0, paid.getTotalAmount().compareTo(customer.getUsedCredit()));
+        assertEquals(0, new BigDecimal("10000").subtract(paid.getTotalAmount())
+                .compareTo(ledger.getAvailableCredit(customer)));
+    }
+
+    @Test
+    void testEveryTransitionPublishesAnEvent() {
+        OrderEventHistory history = new OrderEventHistory();
+        Order order;
+        try (OrderEventBus bus = new OrderEventBus(64)) {
+            bus.subscribe("history", history);
+            OrderManagementService service = new OrderManagementService(orderRepository, customerRepository,
+                    productRepository, new PricingEngine(), new InventoryManager(productRepository), bus);
+
+            order = service.processOrder(service.createOrder("C001",
+                    Arrays.asList(new Item("P001", 1)), "123 Main St").getOrderId());
+            service.updateOrderStatus(order.getOrderId(), OrderStatus.PAID);
+        }
+
+        List<OrderEvent> events = history.getHistory(order.getOrderId());
+        assertEquals(4, events.size());
+        assertNull(events.get(0).getPreviousStatus());
+        assertEquals(OrderStatus.CREATED, events.get(0).getStatus());
+        assertEquals(OrderStatus.CREATED, events.get(1).getPreviousStatus());
+        assertEquals(OrderStatus.PENDING_VALIDATION, events.get(1).getStatus());
+        assertEquals(OrderStatus.VALIDATED, events.get(2).getStatus());
+        assertEquals(OrderStatus.VALIDATED, events.get(3).getPreviousStatus());
+        assertEquals(OrderStatus.PAID, events.get(3).getStatus());
+        assertTrue(events.stream().allMatch(event -> "C001".equals(event.getCustomerId())));
+    }
+
+    @Test
+    void testHistoryFollowsCommitOrderOfConcurrentTransitions() throws Exception {
+        customerRepository.save(new Customer("C011", CustomerType.REGULAR, new BigDecimal("1000000")));
+        productRepository.save(new Product("P011", "Widget", new BigDecimal("150"), 1_000));
+        OrderEventHistory history = new OrderEventHistory();
+        List<String> orderIds = new ArrayList<>();
+        try (OrderEventBus bus = new OrderEventBus(1024)) {
+            bus.subscribe("history", history);
+            OrderManagementService service = new OrderManagementService(orderRepository, customerRepository,
+                    productRepository, new PricingEngine(), new InventoryManager(productRepository), bus);
+            for (int i = 0; i < 200; i++) {
+                orderIds.add(service.processOrder(service.createOrder("C011",
+                        Arrays.asList(new Item("P011", 1)), "123 Main St").getOrderId()).getOrderId());
+            }
+
+            // Pay and cancel each order at once: when both succeed, the cancel's event is often
+            // published before the payment's, whose hooks take longer
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (String orderId : orderIds) {
+                for (OrderStatus target : new OrderStatus[] {OrderStatus.PAID, OrderStatus.CANCELLED}) {
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        try {
+                            service.updateOrderStatus(orderId, target);
+                        } catch (InvalidStateTransitionException e) {
+                            // Cancelled first, so the payment lost
+                        }
+                        return null;
+                    }));
+                }
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+            executor.shutdown();
+        }
+
+        for (String orderId : orderIds) {
+            List<OrderEvent> events = history.getHistory(orderId);
+            for (int i = 1; i < events.size(); i++) {
+                assertTrue(events.get(i - 1).getVersion() < events.get(i).getVersion(), events.toString());
+                assertEquals(events.get(i - 1).getStatus(), events.get(i).getPreviousStatus(), events.toString());
+            }
+            OrderEvent last = events.get(events.size() - 1);
+            assertEquals(OrderStatus.CANCELLED, last.getStatus());
+            assertEquals(orderRepository.findById(orderId).get().getVersion(), last.getVersion());
+        }
+    }
+
+    @Test
+    void testCustomStateMachineAddsStatusAndHooksWithoutServiceChanges() {
+        List<String> shipped = new ArrayList<>();
+        OrderStateMachine stateMachine = OrderStateMachine.standard()
+                .onEntry(OrderStatus.PARTIALLY_FULFILLED, (order, from, to) -> shipped.add(order.getOrderId()))
+                .build();
+        OrderManagementService service = new OrderManagementService(orderRepository, customerRepository,
+                productRepository, new PricingEngine(), new InventoryManager(productRepository), null, stateMachine);
+
+        Order order = service.processOrder(service.createOrder("C001",
+                Arrays.asList(new Item("P001", 1)), "123 Main St").getOrderId());
+        service.updateOrderStatus(order.getOrderId(), OrderStatus.PAID);
+        service.updateOrderStatus(order.getOrderId(), OrderStatus.PARTIALLY_FULFILLED);
+        service.updateOrderStatus(order.getOrderId(), OrderStatus.FULFILLED);
+
+        assertEquals(List.of(order.getOrderId()), shipped);
+        assertEquals(OrderStatus.FULFILLED, orderRepository.findById(order.getOrderId()).get().getStatus());
+        // The service's own PAID hook still ran
+        assertEquals(9, productRepository.getStock("P001"));
+    }
+
+    @Test
+    void testConcurrentTransitionsFromOneStatusHaveOneWinner() throws Exception {
+        customerRepository.save(new Customer("C011", CustomerType.REGULAR, new BigDecimal("1000000")));
+        productRepository.save(new Product("P011", "Widget", new BigDecimal("150"), 1_000));
+        Customer customer = customerRepository.findById("C011").get();
+        int orders = 200;
+        List<String> orderIds = new ArrayList<>();
+        for (int i = 0; i < orders; i++) {
+            orderIds.add(orderService.processOrder(orderService.createOrder("C011",
+                    Arrays.asList(new Item("P011", 1)), "123 Main St").getOrderId()).getOrderId());
+        }
+
+        // Each order is paid and cancelled at the same time
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (String orderId : orderIds) {
+            for (OrderStatus target : new OrderStatus[] {OrderStatus.PAID, OrderStatus.CANCELLED}) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        orderService.updateOrderStatus(orderId, target);
+                        return true;
+                    } catch (InvalidStateTransitionException e) {
+                        return false;
+                    }
+                }));
+            }
+        }
+        start.countDown();
+        int paid = 0;
+        for (int i = 0; i < futures.size(); i += 2) {
+            boolean paidWon = futures.get(i).get();
+            boolean cancelWon = futures.get(i + 1).get();
+            // Cancelling a paid order is allowed, so both may succeed, but never neither
+            assertTrue(paidWon || cancelWon);
+            if (paidWon) {
+                paid++;
+            }
+        }
+        executor.shutdown();
+
+        // Stock only leaves inventory for orders that were paid
+        assertEquals(1_000 - paid, productRepository.getStock("P011"));
+        assertEquals(0, orderService.getCreditLedger().getAvailableCredit(customer)
+                .compareTo(new BigDecimal("1000000").subtract(customer.getUsedCredit())));
+    }
+
+    @Test
+    void testUpdateOrderRetriesUntilNoUpdateIsLost() throws Exception {
+        Order order = orderService.createOrder("C001", Arrays.asList(new Item("P001", 1)), "123 Main St");
+        int threads = 16;
+        int updatesPerThread = 200;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String tag = " #" + t + ".";
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < updatesPerThread; i++) {
+                    String line = tag + i;
+                    orderService.updateOrder(order.getOrderId(),
+                            copy -> copy.setShippingAddress(copy.getShippingAddress() + line));
+                }
+                return null;
+            }));
+        }
+        // A status change racing the updates must not be overwritten by them, nor they by it
+        start.countDown();
+        orderService.updateOrderStatus(order.getOrderId(), OrderStatus.CANCELLED);
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        Order stored = orderRepository.findById(order.getOrderId()).get();
+        assertEquals(OrderStatus.CANCELLED, stored.getStatus());
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < updatesPerThread; i++) {
+                assertTrue(stored.getShippingAddress().contains(" #" + t + "." + i + " ")
+                        || stored.getShippingAddress().endsWith(" #" + t + "." + i), "lost update " + t + "." + i);
+            }
+        }
+        // Created, cancelled, then one version per update
+        assertEquals(2 + threads * updatesPerThread, stored.getVersion());
+    }
+
+    @Test
+    void testConcurrentOrdersCannotOverspendCredit() throws Exception {
+        customerRepository.save(new Customer("C010", CustomerType.REGULAR, new BigDecimal("10000")));
+        int orders = 10;
+        List<String> orderIds = new ArrayList<>();
+        for (int i = 0; i < orders; i++) {
+            orderIds.add(orderService.createOrder("C010", Arrays.asList(new Item("P001", 1)), "123 Main St")
+                    .getOrderId());
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(orders);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        try {
+            for (String orderId : orderIds) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        orderService.processOrder(orderId);
+                        return true;
+                    } catch (OrderValidationException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+            int validated = 0;
+            for (Future<Boolean> future : futures) {
+                validated += future.get() ? 1 : 0;
+            }
+
+            // Each laptop is 5000 against a 10000 limit
+            assertEquals(2, validated);
+            assertEquals(2, orderRepository.countByStatus(OrderStatus.VALIDATED));
+            assertEquals(new BigDecimal("0.00"),
+                    orderService.getCreditLedger().getAvailableCredit(customerRepository.findById("C010").get()));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
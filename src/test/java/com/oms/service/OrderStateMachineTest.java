@@ -0,0 +1,78 @@
+package com.oms.service;
+
+import com.oms.model.Order;
+import com.oms.model.OrderStatus;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderStateMachineTest {
+
+    @Test
+    void testStandardLifecycle() {
+        OrderStateMachine machine = OrderStateMachine.standard().build();
+
+        assertEquals(EnumSet.of(OrderStatus.PENDING_VALIDATION, OrderStatus.CANCELLED),
+                machine.getAllowedTargets(OrderStatus.CREATED));
+        assertEquals(EnumSet.of(OrderStatus.VALIDATED, OrderStatus.CANCELLED),
+                machine.getAllowedTargets(OrderStatus.PENDING_VALIDATION));
+        assertEquals(EnumSet.of(OrderStatus.PAID, OrderStatus.CANCELLED),
+                machine.getAllowedTargets(OrderStatus.VALIDATED));
+        assertEquals(EnumSet.of(OrderStatus.PARTIALLY_FULFILLED, OrderStatus.FULFILLED, OrderStatus.CANCELLED),
+                machine.getAllowedTargets(OrderStatus.PAID));
+        assertEquals(EnumSet.of(OrderStatus.FULFILLED, OrderStatus.CANCELLED),
+                machine.getAllowedTargets(OrderStatus.PARTIALLY_FULFILLED));
+        assertTrue(machine.getAllowedTargets(OrderStatus.FULFILLED).isEmpty());
+        assertFalse(machine.canTransition(OrderStatus.CREATED, OrderStatus.PAID));
+    }
+
+    @Test
+    void testBuilderCanAddAndRemoveTransitions() {
+        OrderStateMachine machine = OrderStateMachine.standard()
+                .disallow(OrderStatus.PAID, OrderStatus.CANCELLED)
+                .allow(OrderStatus.CANCELLED, OrderStatus.CREATED)
+                .build();
+
+        assertFalse(machine.canTransition(OrderStatus.PAID, OrderStatus.CANCELLED));
+        assertTrue(machine.canTransition(OrderStatus.CANCELLED, OrderStatus.CREATED));
+        assertTrue(OrderStateMachine.standard().build().canTransition(OrderStatus.PAID, OrderStatus.CANCELLED));
+    }
+
+    @Test
+    void testExitHooksRunBeforeEntryHooksInRegistrationOrder() {
+        List<String> calls = new ArrayList<>();
+        OrderStateMachine base = OrderStateMachine.standard()
+                .onEntry(OrderStatus.PAID, (order, from, to) -> calls.add("entry1 " + from + "->" + to))
+                .onExit(OrderStatus.VALIDATED, (order, from, to) -> calls.add("exit"))
+                .build();
+        OrderStateMachine machine = base.toBuilder()
+                .onEntry(OrderStatus.PAID, (order, from, to) -> calls.add("entry2"))
+                .onEntry(OrderStatus.CANCELLED, (order, from, to) -> calls.add("cancelled"))
+                .build();
+
+        machine.runHooks(new Order(), OrderStatus.VALIDATED, OrderStatus.PAID);
+
+        assertEquals(List.of("exit", "entry1 VALIDATED->PAID", "entry2"), calls);
+    }
+
+    @Test
+    void testIncludedHooksRunAfterOwnHooks() {
+        List<String> calls = new ArrayList<>();
+        OrderStateMachine custom = OrderStateMachine.standard()
+                .onEntry(OrderStatus.FULFILLED, (order, from, to) -> calls.add("custom"))
+                .build();
+        OrderStateMachine machine = OrderStateMachine.builder()
+                .onEntry(OrderStatus.FULFILLED, (order, from, to) -> calls.add("own"))
+                .include(custom)
+                .build();
+
+        machine.runHooks(new Order(), OrderStatus.PAID, OrderStatus.FULFILLED);
+
+        assertEquals(List.of("own", "custom"), calls);
+        assertTrue(machine.canTransition(OrderStatus.PAID, OrderStatus.FULFILLED));
+    }
+}
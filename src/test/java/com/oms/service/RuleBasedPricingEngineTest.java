@@ -0,0 +1,127 @@
+package com.oms.service;
+
+import com.oms.model.*;
+import com.oms.service.pricing.*;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RuleBasedPricingEngineTest {
+    private final Order order = new Order("O001", "C001", Arrays.asList(
+            new Item("P001", 1, new BigDecimal("1000")),
+            new Item("P002", 2, new BigDecimal("500"))), "Test Address");
+
+    @Test
+    void testDefaultRulesMatchPricingEngine() {
+        PricingEngine reference = new PricingEngine();
+        PricingEngine ruleBased = new RuleBasedPricingEngine();
+        Random random = new Random(42L);
+        CustomerType[] types = CustomerType.values();
+
+        for (int n = 0; n < 20_000; n++) {
+            List<Item> items = new ArrayList<>();
+            for (int i = 0, count = 1 + random.nextInt(10); i < count; i++) {
+                items.add(new Item("P" + i, 1 + random.nextInt(100),
+                        BigDecimal.valueOf(1 + random.nextInt(1_000_000), random.nextInt(3))));
+            }
+            Order randomOrder = new Order("O" + n, "C", items, "A");
+            Customer customer = new Customer("C", types[random.nextInt(types.length)], BigDecimal.ZERO);
+
+            PricingResult expected = reference.calculatePricing(randomOrder, customer);
+            PricingResult actual = ruleBased.calculatePricing(randomOrder, customer);
+            assertEquals(expected.getTotalAmount(), actual.getTotalAmount());
+            assertEquals(expected.getVatAmount(), actual.getVatAmount());
+        }
+    }
+
+    @Test
+    void testProductPromotionAppliesToMatchingLines() {
+        List<PricingRule> rules = new ArrayList<>();
+        rules.add(new ProductPromotionRule(Collections.singletonMap("P002", new BigDecimal("0.20"))));
+        rules.addAll(RuleBasedPricingEngine.defaultRules());
+        RuleBasedPricingEngine engine = new RuleBasedPricingEngine(rules);
+
+        // 1000 + 1000 * 0.8 = 1800
+        PricingResult result = engine.calculatePricing(order,
+                new Customer("C001", CustomerType.REGULAR, new BigDecimal("10000")));
+
+        assertEquals(new BigDecimal("1800.00"), result.getTotalAmount());
+        assertEquals(new BigDecimal("360.00"), result.getVatAmount());
+    }
+
+    @Test
+    void testUpdateRulesSwapsPlan() {
+        RuleBasedPricingEngine engine = new RuleBasedPricingEngine();
+        Customer gold = new Customer("C001", CustomerType.GOLD, new BigDecimal("10000"));
+        assertEquals(new BigDecimal("1800.00"), engine.calculatePricing(order, gold).getTotalAmount());
+
+        Map<CustomerType, BigDecimal> rates = new EnumMap<>(CustomerType.class);
+        rates.put(CustomerType.GOLD, new BigDecimal("0.50"));
+        PricingPlan plan = engine.updateRules(Arrays.asList(
+                new CustomerTierDiscountRule(rates),
+                new VatRule(new BigDecimal("1.25"))));
+
+        assertEquals(2, plan.getVersion());
+        assertEquals(new BigDecimal("1000.00"), engine.calculatePricing(order, gold).getTotalAmount());
+    }
+
+    @Test
+    void testPlanMustEndWithSingleVatRule() {
+        VatRule vat = new VatRule(new BigDecimal("1.25"));
+        VolumeDiscountRule volume = new VolumeDiscountRule(new BigDecimal("5000"), new BigDecimal("0.03"));
+
+        assertThrows(IllegalArgumentException.class, () -> PricingPlan.compile(1, Collections.emptyList()));
+        assertThrows(IllegalArgumentException.class, () -> PricingPlan.compile(1, Arrays.asList(vat, volume)));
+        assertThrows(IllegalArgumentException.class, () -> PricingPlan.compile(1, Arrays.asList(vat, vat)));
+    }
+
+    @Test
+    void testConcurrentPricingSeesWholePlans() throws Exception {
+        RuleBasedPricingEngine engine = new RuleBasedPricingEngine();
+        Customer regular = new Customer("C001", CustomerType.REGULAR, new BigDecimal("10000"));
+        List<PricingRule> halfPrice = Arrays.asList(
+                new ProductPromotionRule(Map.of("P001", new BigDecimal("0.5"), "P002", new BigDecimal("0.5"))),
+                new VatRule(new BigDecimal("1.25")));
+        List<PricingRule> standard = RuleBasedPricingEngine.defaultRules();
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> readers = new ArrayList<>();
+            for (int t = 0; t < 3; t++) {
+                readers.add(executor.submit(() -> {
+                    while (running.get()) {
+                        BigDecimal total = engine.calculatePricing(order, regular).getTotalAmount();
+                        // Either the whole standard plan or the whole half-price plan, never a mix
+                        assertTrue(total.equals(new BigDecimal("2000.00")) || total.equals(new BigDecimal("1000.00")),
+                                "unexpected total " + total);
+                    }
+                }));
+            }
+            for (int i = 0; i < 2_000; i++) {
+                engine.updateRules(i % 2 == 0 ? halfPrice : standard);
+            }
+            running.set(false);
+            for (Future<?> reader : readers) {
+                reader.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(2_001, engine.getPlan().getVersion());
+    }
+}
@@ -0,0 +1,170 @@
+package com.oms.service;
+
+import com.oms.exception.ResourceNotFoundException;
+import com.oms.metrics.OrderMetrics;
+import com.oms.model.*;
+import com.oms.repository.CustomerRepository;
+import com.oms.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedOrderServiceTest {
+    private ProductRepository productRepository;
+    private ShardedOrderService shardedService;
+
+    @BeforeEach
+    void setUp() {
+        CustomerRepository customerRepository = new CustomerRepository();
+        productRepository = new ProductRepository();
+        for (int c = 0; c < 20; c++) {
+            customerRepository.save(new Customer("C" + c, CustomerType.REGULAR, new BigDecimal("100000")));
+        }
+        productRepository.save(new Product("P001", "Laptop", new BigDecimal("5000"), 1_000));
+        productRepository.save(new Product("P002", "Mouse", new BigDecimal("200"), 3));
+
+        shardedService = new ShardedOrderService(4, customerRepository, productRepository,
+                new PricingEngine(), new InventoryManager(productRepository));
+    }
+
+    @AfterEach
+    void tearDown() {
+        shardedService.close();
+    }
+
+    @Test
+    void testOrdersLiveOnTheirCustomersShard() {
+        Set<Integer> usedShards = new HashSet<>();
+        for (int c = 0; c < 20; c++) {
+            String customerId = "C" + c;
+            int shard = shardedService.shardOf(customerId);
+            usedShards.add(shard);
+
+            Order order = shardedService.createOrder(customerId, Arrays.asList(new Item("P001", 1)), "Address").join();
+            assertEquals(shard, OrderId.parse(order.getOrderId()).getNode());
+            assertEquals(OrderStatus.VALIDATED, shardedService.processOrder(order.getOrderId()).join().getStatus());
+            assertEquals(1, shardedService.findOrdersByCustomer(customerId).join().size());
+        }
+        assertTrue(usedShards.size() > 1);
+        assertEquals(20, shardedService.countOrders().join());
+    }
+
+    @Test
+    void testCrossShardQueryMergesAndPages() {
+        List<String> created = new ArrayList<>();
+        for (int c = 0; c < 12; c++) {
+            Order order = shardedService.createOrder("C" + c, Arrays.asList(new Item("P001", 1)), "Address").join();
+            created.add(shardedService.processOrder(order.getOrderId()).join().getOrderId());
+        }
+
+        List<Order> all = shardedService.findOrdersByStatus(OrderStatus.VALIDATED, null, null, 0, 100).join();
+        assertEquals(12, all.size());
+        for (int i = 1; i < all.size(); i++) {
+            assertFalse(all.get(i).getUpdatedOn().isBefore(all.get(i - 1).getUpdatedOn()));
+        }
+        assertTrue(all.stream().map(Order::getOrderId).allMatch(created::contains));
+
+        List<Order> page = shardedService.findOrdersByStatus(OrderStatus.VALIDATED, null, null, 5, 4).join();
+        assertEquals(all.subList(5, 9).stream().map(Order::getOrderId).collect(java.util.stream.Collectors.toList()),
+                page.stream().map(Order::getOrderId).collect(java.util.stream.Collectors.toList()));
+    }
+
+    @Test
+    void testShardsShareOneInventory() {
+        // 20 customers over 4 shards racing for 3 mice
+        List<CompletableFuture<Order>> processed = new ArrayList<>();
+        for (int c = 0; c < 20; c++) {
+            processed.add(shardedService.createOrder("C" + c, Arrays.asList(new Item("P002", 1)), "Address")
+                    .thenCompose(order -> shardedService.processOrder(order.getOrderId())));
+        }
+
+        int validated = 0;
+        for (CompletableFuture<Order> future : processed) {
+            try {
+                future.join();
+                validated++;
+            } catch (CompletionException e) {
+                // Out of stock
+            }
+        }
+        assertEquals(3, validated);
+        assertEquals(3, shardedService.findOrdersByStatus(OrderStatus.VALIDATED, null, null, 0, 100).join().size());
+    }
+
+    @Test
+    void testUnknownOrderIdsFail() {
+        for (String orderId : Arrays.asList("no-such-order", "0-missing",
+                OrderId.of(1, 7, 0, 0).toString(), OrderId.of(1, 0, 0, 0).toString())) {
+            CompletionException error = assertThrows(CompletionException.class,
+                    () -> shardedService.processOrder(orderId).join());
+            assertTrue(error.getCause() instanceof ResourceNotFoundException, orderId);
+        }
+    }
+
+    @Test
+    void testInstancesWithDifferentBaseNodesIssueDisjointIds() {
+        CustomerRepository customerRepository = new CustomerRepository();
+        customerRepository.save(new Customer("C0", CustomerType.REGULAR, new BigDecimal("100000")));
+        InventoryManager inventoryManager = new InventoryManager(productRepository);
+        try (ShardedOrderService other = new ShardedOrderService(4, 1, customerRepository, productRepository,
+                new PricingEngine(), inventoryManager, OrderMetrics.disabled())) {
+            Order ours = shardedService.createOrder("C0", Arrays.asList(new Item("P001", 1)), "Address").join();
+            Order theirs = other.createOrder("C0", Arrays.asList(new Item("P001", 1)), "Address").join();
+
+            // Same customer, so the same shard, but base node 1 puts its shards on nodes 4 to 7
+            assertEquals(shardedService.shardOf("C0"), OrderId.parse(ours.getOrderId()).getNode());
+            assertEquals(4 + other.shardOf("C0"), OrderId.parse(theirs.getOrderId()).getNode());
+            assertEquals(OrderStatus.VALIDATED, other.processOrder(theirs.getOrderId()).join().getStatus());
+
+            // Neither instance routes the other's ids to one of its own shards
+            CompletionException error = assertThrows(CompletionException.class,
+                    () -> other.processOrder(ours.getOrderId()).join());
+            assertTrue(error.getCause() instanceof ResourceNotFoundException);
+        }
+
+        // 16384 * 4 + 3 is past the 16-bit node field
+        assertThrows(IllegalArgumentException.class, () -> new ShardedOrderService(4, 16_384, customerRepository,
+                productRepository, new PricingEngine(), inventoryManager, OrderMetrics.disabled()));
+        assertThrows(IllegalArgumentException.class, () -> new ShardedOrderService(4, -1, customerRepository,
+                productRepository, new PricingEngine(), inventoryManager, OrderMetrics.disabled()));
+    }
+
+    @Test
+    void testSharedMetricsAndExpiryCoverEveryShard() {
+        CustomerRepository customerRepository = new CustomerRepository();
+        for (int c = 0; c < 20; c++) {
+            customerRepository.save(new Customer("C" + c, CustomerType.REGULAR, new BigDecimal("100000")));
+        }
+        AtomicLong now = new AtomicLong(0);
+        InventoryManager expiring = new InventoryManager(productRepository, Duration.ofMinutes(10), now::get);
+        OrderMetrics metrics = new OrderMetrics();
+        try (ShardedOrderService service = new ShardedOrderService(4, customerRepository, productRepository,
+                new PricingEngine(), expiring, metrics)) {
+            for (int c = 0; c < 20; c++) {
+                Order order = service.createOrder("C" + c, Arrays.asList(new Item("P001", 1)), "Address").join();
+                service.processOrder(order.getOrderId()).join();
+            }
+
+            // One gauge adds up the shards rather than the last shard replacing the others
+            assertEquals(20L, metrics.snapshot().getGauges().get("orders"));
+            assertEquals(20L, metrics.snapshot().getGauges().get("customers"));
+
+            now.set(Duration.ofMinutes(11).toMillis());
+            assertEquals(20, expiring.expireReservations());
+            assertEquals(20, service.findOrdersByStatus(OrderStatus.CANCELLED, null, null, 0, 100).join().size());
+        }
+    }
+}
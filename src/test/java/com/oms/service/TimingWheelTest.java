@@ -0,0 +1,101 @@
+package com.oms.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    @Test
+    void testExpiresAtDeadlineNotBefore() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 8, 0);
+        wheel.schedule("a", 25);
+        wheel.schedule("b", 40);
+
+        assertTrue(wheel.advanceTo(29).isEmpty());
+        assertEquals(List.of("a"), wheel.advanceTo(30));
+        assertTrue(wheel.advanceTo(39).isEmpty());
+        assertEquals(List.of("b"), wheel.advanceTo(40));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testCancelledTimeoutNeverExpires() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 8, 0);
+        TimingWheel.Timeout<String> cancelled = wheel.schedule("a", 50);
+        wheel.schedule("b", 50);
+
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        assertEquals(List.of("b"), wheel.advanceTo(1_000));
+    }
+
+    @Test
+    void testPastDeadlineExpiresOnNextTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 8, 1_000);
+        wheel.schedule("late", 500);
+
+        assertEquals(List.of("late"), wheel.advanceTo(1_010));
+    }
+
+    @Test
+    void testLongDeadlinesCascadeDownThroughLevels() {
+        // 4 slots per level, so these deadlines start out on levels 0 through 6
+        TimingWheel<Long> wheel = new TimingWheel<>(1, 4, 0);
+        long[] deadlines = {3, 7, 29, 100, 1_000, 5_000, 9_999};
+        for (long deadline : deadlines) {
+            wheel.schedule(deadline, deadline);
+        }
+
+        List<Long> expired = new ArrayList<>();
+        for (long now = 1; now <= 10_000; now++) {
+            for (Long deadline : wheel.advanceTo(now)) {
+                assertEquals(now, deadline.longValue(), "expired at the wrong time");
+                expired.add(deadline);
+            }
+        }
+        assertEquals(deadlines.length, expired.size());
+    }
+
+    @Test
+    void testBigClockJumpExpiresEverythingDueInOrder() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(10, 16, 0);
+        for (int i = 50; i >= 1; i--) {
+            wheel.schedule(i, i * 1_000L);
+        }
+
+        List<Integer> expired = wheel.advanceTo(30_000);
+
+        assertEquals(30, expired.size());
+        for (int i = 0; i < expired.size(); i++) {
+            assertEquals(i + 1, expired.get(i));
+        }
+        assertEquals(20, wheel.size());
+    }
+
+    // Schedule and cancel costs are measured by ReservationBenchmark with ttl=true
+    @Test
+    void testMillionsOfPendingTimeouts() {
+        int count = 2_000_000;
+        TimingWheel<Integer> wheel = new TimingWheel<>(10, 512, 0);
+        List<TimingWheel.Timeout<Integer>> timeouts = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            // Spread over 15 minutes, like checkout TTLs started at different times
+            timeouts.add(wheel.schedule(i, 1 + (i * 7919L) % 900_000));
+        }
+        for (int i = 0; i < count; i += 2) {
+            timeouts.get(i).cancel();
+        }
+        assertEquals(count / 2, wheel.size());
+
+        List<Integer> expired = wheel.advanceTo(900_000);
+
+        assertEquals(count / 2, expired.size());
+        assertTrue(expired.stream().allMatch(i -> i % 2 == 1));
+        assertEquals(0, wheel.size());
+    }
+}
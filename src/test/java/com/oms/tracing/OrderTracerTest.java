@@ -0,0 +1,104 @@
+package com.oms.tracing;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderTracerTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void testSpansNestWithinTheirTrace() {
+        OrderTracer tracer = new OrderTracer(1.0, 16);
+
+        long root = tracer.startTrace("O1");
+        long child = tracer.startSpan();
+        // Another order's trace can't start inside this one
+        assertEquals(OrderTracer.NOT_TRACED, tracer.startTrace("O2"));
+        long sameOrder = tracer.startTrace("O1");
+        tracer.endSpan("save", sameOrder);
+        tracer.endSpan("lookup", child);
+        tracer.endSpan("process", root);
+
+        // The trace has ended, so nothing is traced until the next one starts
+        assertEquals(OrderTracer.NOT_TRACED, tracer.startSpan());
+
+        List<TraceSpan> spans = tracer.getSpans("O1");
+        assertEquals(3, spans.size());
+        assertEquals("process", spans.get(0).getName());
+        assertEquals(0, spans.get(0).getDepth());
+        assertEquals("lookup", spans.get(1).getName());
+        assertEquals(1, spans.get(1).getDepth());
+        assertEquals("save", spans.get(2).getName());
+        assertEquals(2, spans.get(2).getDepth());
+        assertTrue(spans.get(0).getDurationNanos() >= spans.get(1).getDurationNanos());
+    }
+
+    @Test
+    void testSamplingIsPerOrderAndRoughlyAtRate() {
+        OrderTracer none = new OrderTracer(0, 16);
+        OrderTracer all = new OrderTracer(1, 16);
+        OrderTracer tenth = new OrderTracer(0.1, 16);
+        int sampled = 0;
+        for (int i = 0; i < 100_000; i++) {
+            String orderId = "order-" + i;
+            assertFalse(none.isSampled(orderId));
+            assertTrue(all.isSampled(orderId));
+            if (tenth.isSampled(orderId)) {
+                sampled++;
+                assertTrue(tenth.isSampled(orderId));
+            }
+        }
+        assertTrue(sampled > 9_000 && sampled < 11_000, "Sampled " + sampled);
+        assertEquals(OrderTracer.NOT_TRACED, OrderTracer.disabled().startTrace("O1"));
+        assertThrows(IllegalArgumentException.class, () -> new OrderTracer(1.5, 16));
+    }
+
+    @Test
+    void testRingKeepsTheLatestSpans() {
+        OrderTracer tracer = new OrderTracer(1.0, 5);
+        for (int i = 0; i < 20; i++) {
+            tracer.endSpan("step", tracer.startTrace("O" + i));
+        }
+
+        List<TraceSpan> spans = tracer.getSpans();
+        assertEquals(8, spans.size());
+        assertEquals("O12", spans.get(0).getOrderId());
+        assertEquals("O19", spans.get(7).getOrderId());
+        assertEquals(20, tracer.getRecordedCount());
+    }
+
+    @Test
+    void testExportsChromeTraceEvents() throws Exception {
+        OrderTracer tracer = new OrderTracer(1.0, 16);
+        long root = tracer.startTrace("O\"1");
+        tracer.endSpan("reserveStock", tracer.startSpan());
+        tracer.endSpan("processOrder", root);
+
+        Path file = directory.resolve("trace.json");
+        tracer.exportChromeTrace(file);
+        String json = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+
+        assertTrue(json.startsWith("{\"displayTimeUnit\":\"ns\",\"traceEvents\":["));
+        assertTrue(json.trim().endsWith("]}"));
+        assertEquals(1, count(json, "\"ph\":\"M\""));
+        assertEquals(2, count(json, "\"ph\":\"X\""));
+        assertTrue(json.contains("\"name\":\"processOrder\""));
+        assertTrue(json.contains("\"orderId\":\"O\\\"1\""));
+    }
+
+    private static int count(String text, String part) {
+        int count = 0;
+        for (int i = text.indexOf(part); i >= 0; i = text.indexOf(part, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+}